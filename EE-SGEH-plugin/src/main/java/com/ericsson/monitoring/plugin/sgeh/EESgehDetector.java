@@ -20,14 +20,18 @@ import java.util.List;
 import org.hyperic.hq.product.*;
 import org.hyperic.util.config.ConfigResponse;
 
+import com.ericsson.monitoring.plugin.common.env.ServerEnvironment;
+
 public class EESgehDetector extends ServerDetector implements AutoServerDetector {
     private static final String[] validServerTypes = {"eniq_events", "eniq_coordinator"};
     private final File sgehFeatureDir = new File("/eniq/mediation_inter/M_E_SGEH");
     private final File serverInstallFile = new File("/eniq/installation/config/installed_server_type");
-    private final File sgehPerfStatScript = new File ("/opt/assuremonitoring-plugins/scripts/sgeh_perf_stat.pl");
+    // The metrics are collected from this log, see LogRulesMeasurementPlugin
+    private final File wfinstrLog = new File("/eniq/log/sw_log/mediation_gw/wfinstr/wfinstr.log");
     private final String pluginDescription;
     private final String pluginServerName;
     private final Log log;
+    private ServerEnvironment serverEnvironment = ServerEnvironment.getInstance();
     /* (non-Javadoc)
      * @see org.hyperic.hq.product.AutoServerDetector#getServerResources(org.hyperic.util.config.ConfigResponse)
      */
@@ -56,6 +60,15 @@ public class EESgehDetector extends ServerDetector implements AutoServerDetector
         return this.pluginDescription;
     }
 
+    /**
+     * Set the server environment, by default the one shared by all plugins.
+     *
+     * @param serverEnvironment ServerEnvironment
+     */
+    public void setServerEnvironment(final ServerEnvironment serverEnvironment) {
+        this.serverEnvironment = serverEnvironment;
+    }
+
     /**
      * Get the name of Server Type from File
      *
@@ -63,24 +76,7 @@ public class EESgehDetector extends ServerDetector implements AutoServerDetector
      * @return String serverType
      */
     public String getServerType(final File sTypeFile) {
-        BufferedReader inputLine = null;
-        String serverType = null;
-        try {
-            inputLine = new BufferedReader(new FileReader(sTypeFile));
-            serverType = inputLine.readLine();
-            inputLine.close();
-        } catch (FileNotFoundException e) {
-            log.error("Exception when attempting to open " + sTypeFile + " for reading", e);
-        } catch (IOException e) {
-            log.error("Exception processing " + sTypeFile, e);
-        } finally {
-            if (inputLine != null) {
-                try {
-                    inputLine.close();
-                } catch (IOException e) {
-                }
-            }
-        }
+        final String serverType = serverEnvironment.getServerType(sTypeFile);
         if (log.isDebugEnabled()){
             log.debug(getClass().getSimpleName() + " serverType from getServerType is " + serverType );
         }
@@ -114,17 +110,17 @@ public class EESgehDetector extends ServerDetector implements AutoServerDetector
      * @return Boolean
      */
     public Boolean isSgehFeatureInstalled (final File featFile) {
-        return featFile.isDirectory();
+        return serverEnvironment.isFeatureInstalled(featFile);
     }
 
     /**
-     * Verify if the script needed for Metric collect is available.
+     * Verify if the wfinstr log the metrics are collected from is available.
      *
-     * @param complete filename of metric collection script
+     * @param complete filename of the wfinstr log
      * @return Boolean
      */
-    public Boolean isMetricScriptPresent (final File metricScript) {
-        return metricScript.isFile();
+    public Boolean isWfinstrLogPresent (final File logFile) {
+        return logFile.isFile();
     }
 
     @Override
@@ -153,7 +149,7 @@ public class EESgehDetector extends ServerDetector implements AutoServerDetector
         if (log.isDebugEnabled()) {
             log.debug(getClass().getSimpleName() + "getServerResources called.");
         }
-        if (isMetricScriptPresent(sgehPerfStatScript) && isValidServerType(getServerType(serverInstallFile)) && isSgehFeatureInstalled(sgehFeatureDir)) {
+        if (isWfinstrLogPresent(wfinstrLog) && isValidServerType(getServerType(serverInstallFile)) && isSgehFeatureInstalled(sgehFeatureDir)) {
 
             if(log.isDebugEnabled()) {
                 log.debug(getClass().getSimpleName() + "getServerResources conditions are valid.");
@@ -176,7 +172,7 @@ public class EESgehDetector extends ServerDetector implements AutoServerDetector
         else {
             if(log.isDebugEnabled()) {
                 log.debug(getClass().getSimpleName() + " getServerResources  one or more conditions are not valid.");
-                log.debug(getClass().getSimpleName() + " isMetricScriptPresent is " + isMetricScriptPresent(sgehPerfStatScript) + " for script " + sgehPerfStatScript);
+                log.debug(getClass().getSimpleName() + " isWfinstrLogPresent is " + isWfinstrLogPresent(wfinstrLog) + " for log " + wfinstrLog);
                 log.debug(getClass().getSimpleName() + " isSgehFeatureInstalled is " + isSgehFeatureInstalled(sgehFeatureDir) + " for directory " + sgehFeatureDir);
             }
             return null;
@@ -118,26 +118,26 @@ public class EESgehDetectorTest {
     }
 
     /**
-     * Test isMetricScriptPresent to check it returns true if metric collection script exist.
+     * Test isWfinstrLogPresent to check it returns true if the wfinstr log exists.
      *
      */
     @Test
-    public void testIsMetricScriptPresent() {
-        final File mockScript = Mockito.mock(File.class);
-        doReturn(new Boolean(true)).when(mockScript).isFile();
-        final Boolean testResult = EESgehDetectorUnderTest.isMetricScriptPresent(mockScript);
+    public void testIsWfinstrLogPresent() {
+        final File mockLog = Mockito.mock(File.class);
+        doReturn(new Boolean(true)).when(mockLog).isFile();
+        final Boolean testResult = EESgehDetectorUnderTest.isWfinstrLogPresent(mockLog);
         assertTrue(testResult);
     }
 
     /**
-     * Test isMetricScriptPresent to check it returns false if metric collection script does not exist.
+     * Test isWfinstrLogPresent to check it returns false if the wfinstr log does not exist.
      *
      */
     @Test
-    public void testIsMetricScriptPresentFalse() {
-        final File mockScript = Mockito.mock(File.class);
-        doReturn(new Boolean(false)).when(mockScript).isFile();
-        final Boolean testResult = EESgehDetectorUnderTest.isMetricScriptPresent(mockScript);
+    public void testIsWfinstrLogPresentFalse() {
+        final File mockLog = Mockito.mock(File.class);
+        doReturn(new Boolean(false)).when(mockLog).isFile();
+        final Boolean testResult = EESgehDetectorUnderTest.isWfinstrLogPresent(mockLog);
         assertFalse(testResult);
     }
 
@@ -150,7 +150,7 @@ public class EESgehDetectorTest {
         final EESgehDetector eeSgehDetectorMock = Mockito.spy(new EESgehDetector());
         final String validServerType = "eniq_coordinator";
         doReturn(validServerType).when(eeSgehDetectorMock).getServerType(any(File.class));
-        doReturn(new Boolean(true)).when(eeSgehDetectorMock).isMetricScriptPresent(any(File.class));
+        doReturn(new Boolean(true)).when(eeSgehDetectorMock).isWfinstrLogPresent(any(File.class));
         doReturn(new Boolean(true)).when(eeSgehDetectorMock).isValidServerType(any(String.class));
         doReturn(new Boolean(true)).when(eeSgehDetectorMock).isSgehFeatureInstalled(any(File.class));
 
@@ -176,7 +176,7 @@ public class EESgehDetectorTest {
         final EESgehDetector eeSgehDetectorMock = Mockito.spy(new EESgehDetector());
         final String inValidServerType = "eniq_mz";
         doReturn(inValidServerType).when(eeSgehDetectorMock).getServerType(any(File.class));
-        doReturn(new Boolean(false)).when(eeSgehDetectorMock).isMetricScriptPresent(any(File.class));
+        doReturn(new Boolean(false)).when(eeSgehDetectorMock).isWfinstrLogPresent(any(File.class));
         doReturn(new Boolean(true)).when(eeSgehDetectorMock).isValidServerType(any(String.class));
         doReturn(new Boolean(true)).when(eeSgehDetectorMock).isSgehFeatureInstalled(any(File.class));
         final ConfigResponse platformConfig = new ConfigResponse();
@@ -0,0 +1,62 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.benchmarks;
+
+import java.io.*;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.ericsson.monitoring.plugin.common.env.PluginSettings;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports the allocation
+ * rate, and without the read budget of global.env, so that the parsing is
+ * measured rather than the throttle. The JMH command line options are
+ * accepted, e.g. a benchmark name pattern or "-f 1".
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+        final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend("-D" + PluginSettings.GLOBAL_ENV_PROPERTY + "=" + writeUnlimitedEnv().getAbsolutePath());
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+        }
+        new Runner(options.build()).run();
+    }
+
+    /**
+     * Write the settings of a read budget that never holds a scan back.
+     */
+    private static File writeUnlimitedEnv() throws IOException {
+        final File envFile = File.createTempFile("benchmark", ".env");
+        envFile.deleteOnExit();
+        final Writer writer = new FileWriter(envFile);
+        try {
+            writer.write("LOG_READ_BYTES_PER_SECOND=" + Long.MAX_VALUE / 2 + "\n");
+            writer.write("LOG_READ_CPU_PERCENT=100\n");
+            writer.write("LOG_READ_DISK_QUEUE=" + Integer.MAX_VALUE + "\n");
+        } finally {
+            writer.close();
+        }
+        return envFile;
+    }
+}
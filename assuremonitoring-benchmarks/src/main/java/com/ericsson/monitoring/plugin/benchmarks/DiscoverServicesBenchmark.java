@@ -0,0 +1,88 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hyperic.hq.product.PluginException;
+import org.hyperic.hq.product.ServiceResource;
+import org.hyperic.util.config.ConfigResponse;
+import org.openjdk.jmh.annotations.*;
+
+import com.ericsson.monitoring.plugin.backlog.BacklogServerDetector;
+
+/**
+ * Discovery of the Interface services of the Backlog Analysis server: a full
+ * discovery by a new detector, and a discovery with the interfaces unchanged
+ * since the previous one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscoverServicesBenchmark {
+
+    @Param({ "1000" })
+    public int interfaceCount;
+
+    private final ConfigResponse config = new ConfigResponse();
+    private List<String> interfaces;
+    private BacklogServerDetector discoveredDetector;
+
+    /**
+     * Detector with a fixed interface list, creating its services without
+     * the type information of the agent.
+     */
+    private static class FixedInterfacesDetector extends BacklogServerDetector {
+        private final List<String> interfaces;
+
+        FixedInterfacesDetector(final List<String> interfaces) {
+            this.interfaces = interfaces;
+        }
+
+        @Override
+        public List<String> getActiveInterfaces() {
+            return interfaces;
+        }
+
+        @Override
+        public ServiceResource createServiceResource(final String type) {
+            final ServiceResource service = new ServiceResource();
+            service.setType(type);
+            return service;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createInterfaces() throws PluginException {
+        interfaces = new ArrayList<String>();
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add("INTF_DC_E_" + i + "-DC_E_" + i);
+        }
+        discoveredDetector = new FixedInterfacesDetector(interfaces);
+        discoveredDetector.discoverServices(config);
+    }
+
+    @Benchmark
+    public List<ServiceResource> fullDiscovery() throws PluginException {
+        return new FixedInterfacesDetector(interfaces).discoverServices(config);
+    }
+
+    @Benchmark
+    public List<ServiceResource> unchangedDiscovery() throws PluginException {
+        return discoveredDetector.discoverServices(config);
+    }
+}
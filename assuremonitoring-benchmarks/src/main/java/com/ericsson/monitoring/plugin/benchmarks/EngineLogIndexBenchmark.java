@@ -0,0 +1,83 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.ericsson.monitoring.plugin.backlog.EngineLogIndex;
+import com.ericsson.monitoring.plugin.testsupport.EngineLogGenerator;
+
+/**
+ * Backlog extraction from the engine log: a read of the last 15 minutes of
+ * the day's log by a new index, as after an agent restart without checkpoint.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineLogIndexBenchmark {
+
+    private static final long WINDOW_MILLIS = 15L * 60L * 1000L;
+
+    @Param({ "10" })
+    public int sizeMegabytes;
+
+    @Param({ "500" })
+    public int interfaceCount;
+
+    private File logDir;
+    private long now;
+
+    @Setup(Level.Trial)
+    public void createLog() throws IOException {
+        logDir = File.createTempFile("engine", "");
+        logDir.delete();
+        logDir.mkdir();
+
+        final Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, 12);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        now = calendar.getTimeInMillis();
+
+        final EngineLogGenerator generator = new EngineLogGenerator(1);
+        generator.setInterfaceCount(interfaceCount);
+        generator.setSizeBytes(sizeMegabytes * 1024L * 1024L);
+        // Lines of about 70 bytes, all within the window read by a new index
+        generator.setLineIntervalMillis(Math.max(1, WINDOW_MILLIS * 70L / generator.getSizeBytes()));
+        generator.generate(logDir, now - WINDOW_MILLIS + 1000L);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() {
+        for (final File file : logDir.listFiles()) {
+            file.delete();
+        }
+        logDir.delete();
+    }
+
+    @Benchmark
+    public Object refresh(final ScanCounters counters) throws IOException {
+        final EngineLogIndex index = new EngineLogIndex(logDir);
+        index.refresh(now);
+        counters.add(index.getLastScan());
+        return index.getMetrics(EngineLogGenerator.getInterfaceName(0), now);
+    }
+}
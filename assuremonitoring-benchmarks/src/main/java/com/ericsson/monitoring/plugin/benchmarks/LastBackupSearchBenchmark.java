@@ -0,0 +1,64 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.ericsson.monitoring.plugin.common.stats.CollectionStatistics;
+import com.ericsson.monitoring.plugin.ombs.OMBSBackupMeasurementPlugin;
+import com.ericsson.monitoring.plugin.testsupport.BackupLogGenerator;
+
+/**
+ * Reverse search of the last successful backup: the success line is at the
+ * start of the log, so the whole log is read backwards, as for a first
+ * collection without checkpoint.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LastBackupSearchBenchmark {
+
+    @Param({ "10" })
+    public int sizeMegabytes;
+
+    private final OMBSBackupMeasurementPlugin plugin = new OMBSBackupMeasurementPlugin();
+    private File logFile;
+
+    @Setup(Level.Trial)
+    public void createLog() throws IOException {
+        logFile = File.createTempFile("ombs_backup", ".log");
+        final BackupLogGenerator generator = new BackupLogGenerator(1, BackupLogGenerator.OMBS_SUCCESS_MESSAGE);
+        generator.setSuccessInterval(Integer.MAX_VALUE);
+        generator.setSizeBytes(sizeMegabytes * 1024L * 1024L);
+        generator.generate(logFile, System.currentTimeMillis() - 24L * 60L * 60L * 1000L);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() {
+        logFile.delete();
+    }
+
+    @Benchmark
+    public long findLastBackupTime(final ScanCounters counters) throws IOException {
+        final CollectionStatistics.Scan scan = new CollectionStatistics.Scan();
+        final long backupTime = plugin.findLastBackupTime(logFile, 0, scan);
+        counters.add(scan);
+        return backupTime;
+    }
+}
@@ -0,0 +1,45 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.ericsson.monitoring.plugin.common.stats.CollectionStatistics;
+
+/**
+ * Counts of the scans of a benchmark, reported by JMH as rates next to the
+ * operations: megabytes per second and lines per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class ScanCounters {
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    public double megabytes;
+    public long lines;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        megabytes = 0;
+        lines = 0;
+    }
+
+    /**
+     * Add the counts of one scan.
+     *
+     * @param scan counts of the scan
+     */
+    public void add(final CollectionStatistics.Scan scan) {
+        megabytes += scan.getBytesRead() / BYTES_PER_MEGABYTE;
+        lines += scan.getLinesScanned();
+    }
+}
@@ -0,0 +1,73 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.ericsson.monitoring.plugin.common.wfinstr.WfinstrCollector;
+import com.ericsson.monitoring.plugin.testsupport.WfinstrLogGenerator;
+
+/**
+ * Keyword aggregation of wfinstr.log: a full read of the retained hours by a
+ * collector with the SGEH, LTEES and LTEEFA keywords subscribed, as after an
+ * agent restart without checkpoint.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WfinstrCollectorBenchmark {
+    private static final String[] KEYWORDS = { "SGEH.WF_SGEH_Processing_NFS", "LTEES.WF_LTEES_Processing",
+            "LTEEFA.WF_LTEEFA_Processing", "EBSL.WF_EBSL_Processing" };
+
+    private static final long RETAINED_MILLIS = 3L * 60L * 60L * 1000L;
+
+    @Param({ "20" })
+    public int sizeMegabytes;
+
+    private File logFile;
+
+    @Setup(Level.Trial)
+    public void createLog() throws IOException, ParseException {
+        logFile = File.createTempFile("wfinstr", ".log");
+        final WfinstrLogGenerator generator = new WfinstrLogGenerator(1);
+        generator.setKeywords(KEYWORDS);
+        generator.setSizeBytes(sizeMegabytes * 1024L * 1024L);
+        // Three hours of lines of about 100 bytes, all within the retained hours
+        generator.setLineIntervalMillis(Math.max(1, RETAINED_MILLIS * 100L / generator.getSizeBytes()));
+        generator.generate(logFile, new SimpleDateFormat("yyyy-MM-dd HH:mm").parse("2014-06-06 09:00").getTime());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() {
+        logFile.delete();
+    }
+
+    @Benchmark
+    public long collect(final ScanCounters counters) throws IOException {
+        final WfinstrCollector collector = new WfinstrCollector(logFile, null);
+        for (int i = 0; i < 3; i++) {
+            collector.subscribe(KEYWORDS[i]);
+        }
+        collector.collect();
+        counters.add(collector.getLastScan());
+        return collector.getOffset();
+    }
+}
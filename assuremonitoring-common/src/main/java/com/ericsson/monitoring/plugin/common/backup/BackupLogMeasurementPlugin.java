@@ -0,0 +1,267 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.backup;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.hyperic.hq.product.*;
+
+import com.ericsson.monitoring.plugin.common.cache.CollectionCache;
+import com.ericsson.monitoring.plugin.common.checkpoint.Checkpoint;
+import com.ericsson.monitoring.plugin.common.checkpoint.CheckpointStore;
+import com.ericsson.monitoring.plugin.common.log.FileIdentity;
+import com.ericsson.monitoring.plugin.common.log.ReverseLineReader;
+import com.ericsson.monitoring.plugin.common.schedule.CollectionPermits;
+import com.ericsson.monitoring.plugin.common.stats.CollectionStatistics;
+
+/**
+ * Base measurement plugin for the backups reporting their completion in a log.
+ *
+ * The metric template defines the log file, e.g.
+ * "ombs:file=%logfile%:${alias}". The log is read backwards up to the most
+ * recent line reporting a successful backup, which gives the availability and
+ * the time since the last backup.
+ *
+ * The time found and the size of the log are checkpointed, so the next
+ * collection only reads the lines appended since, even after an agent restart.
+ * Both metrics are collected together and kept in the {@link CollectionCache}
+ * for the other alias.
+ *
+ * The {@link CollectionStatistics} of the plugin are reported through the
+ * "self:type=collection:${alias}" template.
+ */
+public abstract class BackupLogMeasurementPlugin extends MeasurementPlugin {
+    protected static final String AVAILABILITY = "Availability";
+    protected static final String TIME_SINCE_LAST_BACKUP = "time_since_last_backup";
+    private static final String FILE_PROPERTY = "file";
+
+    private final Pattern timestampPattern;
+    private final String timestampFormat;
+    private final String successMessage;
+
+    /**
+     * @param timestampPattern matching the start of a log line, group 1 being the timestamp
+     * @param timestampFormat SimpleDateFormat pattern of the timestamp
+     * @param successMessage logged when a backup completes
+     */
+    protected BackupLogMeasurementPlugin(final Pattern timestampPattern, final String timestampFormat,
+            final String successMessage) {
+        this.timestampPattern = timestampPattern;
+        this.timestampFormat = timestampFormat;
+        this.successMessage = successMessage;
+    }
+
+    @Override
+    public MetricValue getValue(final Metric metric) throws PluginException, MetricNotFoundException,
+            MetricUnreachableException {
+        final CollectionStatistics statistics = CollectionStatistics.getInstance(getName());
+        if (CollectionStatistics.DOMAIN.equals(metric.getDomainName())) {
+            return statistics.getValue(metric.getAttributeName());
+        }
+
+        final String fileName = metric.getObjectProperty(FILE_PROPERTY);
+        final String alias = metric.getAttributeName();
+        if (fileName == null) {
+            throw new MetricNotFoundException("Metric template " + metric + " does not define " + FILE_PROPERTY);
+        }
+
+        final Map<String, Double> metrics = CollectionCache.getInstance().get(metric.getObjectName(),
+                System.currentTimeMillis(), new CollectionCache.Collector() {
+                    @Override
+                    public Map<String, Double> collect() throws PluginException {
+                        return collectMetrics(metric, fileName, statistics);
+                    }
+                }, statistics);
+
+        final Double value = metrics.get(alias);
+        if (value == null) {
+            if (!metrics.containsKey(TIME_SINCE_LAST_BACKUP)) {
+                throw new MetricUnreachableException("Unable to find the backup metrics in " + fileName);
+            }
+            throw new MetricNotFoundException("Unknown backup metric " + alias);
+        }
+        return new MetricValue(value);
+    }
+
+    /**
+     * Collect all backup metrics, once for all aliases of the resource.
+     */
+    private Map<String, Double> collectMetrics(final Metric metric, final String fileName,
+            final CollectionStatistics statistics) throws PluginException {
+        final Log log = getLog();
+        final Map<String, Double> metrics = new HashMap<String, Double>();
+
+        long backupTime = -1;
+        final CollectionStatistics.Scan scan = new CollectionStatistics.Scan();
+        final CollectionPermits permits = CollectionPermits.getLight();
+        permits.acquire();
+        try {
+            if (isBackupAvailable(metric)) {
+                backupTime = findLastBackupTime(new File(fileName), getCheckpointStore(), scan);
+            }
+        } catch (IOException e) {
+            throw new MetricUnreachableException("Unable to read " + fileName + ": " + e.getMessage(), e);
+        } finally {
+            permits.release();
+            statistics.recordScan(scan);
+        }
+
+        if (backupTime < 0) {
+            if (log.isDebugEnabled()) {
+                log.debug("No successful backup found in " + fileName);
+            }
+            metrics.put(AVAILABILITY, Metric.AVAIL_DOWN);
+            return metrics;
+        }
+
+        metrics.put(AVAILABILITY, Metric.AVAIL_UP);
+        metrics.put(TIME_SINCE_LAST_BACKUP, (double) (System.currentTimeMillis() / 1000L - backupTime / 1000L));
+        return metrics;
+    }
+
+    /**
+     * Check the conditions, other than the backup log, for the backup to be
+     * available. The log is only read when they are met.
+     *
+     * @param metric being collected
+     * @return true by default
+     * @throws MetricUnreachableException if the conditions cannot be checked
+     */
+    protected boolean isBackupAvailable(final Metric metric) throws MetricUnreachableException {
+        return true;
+    }
+
+    /**
+     * Get the store of the checkpoints of the backup logs.
+     *
+     * @return the store shared by all plugins
+     */
+    protected CheckpointStore getCheckpointStore() {
+        return CheckpointStore.getInstance();
+    }
+
+    /**
+     * Find the time of the most recent successful backup in the log, reading
+     * only the lines appended since the checkpoint of the log.
+     *
+     * @param logFile backup log
+     * @param checkpointStore to resume from and save to, null not to checkpoint
+     * @return time in milliseconds, -1 if the log does not report a successful backup
+     * @throws IOException if the log cannot be read
+     */
+    public long findLastBackupTime(final File logFile, final CheckpointStore checkpointStore) throws IOException {
+        return findLastBackupTime(logFile, checkpointStore, new CollectionStatistics.Scan());
+    }
+
+    /**
+     * Find the time of the most recent successful backup in the log, reading
+     * only the lines appended since the checkpoint of the log.
+     *
+     * @param logFile backup log
+     * @param checkpointStore to resume from and save to, null not to checkpoint
+     * @param scan counting the lines read
+     * @return time in milliseconds, -1 if the log does not report a successful backup
+     * @throws IOException if the log cannot be read
+     */
+    public long findLastBackupTime(final File logFile, final CheckpointStore checkpointStore,
+            final CollectionStatistics.Scan scan) throws IOException {
+        final String checkpointName = "backup" + logFile.getAbsolutePath().replaceAll("[^\\w.\\-]", "_");
+        final FileIdentity identity = FileIdentity.of(logFile);
+        Checkpoint checkpoint = (checkpointStore == null ? null : checkpointStore.load(checkpointName));
+        if (checkpoint != null && !checkpoint.isResumableFrom(identity)) {
+            checkpoint = null;
+        }
+
+        long backupTime = findLastBackupTime(logFile, (checkpoint == null ? 0 : checkpoint.getOffset()), scan);
+        if (backupTime < 0 && checkpoint != null) {
+            backupTime = checkpoint.getLastTimestamp();
+        }
+
+        if (checkpointStore != null && (checkpoint == null || checkpoint.getOffset() != identity.getSize())) {
+            try {
+                checkpointStore.save(checkpointName, new Checkpoint(logFile.getAbsolutePath(), identity,
+                        identity.getSize(), backupTime));
+            } catch (IOException e) {
+                getLog().warn("Unable to checkpoint " + logFile + ": " + e.getMessage());
+            }
+        }
+        return backupTime;
+    }
+
+    /**
+     * Find the time of the most recent successful backup in the log.
+     *
+     * @param logFile backup log
+     * @param startPosition byte offset to stop reading backwards at
+     * @return time in milliseconds, -1 if the lines read do not report a successful backup
+     * @throws IOException if the log cannot be read
+     */
+    public long findLastBackupTime(final File logFile, final long startPosition) throws IOException {
+        return findLastBackupTime(logFile, startPosition, new CollectionStatistics.Scan());
+    }
+
+    /**
+     * Find the time of the most recent successful backup in the log.
+     *
+     * @param logFile backup log
+     * @param startPosition byte offset to stop reading backwards at
+     * @param scan counting the lines read
+     * @return time in milliseconds, -1 if the lines read do not report a successful backup
+     * @throws IOException if the log cannot be read
+     */
+    public long findLastBackupTime(final File logFile, final long startPosition, final CollectionStatistics.Scan scan)
+            throws IOException {
+        final ReverseLineReader reader = new ReverseLineReader(logFile, startPosition);
+        scan.addFileOpened();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final long time = getSuccessTime(line);
+                scan.addLine(time >= 0);
+                if (time >= 0) {
+                    return time;
+                }
+            }
+            return -1;
+        } finally {
+            scan.addBytesRead(reader.getBytesRead());
+            reader.close();
+        }
+    }
+
+    private long getSuccessTime(final String line) {
+        if (line.indexOf(successMessage) < 0) {
+            return -1;
+        }
+        final Matcher timestamp = timestampPattern.matcher(line);
+        if (!timestamp.find()) {
+            return -1;
+        }
+
+        final SimpleDateFormat format = new SimpleDateFormat(timestampFormat, Locale.ENGLISH);
+        format.setLenient(false);
+        try {
+            return format.parse(timestamp.group(1)).getTime();
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
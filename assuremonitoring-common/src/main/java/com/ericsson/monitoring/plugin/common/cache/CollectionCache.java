@@ -0,0 +1,150 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hyperic.hq.product.PluginException;
+
+import com.ericsson.monitoring.plugin.common.stats.CollectionStatistics;
+
+/**
+ * Results of the metric collections, so that one collection of a resource
+ * serves all its metric aliases.
+ *
+ * The agent asks for each alias of a resource separately, within a few
+ * seconds of each other. The first alias runs the collection of the
+ * resource, which returns the values of all aliases, and the other aliases
+ * are answered from it until the slot of the collection is over. A failed
+ * collection is cached as well, so it is not retried for every alias.
+ */
+public class CollectionCache {
+    public static final long DEFAULT_SLOT_MILLIS = 60L * 1000L;
+    private static final CollectionCache INSTANCE = new CollectionCache(DEFAULT_SLOT_MILLIS);
+
+    private final long slotMillis;
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * Collection of the values of all metric aliases of a resource.
+     */
+    public interface Collector {
+        /**
+         * @return metric values keyed by alias
+         * @throws PluginException if the resource cannot be collected
+         */
+        Map<String, Double> collect() throws PluginException;
+    }
+
+    /**
+     * @param slotMillis how long a collection serves the other aliases
+     */
+    public CollectionCache(final long slotMillis) {
+        this.slotMillis = slotMillis;
+    }
+
+    /**
+     * Get the cache shared by all plugins.
+     *
+     * @return CollectionCache
+     */
+    public static CollectionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the metric values of a resource, running the collection only if the
+     * resource has not been collected in the current slot.
+     *
+     * @param resourceKey identifies the resource, e.g. the metric object name
+     * @param nowMillis current time
+     * @param collector collection of the resource
+     * @return metric values keyed by alias, not to be modified
+     * @throws PluginException thrown by the collection of the slot
+     */
+    public Map<String, Double> get(final String resourceKey, final long nowMillis, final Collector collector)
+            throws PluginException {
+        return get(resourceKey, nowMillis, collector, null);
+    }
+
+    /**
+     * Get the metric values of a resource, running the collection only if the
+     * resource has not been collected in the current slot, and record the
+     * lookup and the duration of the collection.
+     *
+     * @param resourceKey identifies the resource, e.g. the metric object name
+     * @param nowMillis current time
+     * @param collector collection of the resource
+     * @param statistics to record to, null not to record
+     * @return metric values keyed by alias, not to be modified
+     * @throws PluginException thrown by the collection of the slot
+     */
+    public Map<String, Double> get(final String resourceKey, final long nowMillis, final Collector collector,
+            final CollectionStatistics statistics) throws PluginException {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(resourceKey);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(resourceKey, entry);
+            }
+        }
+
+        synchronized (entry) {
+            final boolean valid = entry.isValid(nowMillis);
+            if (!valid) {
+                entry.collectedMillis = nowMillis;
+                final long startMillis = System.currentTimeMillis();
+                try {
+                    entry.values = Collections.unmodifiableMap(collector.collect());
+                    entry.failure = null;
+                } catch (PluginException e) {
+                    entry.values = null;
+                    entry.failure = e;
+                }
+                if (statistics != null) {
+                    statistics.recordCollection(System.currentTimeMillis() - startMillis);
+                }
+            }
+            if (statistics != null) {
+                statistics.recordCacheLookup(valid);
+            }
+            if (entry.failure != null) {
+                throw entry.failure;
+            }
+            return entry.values;
+        }
+    }
+
+    /**
+     * Discard the result of a resource, so the next alias collects it again.
+     *
+     * @param resourceKey identifies the resource
+     */
+    public void invalidate(final String resourceKey) {
+        synchronized (entries) {
+            entries.remove(resourceKey);
+        }
+    }
+
+    private class Entry {
+        private long collectedMillis = -1;
+        private Map<String, Double> values;
+        private PluginException failure;
+
+        boolean isValid(final long nowMillis) {
+            return collectedMillis >= 0 && nowMillis >= collectedMillis && nowMillis - collectedMillis < slotMillis;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.checkpoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ericsson.monitoring.plugin.common.log.FileIdentity;
+import com.ericsson.monitoring.plugin.common.log.LogTailer;
+
+/**
+ * Position reached by a log collector, and the partial aggregates built from
+ * the lines read up to that position.
+ */
+public class Checkpoint {
+    private final String filePath;
+    private final FileIdentity identity;
+    private final long offset;
+    private final long fingerprint;
+    private final long lastTimestamp;
+    private final Map<String, String> aggregates = new LinkedHashMap<String, String>();
+
+    /**
+     * @param filePath of the log file
+     * @param identity of the log file when it was read
+     * @param offset of the first line not read yet
+     * @param lastTimestamp collector specific, e.g. the time of the last event found
+     */
+    public Checkpoint(final String filePath, final FileIdentity identity, final long offset, final long lastTimestamp) {
+        this(filePath, identity, offset, LogTailer.NO_FINGERPRINT, lastTimestamp);
+    }
+
+    /**
+     * @param filePath of the log file
+     * @param identity of the log file when it was read
+     * @param offset of the first line not read yet
+     * @param fingerprint of the bytes before the offset, see {@link LogTailer}
+     * @param lastTimestamp collector specific, e.g. the time of the last event found
+     */
+    public Checkpoint(final String filePath, final FileIdentity identity, final long offset, final long fingerprint,
+            final long lastTimestamp) {
+        this.filePath = filePath;
+        this.identity = identity;
+        this.offset = offset;
+        this.fingerprint = fingerprint;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public FileIdentity getIdentity() {
+        return identity;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return fingerprint of the bytes before the offset, {@link LogTailer#NO_FINGERPRINT} if unknown
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Get the partial aggregates, which the collector may add to before the
+     * checkpoint is saved.
+     *
+     * @return modifiable aggregates keyed by a collector specific name
+     */
+    public Map<String, String> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * Check whether the log file can be read on from this checkpoint.
+     *
+     * @param currentIdentity of the log file now
+     * @return false if the file was rotated or truncated since the checkpoint
+     */
+    public boolean isResumableFrom(final FileIdentity currentIdentity) {
+        return currentIdentity.isContinuationOf(identity) && currentIdentity.getSize() >= offset;
+    }
+}
@@ -0,0 +1,159 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.checkpoint;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ericsson.monitoring.plugin.common.log.FileIdentity;
+
+/**
+ * Stores the checkpoint of each log collector in its own properties file, so
+ * that the collectors resume where they stopped after an agent restart.
+ *
+ * A checkpoint is written to a temporary file renamed over the previous one,
+ * so a crash leaves either the previous or the new checkpoint, never a partial
+ * one. An unreadable checkpoint is ignored and the collector starts over.
+ */
+public class CheckpointStore {
+    public static final File CHECKPOINT_DIR = new File("/opt/assuremonitoring-plugins/checkpoints");
+    private static final String SUFFIX = ".checkpoint";
+    private static final String FILE_PATH = "file.path";
+    private static final String FILE_DEVICE = "file.device";
+    private static final String FILE_INODE = "file.inode";
+    private static final String FILE_SIZE = "file.size";
+    private static final String OFFSET = "offset";
+    private static final String FINGERPRINT = "offset.fingerprint";
+    private static final String LAST_TIMESTAMP = "last.timestamp";
+    private static final String AGGREGATE_PREFIX = "aggregate.";
+    private static final CheckpointStore INSTANCE = new CheckpointStore(CHECKPOINT_DIR);
+
+    private final Log log = LogFactory.getLog(CheckpointStore.class);
+    private final File checkpointDir;
+
+    public CheckpointStore(final File checkpointDir) {
+        this.checkpointDir = checkpointDir;
+    }
+
+    /**
+     * Get the store shared by all plugins.
+     *
+     * @return CheckpointStore
+     */
+    public static CheckpointStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load the checkpoint of a collector.
+     *
+     * @param collectorName unique name of the collector, usable as a file name
+     * @return Checkpoint, or null if the collector has no readable checkpoint
+     */
+    public synchronized Checkpoint load(final String collectorName) {
+        final File file = getFile(collectorName);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        final Properties properties = new Properties();
+        try {
+            final InputStream input = new BufferedInputStream(new FileInputStream(file));
+            try {
+                properties.load(input);
+            } finally {
+                input.close();
+            }
+
+            final FileIdentity identity = new FileIdentity(getLong(properties, FILE_DEVICE),
+                    getLong(properties, FILE_INODE), getLong(properties, FILE_SIZE));
+            final Checkpoint checkpoint = new Checkpoint(properties.getProperty(FILE_PATH), identity, getLong(
+                    properties, OFFSET), getLong(properties, FINGERPRINT), getLong(properties, LAST_TIMESTAMP));
+            for (final String name : properties.stringPropertyNames()) {
+                if (name.startsWith(AGGREGATE_PREFIX)) {
+                    checkpoint.getAggregates().put(name.substring(AGGREGATE_PREFIX.length()),
+                            properties.getProperty(name));
+                }
+            }
+            return checkpoint;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable checkpoint " + file + ": " + e.getMessage());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring corrupt checkpoint " + file + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Save the checkpoint of a collector, replacing the previous one.
+     *
+     * @param collectorName unique name of the collector, usable as a file name
+     * @param checkpoint to save
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public synchronized void save(final String collectorName, final Checkpoint checkpoint) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(FILE_PATH, checkpoint.getFilePath());
+        properties.setProperty(FILE_DEVICE, String.valueOf(checkpoint.getIdentity().getDevice()));
+        properties.setProperty(FILE_INODE, String.valueOf(checkpoint.getIdentity().getInode()));
+        properties.setProperty(FILE_SIZE, String.valueOf(checkpoint.getIdentity().getSize()));
+        properties.setProperty(OFFSET, String.valueOf(checkpoint.getOffset()));
+        properties.setProperty(FINGERPRINT, String.valueOf(checkpoint.getFingerprint()));
+        properties.setProperty(LAST_TIMESTAMP, String.valueOf(checkpoint.getLastTimestamp()));
+        for (final Map.Entry<String, String> aggregate : checkpoint.getAggregates().entrySet()) {
+            properties.setProperty(AGGREGATE_PREFIX + aggregate.getKey(), aggregate.getValue());
+        }
+
+        if (!checkpointDir.isDirectory() && !checkpointDir.mkdirs()) {
+            throw new IOException("Unable to create the checkpoint directory " + checkpointDir);
+        }
+        final File file = getFile(collectorName);
+        final File tempFile = new File(checkpointDir, file.getName() + ".tmp");
+        final FileOutputStream output = new FileOutputStream(tempFile);
+        try {
+            properties.store(new BufferedOutputStream(output), collectorName);
+            output.getFD().sync();
+        } finally {
+            output.close();
+        }
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Unable to rename " + tempFile + " to " + file);
+        }
+    }
+
+    /**
+     * Remove the checkpoint of a collector.
+     *
+     * @param collectorName unique name of the collector
+     */
+    public synchronized void remove(final String collectorName) {
+        getFile(collectorName).delete();
+    }
+
+    private File getFile(final String collectorName) {
+        return new File(checkpointDir, collectorName + SUFFIX);
+    }
+
+    private static long getLong(final Properties properties, final String name) {
+        final String value = properties.getProperty(name);
+        if (value == null) {
+            throw new NumberFormatException(name + " is missing");
+        }
+        return Long.parseLong(value);
+    }
+}
@@ -0,0 +1,82 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.env;
+
+import java.io.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Numeric settings of the plugins, read from the VARIABLE=value lines of
+ * global.env so that the scripts and the plugins share one configuration.
+ *
+ * Another file can be given by the assuremonitoring.global.env system
+ * property, e.g. to run the benchmarks without the read budget.
+ */
+public final class PluginSettings {
+    public static final String GLOBAL_ENV_PROPERTY = "assuremonitoring.global.env";
+    public static final File GLOBAL_ENV_FILE = new File(System.getProperty(GLOBAL_ENV_PROPERTY,
+            "/opt/assuremonitoring-plugins/ericsson/etc/global.env"));
+    private static final Pattern SETTING_PATTERN = Pattern.compile("^\\s*(\\w+)=\"?(\\d+)\"?\\s*$");
+    private static final Log log = LogFactory.getLog(PluginSettings.class);
+
+    private PluginSettings() {
+    }
+
+    /**
+     * Read a positive numeric setting of global.env.
+     *
+     * @param variable name of the setting
+     * @param defaultValue if the file or the setting is missing
+     * @return long
+     */
+    public static long getLong(final String variable, final long defaultValue) {
+        return getLong(GLOBAL_ENV_FILE, variable, defaultValue);
+    }
+
+    /**
+     * Read a positive numeric setting of a shell environment file.
+     *
+     * @param envFile e.g. global.env
+     * @param variable name of the setting
+     * @param defaultValue if the file or the setting is missing
+     * @return long
+     */
+    public static long getLong(final File envFile, final String variable, final long defaultValue) {
+        if (!envFile.isFile()) {
+            return defaultValue;
+        }
+        try {
+            final BufferedReader reader = new BufferedReader(new FileReader(envFile));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final Matcher setting = SETTING_PATTERN.matcher(line);
+                    if (setting.find() && variable.equals(setting.group(1))) {
+                        final long value = Long.parseLong(setting.group(2));
+                        return (value > 0 ? value : defaultValue);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read " + envFile + ": " + e.getMessage());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid " + variable + " in " + envFile);
+        }
+        return defaultValue;
+    }
+}
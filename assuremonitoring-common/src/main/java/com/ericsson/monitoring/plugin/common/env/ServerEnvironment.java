@@ -0,0 +1,189 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.env;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * ENIQ installation facts shared by the detectors and measurement plugins:
+ * the server type, the storage type and the installed mediation features.
+ *
+ * Each fact is read once and cached with the modification time of the file
+ * or directory it comes from, so later lookups only cost a stat until the
+ * installation changes.
+ */
+public class ServerEnvironment {
+    public static final File CONFIG_DIR = new File("/eniq/installation/config");
+    public static final File SERVER_TYPE_FILE = new File(CONFIG_DIR, "installed_server_type");
+    public static final File SUNOS_INI_FILE = new File(CONFIG_DIR, "SunOS.ini");
+    public static final File SAN_DETAILS_FILE = new File(CONFIG_DIR, "san_details");
+    public static final File MEDIATION_DIR = new File("/eniq/mediation_inter");
+    private static final Pattern STORAGE_TYPE_PATTERN = Pattern.compile("STORAGE_TYPE=(.*)$");
+    private static final ServerEnvironment INSTANCE = new ServerEnvironment(SERVER_TYPE_FILE, SUNOS_INI_FILE,
+            SAN_DETAILS_FILE);
+
+    private final Log log = LogFactory.getLog(ServerEnvironment.class);
+    private final File serverTypeFile;
+    private final File sunOsIniFile;
+    private final File sanDetailsFile;
+    private final Map<File, CachedValue<String>> serverTypes = new HashMap<File, CachedValue<String>>();
+    private final Map<File, CachedValue<String>> storageTypes = new HashMap<File, CachedValue<String>>();
+    private final Map<File, CachedValue<Boolean>> features = new HashMap<File, CachedValue<Boolean>>();
+
+    public ServerEnvironment(final File serverTypeFile, final File sunOsIniFile, final File sanDetailsFile) {
+        this.serverTypeFile = serverTypeFile;
+        this.sunOsIniFile = sunOsIniFile;
+        this.sanDetailsFile = sanDetailsFile;
+    }
+
+    /**
+     * Get the environment shared by all plugins.
+     *
+     * @return ServerEnvironment
+     */
+    public static ServerEnvironment getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the installed server type, e.g. "eniq_stats".
+     *
+     * @return server type, null if installed_server_type cannot be read
+     */
+    public String getServerType() {
+        return getServerType(serverTypeFile);
+    }
+
+    /**
+     * Get the server type from the first line of the given file.
+     *
+     * @param file installed_server_type file
+     * @return server type, null if the file cannot be read
+     */
+    public synchronized String getServerType(final File file) {
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        CachedValue<String> serverType = serverTypes.get(file);
+        if (serverType == null || !serverType.isValid(lastModified, length)) {
+            serverType = new CachedValue<String>(lastModified, length, readFirstLine(file));
+            serverTypes.put(file, serverType);
+        }
+        return serverType.value;
+    }
+
+    /**
+     * Get the STORAGE_TYPE of SunOS.ini, or of san_details if there is no
+     * SunOS.ini, e.g. "raw" or "zfs".
+     *
+     * @return storage type, null if not configured
+     */
+    public synchronized String getStorageType() {
+        final File file = (sunOsIniFile.isFile() ? sunOsIniFile : sanDetailsFile);
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        CachedValue<String> storageType = storageTypes.get(file);
+        if (storageType == null || !storageType.isValid(lastModified, length)) {
+            storageType = new CachedValue<String>(lastModified, length, readStorageType(file));
+            storageTypes.put(file, storageType);
+        }
+        return storageType.value;
+    }
+
+    /**
+     * Check whether a feature is installed, i.e. its install directory exists.
+     * The result is kept until the parent directory is modified.
+     *
+     * @param featureDir install directory of the feature, e.g. /eniq/mediation_inter/M_E_SGEH
+     * @return true if the directory exists
+     */
+    public synchronized boolean isFeatureInstalled(final File featureDir) {
+        final File parentDir = featureDir.getParentFile();
+        if (parentDir == null) {
+            return featureDir.isDirectory();
+        }
+
+        final long lastModified = parentDir.lastModified();
+        CachedValue<Boolean> installed = features.get(featureDir);
+        if (installed == null || !installed.isValid(lastModified, 0)) {
+            installed = new CachedValue<Boolean>(lastModified, 0, featureDir.isDirectory());
+            features.put(featureDir, installed);
+        }
+        return installed.value;
+    }
+
+    private String readFirstLine(final File file) {
+        if (!file.isFile()) {
+            log.error("Unable to find file " + file);
+            return null;
+        }
+        try {
+            final BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                return reader.readLine();
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            log.error("Exception processing " + file, e);
+            return null;
+        }
+    }
+
+    private String readStorageType(final File file) {
+        if (!file.isFile()) {
+            log.error(sunOsIniFile + " and " + sanDetailsFile + " are not available");
+            return null;
+        }
+        try {
+            final BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final Matcher storageType = STORAGE_TYPE_PATTERN.matcher(line);
+                    if (storageType.find()) {
+                        return storageType.group(1);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            log.error("Exception processing " + file, e);
+            return null;
+        }
+        log.error("Could not read STORAGE_TYPE param from " + file);
+        return null;
+    }
+
+    private static class CachedValue<T> {
+        private final long lastModified;
+        private final long length;
+        private final T value;
+
+        CachedValue(final long lastModified, final long length, final T value) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.value = value;
+        }
+
+        boolean isValid(final long currentLastModified, final long currentLength) {
+            return lastModified == currentLastModified && length == currentLength;
+        }
+    }
+}
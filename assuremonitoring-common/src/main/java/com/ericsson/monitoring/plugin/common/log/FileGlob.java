@@ -0,0 +1,82 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+/**
+ * Log file named by a glob, such as "/eniq/log/sw_log/engine/engine-*.log",
+ * the wildcards "*" and "?" being allowed in the file name only. The log is
+ * the most recently modified file matching the glob, so a log written to a
+ * new file every day is followed from one file to the next.
+ */
+public class FileGlob {
+    private final File directory;
+    private final String glob;
+    private final Pattern namePattern;
+
+    /**
+     * @param glob path of the log file, with wildcards in the file name
+     */
+    public FileGlob(final String glob) {
+        this.glob = glob;
+        final File file = new File(glob);
+        directory = file.getAbsoluteFile().getParentFile();
+        if (file.getName().indexOf('*') < 0 && file.getName().indexOf('?') < 0) {
+            namePattern = null;
+            return;
+        }
+
+        final StringBuilder regex = new StringBuilder();
+        for (final String literal : file.getName().split("((?<=[*?])|(?=[*?]))")) {
+            if ("*".equals(literal)) {
+                regex.append(".*");
+            } else if ("?".equals(literal)) {
+                regex.append('.');
+            } else if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal));
+            }
+        }
+        namePattern = Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Get the log file.
+     *
+     * @return the most recently modified file matching the glob, the glob
+     *         itself if it has no wildcard, null if no file matches
+     */
+    public File getLatestFile() {
+        if (namePattern == null) {
+            return new File(glob);
+        }
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return null;
+        }
+
+        File latest = null;
+        for (final File file : files) {
+            if (namePattern.matcher(file.getName()).matches() && file.isFile()
+                    && (latest == null || file.lastModified() > latest.lastModified())) {
+                latest = file;
+            }
+        }
+        return latest;
+    }
+
+    @Override
+    public String toString() {
+        return glob;
+    }
+}
@@ -0,0 +1,102 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import java.io.File;
+
+import org.hyperic.sigar.FileInfo;
+import org.hyperic.sigar.Sigar;
+import org.hyperic.sigar.SigarException;
+
+/**
+ * Device, inode and size of a file, taken to tell whether a log file read
+ * incrementally is still the same file, or was rotated or truncated since.
+ *
+ * The device and inode come from Sigar. Where Sigar is not available they
+ * are unknown, and only truncation can be detected.
+ */
+public final class FileIdentity {
+    public static final long UNKNOWN = -1;
+    private static Sigar sigar;
+    private static boolean sigarUnavailable;
+
+    private final long device;
+    private final long inode;
+    private final long size;
+
+    public FileIdentity(final long device, final long inode, final long size) {
+        this.device = device;
+        this.inode = inode;
+        this.size = size;
+    }
+
+    /**
+     * Get the current identity of a file.
+     *
+     * @param file to identify
+     * @return FileIdentity, with a size of 0 if the file does not exist
+     */
+    public static FileIdentity of(final File file) {
+        final FileInfo info = getFileInfo(file);
+        if (info == null) {
+            return new FileIdentity(UNKNOWN, UNKNOWN, file.length());
+        }
+        return new FileIdentity(info.getDevice(), info.getInode(), info.getSize());
+    }
+
+    private static synchronized FileInfo getFileInfo(final File file) {
+        if (sigarUnavailable || !file.exists()) {
+            return null;
+        }
+        try {
+            if (sigar == null) {
+                sigar = new Sigar();
+            }
+            return sigar.getFileInfo(file.getAbsolutePath());
+        } catch (SigarException e) {
+            return null;
+        } catch (LinkageError e) {
+            // The native library is not loaded, e.g. outside the agent
+            sigarUnavailable = true;
+            return null;
+        }
+    }
+
+    public long getDevice() {
+        return device;
+    }
+
+    public long getInode() {
+        return inode;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Check whether this identity, taken after an earlier one, is still the
+     * file the earlier one was taken of, and was not truncated since.
+     *
+     * @param earlier identity of the file
+     * @return false if the file was replaced or truncated
+     */
+    public boolean isContinuationOf(final FileIdentity earlier) {
+        if (earlier == null) {
+            return false;
+        }
+        if (inode != UNKNOWN && earlier.inode != UNKNOWN && (inode != earlier.inode || device != earlier.device)) {
+            return false;
+        }
+        return size >= earlier.size;
+    }
+}
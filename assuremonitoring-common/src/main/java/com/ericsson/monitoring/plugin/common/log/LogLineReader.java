@@ -0,0 +1,127 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Reads the complete lines of a log file from a byte offset.
+ *
+ * Lines are handed over as ranges of a reused byte buffer, without the line
+ * terminator, so callers only allocate for the lines they are interested in.
+ * An incomplete last line is left for the next read. A line longer than
+ * {@link #MAX_LINE_LENGTH} bytes, e.g. binary data written to the log, is
+ * skipped up to its end instead of being buffered; when the read stops
+ * inside such a line, its remainder is handed over as a line by the next read.
+ */
+public final class LogLineReader {
+    static final int MAX_LINE_LENGTH = 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final Log LOG = LogFactory.getLog(LogLineReader.class);
+
+    /**
+     * Callback receiving each complete line.
+     */
+    public interface LineHandler {
+        void handleLine(byte[] buffer, int start, int length);
+    }
+
+    private LogLineReader() {
+    }
+
+    /**
+     * Read every complete line of the file between the given positions.
+     *
+     * @param file to read
+     * @param position byte offset of the first line to read
+     * @param limit byte offset to stop at, Long.MAX_VALUE to read to the end
+     * @param handler receiving the lines
+     * @return position after the last complete line read
+     * @throws IOException if the file cannot be read
+     */
+    public static long read(final File file, final long position, final long limit, final LineHandler handler)
+            throws IOException {
+        return read(file, position, limit, handler, null);
+    }
+
+    /**
+     * Read every complete line of the file between the given positions,
+     * within the budget of the throttle.
+     *
+     * @param file to read
+     * @param position byte offset of the first line to read
+     * @param limit byte offset to stop at, Long.MAX_VALUE to read to the end
+     * @param handler receiving the lines
+     * @param throttle budget of the read, null not to limit it
+     * @return position after the last complete line read
+     * @throws IOException if the file cannot be read
+     */
+    public static long read(final File file, final long position, final long limit, final LineHandler handler,
+            final ReadThrottle throttle) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            input.seek(position);
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            long consumed = position;
+            int filled = 0;
+            int scanned = 0;
+            boolean skipping = false;
+            int read;
+
+            while (consumed + filled < limit
+                    && (read = input.read(buffer, filled, (int) Math.min(buffer.length - filled, limit - consumed - filled))) > 0) {
+                filled += read;
+                if (throttle != null) {
+                    throttle.onRead(read);
+                }
+                int lineStart = 0;
+                for (int i = scanned; i < filled; i++) {
+                    if (buffer[i] == '\n') {
+                        final int end = (i > lineStart && buffer[i - 1] == '\r' ? i - 1 : i);
+                        if (!skipping) {
+                            handler.handleLine(buffer, lineStart, end - lineStart);
+                        }
+                        skipping = false;
+                        lineStart = i + 1;
+                    }
+                }
+                consumed += lineStart;
+
+                // Keep the incomplete last line for the next read
+                System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+                filled -= lineStart;
+                scanned = filled;
+                if (filled == buffer.length && buffer.length < MAX_LINE_LENGTH) {
+                    buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_LINE_LENGTH));
+                } else if (filled == buffer.length) {
+                    if (!skipping) {
+                        LOG.warn("Skipping a line longer than " + MAX_LINE_LENGTH + " bytes at offset " + consumed
+                                + " of " + file);
+                    }
+                    skipping = true;
+                    consumed += filled;
+                    filled = 0;
+                    scanned = 0;
+                }
+            }
+            return consumed;
+        } finally {
+            input.close();
+        }
+    }
+}
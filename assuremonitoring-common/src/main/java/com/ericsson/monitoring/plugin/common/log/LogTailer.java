@@ -0,0 +1,335 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Follows a log file across its rotations, so that each line is handed over
+ * exactly once, in the order it was written.
+ *
+ * The tailer keeps the {@link FileIdentity} of the log, the offset of the
+ * first line not read yet and a fingerprint of the bytes before the offset.
+ * Before each read it checks whether the log was rotated since: a new inode,
+ * a size below the offset, or other bytes before the offset. If so the
+ * rotated file is looked up among the siblings named after the log, by its
+ * inode when the log was renamed, or by its fingerprint when the log was
+ * copied and truncated (copytruncate). The rest of that file is read from the
+ * offset, then any newer rotated file, before the new log is read from its
+ * start.
+ *
+ * An incomplete last line of a rotated file is never handed over, as it is
+ * never terminated. Compressed rotated files are ignored.
+ *
+ * A tailer is not thread-safe; it is meant to be used under the lock of its
+ * collector.
+ */
+public class LogTailer {
+    public static final long NO_FINGERPRINT = -1;
+    private static final int FINGERPRINT_LENGTH = 128;
+    private static final String[] COMPRESSED_SUFFIXES = { ".gz", ".Z", ".bz2", ".xz", ".zip" };
+
+    private final Log log = LogFactory.getLog(LogTailer.class);
+    private final File logFile;
+    private FileIdentity identity;
+    private long offset = -1;
+    private long fingerprint = NO_FINGERPRINT;
+    private boolean behind;
+
+    /**
+     * @param logFile to follow
+     */
+    public LogTailer(final File logFile) {
+        this.logFile = logFile;
+    }
+
+    public File getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * @return identity of the log when it was last read, null before
+     */
+    public FileIdentity getIdentity() {
+        return identity;
+    }
+
+    /**
+     * @return byte offset of the first line not read yet, -1 if not positioned
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return fingerprint of the bytes before the offset, {@link #NO_FINGERPRINT} if unknown
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return whether the tailer has a position to read on from
+     */
+    public boolean isPositioned() {
+        return offset >= 0;
+    }
+
+    /**
+     * Restore a position, e.g. from a checkpoint.
+     *
+     * @param positionIdentity identity of the log when the position was taken
+     * @param positionOffset byte offset of the first line not read yet
+     * @param positionFingerprint of the bytes before the offset, {@link #NO_FINGERPRINT} if unknown
+     */
+    public void setPosition(final FileIdentity positionIdentity, final long positionOffset,
+            final long positionFingerprint) {
+        this.identity = positionIdentity;
+        this.offset = positionOffset;
+        this.fingerprint = positionFingerprint;
+    }
+
+    /**
+     * Position the tailer at an offset of the current log, e.g. at the first
+     * line of a period found by {@link TimeOrderedLogSeeker}.
+     *
+     * @param seekOffset byte offset of a line of the current log
+     * @throws IOException if the log cannot be read
+     */
+    public void seek(final long seekOffset) throws IOException {
+        identity = FileIdentity.of(logFile);
+        offset = seekOffset;
+        fingerprint = getFingerprint(logFile, seekOffset);
+    }
+
+    /**
+     * Check whether the log was rotated or truncated since the position was
+     * taken.
+     *
+     * @return false if not positioned
+     * @throws IOException if the log cannot be read
+     */
+    public boolean isRotated() throws IOException {
+        return offset > 0 && isRotated(FileIdentity.of(logFile));
+    }
+
+    /**
+     * Check whether the lines after the position can still be read, from the
+     * log or from its rotated file.
+     *
+     * @return false if not positioned, or if the log was rotated and the rotated file is gone
+     * @throws IOException if the log cannot be read
+     */
+    public boolean canFollow() throws IOException {
+        return isPositioned() && (!isRotated() || findRotatedFile() != null);
+    }
+
+    /**
+     * Hand over the complete lines written since the previous read, finishing
+     * the rotated file first if the log was rotated since. A tailer not
+     * positioned reads the log from its start.
+     *
+     * @param handler receiving the lines
+     * @param throttle budget of the read, null not to limit it
+     * @return number of files read
+     * @throws IOException if a file cannot be read
+     */
+    public int read(final LogLineReader.LineHandler handler, final ReadThrottle throttle) throws IOException {
+        return read(handler, throttle, Long.MAX_VALUE);
+    }
+
+    /**
+     * Hand over the complete lines written since the previous read, as
+     * {@link #read(LogLineReader.LineHandler, ReadThrottle)}, but stop after
+     * the given bytes of the log, so that a long read can be spread over
+     * several calls. The rest of a rotated file is always read to its end.
+     *
+     * @param handler receiving the lines
+     * @param throttle budget of the read, null not to limit it
+     * @param maxBytes of the log to read, Long.MAX_VALUE to read to its end
+     * @return number of files read
+     * @throws IOException if a file cannot be read
+     */
+    public int read(final LogLineReader.LineHandler handler, final ReadThrottle throttle, final long maxBytes)
+            throws IOException {
+        // Taken before the read, so a rotation during the read is detected on the next read
+        final FileIdentity currentIdentity = FileIdentity.of(logFile);
+        int filesRead = 0;
+        behind = false;
+        if (offset < 0) {
+            offset = 0;
+        } else if (offset > 0 && isRotated(currentIdentity)) {
+            filesRead += readRotatedFiles(handler, throttle);
+            offset = 0;
+        }
+        identity = currentIdentity;
+        if (!logFile.isFile()) {
+            fingerprint = NO_FINGERPRINT;
+            return filesRead;
+        }
+
+        final long limit = (maxBytes > Long.MAX_VALUE - offset ? Long.MAX_VALUE : offset + maxBytes);
+        behind = limit < currentIdentity.getSize();
+        offset = LogLineReader.read(logFile, offset, limit, handler, throttle);
+        fingerprint = getFingerprint(logFile, offset);
+        return filesRead + 1;
+    }
+
+    /**
+     * Check whether the last read stopped at its byte limit, before the end
+     * the log had when the read started.
+     *
+     * @return true if more lines are left to read
+     */
+    public boolean isBehind() {
+        return behind;
+    }
+
+    private boolean isRotated(final FileIdentity currentIdentity) throws IOException {
+        if (currentIdentity.getSize() < offset || !currentIdentity.isContinuationOf(identity)) {
+            return true;
+        }
+        return fingerprint != NO_FINGERPRINT && getFingerprint(logFile, offset) != fingerprint;
+    }
+
+    /**
+     * Read the rest of the rotated file of the log, then the files rotated
+     * after it, oldest first.
+     */
+    private int readRotatedFiles(final LogLineReader.LineHandler handler, final ReadThrottle throttle)
+            throws IOException {
+        final File rotatedFile = findRotatedFile();
+        if (rotatedFile == null) {
+            log.warn(logFile + " was rotated or truncated, but its rotated file was not found: "
+                    + "the lines written after offset " + offset + " before the rotation are lost");
+            return 0;
+        }
+
+        LogLineReader.read(rotatedFile, offset, Long.MAX_VALUE, handler, throttle);
+        int filesRead = 1;
+        final List<File> newerFiles = new ArrayList<File>();
+        for (final File sibling : getRotatedFiles()) {
+            if (sibling.lastModified() > rotatedFile.lastModified()) {
+                newerFiles.add(sibling);
+            }
+        }
+        Collections.reverse(newerFiles);
+        for (final File newerFile : newerFiles) {
+            LogLineReader.read(newerFile, 0, Long.MAX_VALUE, handler, throttle);
+            filesRead++;
+        }
+        return filesRead;
+    }
+
+    /**
+     * Find the file the log was rotated to: the same inode if the log was
+     * renamed, otherwise a copy with the same bytes before the offset.
+     *
+     * @return rotated file, null if not found
+     */
+    private File findRotatedFile() throws IOException {
+        final List<File> rotatedFiles = getRotatedFiles();
+        if (identity != null && identity.getInode() != FileIdentity.UNKNOWN) {
+            for (final File rotatedFile : rotatedFiles) {
+                final FileIdentity rotatedIdentity = FileIdentity.of(rotatedFile);
+                if (rotatedIdentity.getInode() == identity.getInode()
+                        && rotatedIdentity.getDevice() == identity.getDevice()) {
+                    return (rotatedIdentity.getSize() >= offset ? rotatedFile : null);
+                }
+            }
+        }
+        if (fingerprint == NO_FINGERPRINT) {
+            return null;
+        }
+        for (final File rotatedFile : rotatedFiles) {
+            if (rotatedFile.length() >= offset && getFingerprint(rotatedFile, offset) == fingerprint) {
+                return rotatedFile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the uncompressed files named after the log, newest first.
+     */
+    private List<File> getRotatedFiles() {
+        final List<File> rotatedFiles = new ArrayList<File>();
+        final File[] siblings = logFile.getAbsoluteFile().getParentFile().listFiles();
+        if (siblings == null) {
+            return rotatedFiles;
+        }
+
+        final String rotatedPrefix = logFile.getName() + ".";
+        for (final File sibling : siblings) {
+            if (sibling.getName().startsWith(rotatedPrefix) && sibling.isFile() && !isCompressed(sibling)) {
+                rotatedFiles.add(sibling);
+            }
+        }
+        Collections.sort(rotatedFiles, new Comparator<File>() {
+            @Override
+            public int compare(final File first, final File second) {
+                final long diff = second.lastModified() - first.lastModified();
+                return (diff < 0 ? -1 : (diff > 0 ? 1 : 0));
+            }
+        });
+        return rotatedFiles;
+    }
+
+    /**
+     * Check whether a rotated file was compressed, and so cannot be read as
+     * lines.
+     *
+     * @param file rotated file
+     * @return true if the name has the suffix of a compressed file
+     */
+    public static boolean isCompressed(final File file) {
+        for (final String suffix : COMPRESSED_SUFFIXES) {
+            if (file.getName().endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the CRC32 of the bytes before an offset of a file.
+     *
+     * @return fingerprint, {@link #NO_FINGERPRINT} at the start of the file
+     */
+    static long getFingerprint(final File file, final long position) throws IOException {
+        if (position <= 0 || !file.isFile()) {
+            return NO_FINGERPRINT;
+        }
+        final int length = (int) Math.min(position, FINGERPRINT_LENGTH);
+        final byte[] bytes = new byte[length];
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            if (input.length() < position) {
+                return NO_FINGERPRINT;
+            }
+            input.seek(position - length);
+            input.readFully(bytes);
+        } finally {
+            input.close();
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+}
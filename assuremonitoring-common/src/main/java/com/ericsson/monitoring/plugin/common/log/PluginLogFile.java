@@ -0,0 +1,176 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ericsson.monitoring.plugin.common.env.PluginSettings;
+
+/**
+ * Log of the collections of a plugin under /opt/assuremonitoring-plugins/log,
+ * kept the same way as the script logs of LogUtil.pm.
+ *
+ * Messages are buffered and written in batches, once PLUGIN_LOG_BATCH_LINES
+ * messages are buffered or the oldest one has waited for a minute. The log is
+ * rotated before a batch is written, when it is over PLUGIN_LOG_MAX_BYTES or
+ * was last written on a previous day, keeping PLUGIN_LOG_MAX_FILES rotated files.
+ * The settings are read from global.env.
+ *
+ * The buffered messages are also written every minute by a timer of their
+ * own, rather than by the CollectionScheduler, so the flushes neither take a
+ * collection thread nor count as collections.
+ */
+public class PluginLogFile {
+    public static final File LOG_DIR = new File("/opt/assuremonitoring-plugins/log");
+    private static final long FLUSH_INTERVAL_MILLIS = 60L * 1000L;
+    private static final Map<String, PluginLogFile> INSTANCES = new HashMap<String, PluginLogFile>();
+    private static final Timer FLUSH_TIMER = new Timer("PluginLogFile", true);
+
+    private final Log log = LogFactory.getLog(PluginLogFile.class);
+    private final File logFile;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final int batchLines;
+    private final List<String> buffer = new ArrayList<String>();
+    private long firstBufferedMillis;
+
+    /**
+     * @param logFile to write to
+     * @param maxBytes size above which the log is rotated
+     * @param maxFiles number of rotated log files kept
+     * @param batchLines messages buffered before they are written
+     */
+    public PluginLogFile(final File logFile, final long maxBytes, final int maxFiles, final int batchLines) {
+        this.logFile = logFile;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.batchLines = batchLines;
+    }
+
+    /**
+     * Get the log shared by all plugins under the given name, written in the
+     * background at least once a minute.
+     *
+     * @param name of the log, e.g. the server type of the plugin
+     * @return PluginLogFile
+     */
+    public static PluginLogFile getInstance(final String name) {
+        final String fileName = name.replaceAll("[^\\w.\\-]", "_") + ".log";
+        synchronized (INSTANCES) {
+            PluginLogFile logFile = INSTANCES.get(fileName);
+            if (logFile == null) {
+                final PluginLogFile newLogFile = new PluginLogFile(new File(LOG_DIR, fileName),
+                        PluginSettings.getLong("PLUGIN_LOG_MAX_BYTES", 1048576),
+                        (int) PluginSettings.getLong("PLUGIN_LOG_MAX_FILES", 10),
+                        (int) PluginSettings.getLong("PLUGIN_LOG_BATCH_LINES", 50));
+                FLUSH_TIMER.schedule(new TimerTask() {
+                    @Override
+                    public void run() {
+                        try {
+                            newLogFile.flush();
+                        } catch (RuntimeException e) {
+                            // An exception would cancel the timer of every log
+                            newLogFile.log.warn("Unable to flush " + newLogFile.logFile + ": " + e.getMessage());
+                        }
+                    }
+                }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS);
+                logFile = newLogFile;
+                INSTANCES.put(fileName, logFile);
+            }
+            return logFile;
+        }
+    }
+
+    public File getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * Buffer a message, writing the batch if it is complete.
+     *
+     * @param message without line terminator
+     */
+    public synchronized void log(final String message) {
+        final long now = System.currentTimeMillis();
+        if (buffer.isEmpty()) {
+            firstBufferedMillis = now;
+        }
+        buffer.add(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(now)) + " :" + message + "\n");
+        if (buffer.size() >= batchLines || now - firstBufferedMillis >= FLUSH_INTERVAL_MILLIS) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the buffered messages, rotating the log first if it is due. The
+     * messages are dropped if the log cannot be written.
+     */
+    public synchronized void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (isRotationDue(System.currentTimeMillis())) {
+                rotate();
+            }
+            logFile.getParentFile().mkdirs();
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, true),
+                    "ISO-8859-1"));
+            try {
+                for (final String line : buffer) {
+                    writer.write(line);
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            log.warn("Unable to write " + buffer.size() + " messages to " + logFile + ": " + e.getMessage());
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Check whether the log is over its size or was last written on a
+     * previous day.
+     */
+    boolean isRotationDue(final long nowMillis) {
+        if (!logFile.isFile()) {
+            return false;
+        }
+        if (logFile.length() >= maxBytes) {
+            return true;
+        }
+        final SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
+        return !dayFormat.format(new Date(logFile.lastModified())).equals(dayFormat.format(new Date(nowMillis)));
+    }
+
+    /**
+     * Shift the rotated logs by one, as RotateLogs of LogUtil.pm does.
+     */
+    private void rotate() {
+        for (int y = maxFiles - 1; y >= 1; y--) {
+            final File previous = new File(logFile.getPath() + "." + (y - 1));
+            if (previous.isFile() && !previous.renameTo(new File(logFile.getPath() + "." + y))) {
+                log.warn("Unable to rotate " + previous);
+            }
+        }
+        if (!logFile.renameTo(new File(logFile.getPath() + ".0"))) {
+            log.warn("Unable to rotate " + logFile);
+        }
+    }
+}
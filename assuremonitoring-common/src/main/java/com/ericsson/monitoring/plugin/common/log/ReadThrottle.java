@@ -0,0 +1,212 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.hyperic.sigar.FileSystem;
+import org.hyperic.sigar.Sigar;
+import org.hyperic.sigar.SigarException;
+
+import com.ericsson.monitoring.plugin.common.env.PluginSettings;
+
+/**
+ * Budget of one log scan, so that the monitoring never competes with the
+ * mediation and the engine writing to the same disk.
+ *
+ * The scan is slowed down to a read bandwidth and to a share of one CPU, and
+ * backs off while the disk queue of the file system of the log is longer
+ * than a threshold, sampled with Sigar. The bytes read and the time the scan
+ * was held back are counted.
+ *
+ * The budget is set in global.env by LOG_READ_BYTES_PER_SECOND,
+ * LOG_READ_CPU_PERCENT and LOG_READ_DISK_QUEUE.
+ */
+public class ReadThrottle {
+    private static final long BYTES_PER_SECOND = PluginSettings.getLong("LOG_READ_BYTES_PER_SECOND",
+            8L * 1024L * 1024L);
+    private static final long CPU_PERCENT = PluginSettings.getLong("LOG_READ_CPU_PERCENT", 25);
+    private static final long DISK_QUEUE = PluginSettings.getLong("LOG_READ_DISK_QUEUE", 2);
+    private static final long DISK_SAMPLE_INTERVAL_MILLIS = 1000L;
+    private static final long MIN_BACKOFF_MILLIS = 100L;
+    private static final long MAX_BACKOFF_MILLIS = 2000L;
+    private static final long MAX_PAUSE_MILLIS = 1000L;
+    private static Sigar sigar;
+    private static boolean sigarUnavailable;
+
+    private final long bytesPerSecond;
+    private final double cpuShare;
+    private final double diskQueueThreshold;
+    private final String mountPoint;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final long startNanos;
+    private final long startCpuNanos;
+    private double tokens;
+    private long refillNanos;
+    private long lastDiskSampleMillis;
+    private long backoffMillis = MIN_BACKOFF_MILLIS;
+    private long bytesRead;
+    private long throttledMillis;
+
+    /**
+     * @param bytesPerSecond read bandwidth
+     * @param cpuShare share of one CPU, 1.0 not to limit the CPU
+     * @param diskQueueThreshold disk queue above which the scan backs off
+     * @param mountPoint of the file system of the log, null not to sample the disk
+     */
+    public ReadThrottle(final long bytesPerSecond, final double cpuShare, final double diskQueueThreshold,
+            final String mountPoint) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.cpuShare = cpuShare;
+        this.diskQueueThreshold = diskQueueThreshold;
+        this.mountPoint = mountPoint;
+        this.startNanos = System.nanoTime();
+        this.startCpuNanos = getCpuNanos();
+        this.tokens = bytesPerSecond;
+        this.refillNanos = startNanos;
+    }
+
+    /**
+     * Create the budget of a scan of the given log, as set in global.env.
+     *
+     * @param logFile to scan
+     * @return ReadThrottle
+     */
+    public static ReadThrottle forFile(final File logFile) {
+        return new ReadThrottle(BYTES_PER_SECOND, Math.min(CPU_PERCENT, 100) / 100.0, DISK_QUEUE,
+                getMountPoint(logFile));
+    }
+
+    /**
+     * Account for bytes read, and pause the scan if it is over its budget.
+     *
+     * @param count bytes read
+     * @throws InterruptedIOException if the thread is interrupted while paused
+     */
+    public void onRead(final int count) throws InterruptedIOException {
+        bytesRead += count;
+
+        final long nowNanos = System.nanoTime();
+        tokens = Math.min(bytesPerSecond, tokens + (nowNanos - refillNanos) / 1e9 * bytesPerSecond);
+        refillNanos = nowNanos;
+        tokens -= count;
+        long pauseMillis = (tokens < 0 ? (long) (-tokens * 1000.0 / bytesPerSecond) : 0);
+
+        final long cpuNanos = getCpuNanos() - startCpuNanos;
+        if (cpuShare < 1.0 && cpuNanos > 0) {
+            final long cpuPauseNanos = (long) (cpuNanos / cpuShare) - (nowNanos - startNanos);
+            pauseMillis = Math.max(pauseMillis, cpuPauseNanos / 1000000L);
+        }
+
+        pauseMillis = Math.max(pauseMillis, getDiskBackoff());
+        if (pauseMillis > 0) {
+            pause(Math.min(pauseMillis, MAX_PAUSE_MILLIS));
+        }
+    }
+
+    /**
+     * Get the bytes read by the scan.
+     *
+     * @return long
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Get the time the scan was held back by its budget.
+     *
+     * @return milliseconds
+     */
+    public long getThrottledMillis() {
+        return throttledMillis;
+    }
+
+    private void pause(final long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttling the log scan");
+        }
+        throttledMillis += millis;
+    }
+
+    /**
+     * Sample the disk queue at most once a second, and back off longer each
+     * time it is still over the threshold.
+     */
+    private long getDiskBackoff() {
+        final long nowMillis = System.currentTimeMillis();
+        if (mountPoint == null || nowMillis - lastDiskSampleMillis < DISK_SAMPLE_INTERVAL_MILLIS) {
+            return 0;
+        }
+        lastDiskSampleMillis = nowMillis;
+
+        final double diskQueue = getDiskQueue(mountPoint);
+        if (diskQueue <= diskQueueThreshold) {
+            backoffMillis = MIN_BACKOFF_MILLIS;
+            return 0;
+        }
+        final long backoff = backoffMillis;
+        backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+        return backoff;
+    }
+
+    private long getCpuNanos() {
+        try {
+            return (threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0);
+        } catch (UnsupportedOperationException e) {
+            return 0;
+        }
+    }
+
+    private static synchronized String getMountPoint(final File file) {
+        final Sigar currentSigar = getSigar();
+        if (currentSigar == null) {
+            return null;
+        }
+        try {
+            final FileSystem fileSystem = currentSigar.getFileSystemMap().getMountPoint(file.getAbsolutePath());
+            return (fileSystem == null ? null : fileSystem.getDirName());
+        } catch (SigarException e) {
+            return null;
+        }
+    }
+
+    private static synchronized double getDiskQueue(final String mountPoint) {
+        final Sigar currentSigar = getSigar();
+        if (currentSigar == null) {
+            return 0;
+        }
+        try {
+            return currentSigar.getFileSystemUsage(mountPoint).getDiskQueue();
+        } catch (SigarException e) {
+            return 0;
+        }
+    }
+
+    private static Sigar getSigar() {
+        if (sigar == null && !sigarUnavailable) {
+            try {
+                sigar = new Sigar();
+            } catch (LinkageError e) {
+                // The native library is not loaded, e.g. outside the agent
+                sigarUnavailable = true;
+            }
+        }
+        return sigar;
+    }
+}
@@ -0,0 +1,152 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+/**
+ * Reads the lines of a log file from the end towards the beginning.
+ *
+ * The file is read backwards in fixed-size blocks, so finding the most recent
+ * occurrence of an event costs in proportion to how far back it is, and the
+ * memory used is one block plus the longest line, whatever the file size.
+ * The read can also stop at a start position, e.g. the end of the file when
+ * it was last read, so that only the lines appended since are read.
+ */
+public class ReverseLineReader implements Closeable {
+    static final int DEFAULT_BLOCK_SIZE = 8 * 1024;
+    private static final Charset LOG_CHARSET = Charset.forName("ISO-8859-1");
+
+    private final RandomAccessFile input;
+    private final byte[] block;
+    private final long startPosition;
+    private final long endPosition;
+    private long blockStart;
+    private int blockIndex;
+    private byte[] line = new byte[256];
+    private int lineStart = line.length;
+    private boolean lineAvailable;
+    private boolean trailingNewline = true;
+
+    public ReverseLineReader(final File file) throws IOException {
+        this(file, 0, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param file to read
+     * @param startPosition byte offset to stop at, treated as the start of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public ReverseLineReader(final File file, final long startPosition) throws IOException {
+        this(file, startPosition, DEFAULT_BLOCK_SIZE);
+    }
+
+    ReverseLineReader(final File file, final long startPosition, final int blockSize) throws IOException {
+        this.input = new RandomAccessFile(file, "r");
+        this.block = new byte[blockSize];
+        this.startPosition = startPosition;
+        this.endPosition = input.length();
+        this.blockStart = endPosition;
+        this.lineAvailable = endPosition > startPosition;
+    }
+
+    /**
+     * Get the size of the file when it was opened, where the read started.
+     *
+     * @return end position
+     */
+    public long getEndPosition() {
+        return endPosition;
+    }
+
+    /**
+     * Get the bytes read from the file so far.
+     *
+     * @return byte count
+     */
+    public long getBytesRead() {
+        return endPosition - blockStart;
+    }
+
+    /**
+     * Read the line preceding the previously read one, the last line of the
+     * file on the first call.
+     *
+     * @return line without its terminator, null once the start of the file is reached
+     * @throws IOException if the file cannot be read
+     */
+    public String readLine() throws IOException {
+        if (!lineAvailable) {
+            return null;
+        }
+
+        while (true) {
+            if (blockIndex == 0 && !readPreviousBlock()) {
+                lineAvailable = false;
+                return takeLine();
+            }
+
+            final byte b = block[--blockIndex];
+            if (b == '\n') {
+                if (trailingNewline) {
+                    // Terminator of the last line of the file
+                    trailingNewline = false;
+                    continue;
+                }
+                return takeLine();
+            }
+            trailingNewline = false;
+            prepend(b);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private boolean readPreviousBlock() throws IOException {
+        if (blockStart <= startPosition) {
+            return false;
+        }
+        final int length = (int) Math.min(block.length, blockStart - startPosition);
+        blockStart -= length;
+        input.seek(blockStart);
+        input.readFully(block, 0, length);
+        blockIndex = length;
+        return true;
+    }
+
+    private void prepend(final byte b) {
+        if (lineStart == 0) {
+            final byte[] grown = new byte[line.length * 2];
+            System.arraycopy(line, 0, grown, line.length, line.length);
+            lineStart = line.length;
+            line = grown;
+        }
+        line[--lineStart] = b;
+    }
+
+    private String takeLine() {
+        int end = line.length;
+        if (end > lineStart && line[end - 1] == '\r') {
+            end--;
+        }
+        final String text = new String(line, lineStart, end - lineStart, LOG_CHARSET);
+        lineStart = line.length;
+        return text;
+    }
+}
@@ -0,0 +1,154 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Finds the first line at or after a given time in a log written in time
+ * order, by binary search over the byte offsets of the file.
+ *
+ * Each probe reads the first timestamped line after an offset, so locating
+ * an hour in a log of several GB reads a few blocks instead of the whole file.
+ */
+public final class TimeOrderedLogSeeker {
+    private static final int PROBE_SIZE = 64 * 1024;
+
+    /**
+     * Extracts the sortable timestamp of a line.
+     */
+    public interface TimestampKey {
+        /**
+         * @return timestamp of the line, comparable as a String, or null if the line has none
+         */
+        String getKey(byte[] buffer, int start, int length);
+    }
+
+    private TimeOrderedLogSeeker() {
+    }
+
+    /**
+     * Find the offset of the first line whose timestamp is the target or later.
+     *
+     * @param file to search, its lines in time order
+     * @param target timestamp, in the format of the keys, or a prefix of it
+     * @param timestampKey extracting the timestamps
+     * @return offset of the line, the end of the last complete line if all lines are earlier
+     * @throws IOException if the file cannot be read
+     */
+    public static long seek(final File file, final String target, final TimestampKey timestampKey)
+            throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            final byte[] buffer = new byte[PROBE_SIZE];
+            long low = 0;
+            long high = input.length();
+
+            while (high - low > PROBE_SIZE) {
+                final long middle = low + (high - low) / 2;
+                final Probe probe = probe(input, buffer, middle, high, timestampKey, null);
+                if (probe == null || probe.key.compareTo(target) >= 0) {
+                    high = middle;
+                } else {
+                    low = probe.lineStart;
+                }
+            }
+
+            final Probe first = probe(input, buffer, low, Long.MAX_VALUE, timestampKey, target);
+            return (first == null ? lastLineEnd(input, buffer) : first.lineStart);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Read the lines starting after the position, or at it when it is 0, up
+     * to the first line with a timestamp, or with a timestamp not before the
+     * target if one is given.
+     */
+    private static Probe probe(final RandomAccessFile input, final byte[] buffer, final long position,
+            final long limit, final TimestampKey timestampKey, final String target) throws IOException {
+        long bufferStart = position;
+        // The line the position falls in is skipped, unless the position is a line start
+        boolean lineStarted = (position == 0);
+        if (!lineStarted && target != null) {
+            input.seek(position - 1);
+            lineStarted = (input.read() == '\n');
+        }
+        int filled = 0;
+
+        while (bufferStart < limit) {
+            input.seek(bufferStart + filled);
+            final int read = input.read(buffer, filled, buffer.length - filled);
+            if (read <= 0) {
+                return null;
+            }
+            filled += read;
+
+            int lineStart = 0;
+            for (int i = 0; i < filled; i++) {
+                if (buffer[i] != '\n') {
+                    continue;
+                }
+                if (lineStarted) {
+                    final String key = timestampKey.getKey(buffer, lineStart, i - lineStart);
+                    if (key != null && (target == null || key.compareTo(target) >= 0)) {
+                        return new Probe(bufferStart + lineStart, key);
+                    }
+                }
+                lineStarted = true;
+                lineStart = i + 1;
+                if (bufferStart + lineStart >= limit) {
+                    return null;
+                }
+            }
+
+            // Keep the incomplete line, unless it fills the whole buffer
+            if (lineStart == 0 && filled == buffer.length) {
+                lineStarted = false;
+                lineStart = filled;
+            }
+            System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+            bufferStart += lineStart;
+            filled -= lineStart;
+        }
+        return null;
+    }
+
+    private static long lastLineEnd(final RandomAccessFile input, final byte[] buffer) throws IOException {
+        long end = input.length();
+        while (end > 0) {
+            final int length = (int) Math.min(buffer.length, end);
+            input.seek(end - length);
+            input.readFully(buffer, 0, length);
+            for (int i = length - 1; i >= 0; i--) {
+                if (buffer[i] == '\n') {
+                    return end - length + i + 1;
+                }
+            }
+            end -= length;
+        }
+        return 0;
+    }
+
+    private static class Probe {
+        private final long lineStart;
+        private final String key;
+
+        Probe(final long lineStart, final String key) {
+            this.lineStart = lineStart;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Time prefix of the lines of a log, as a SimpleDateFormat pattern of two
+ * digit numeric fields from the year down, e.g. "yyyy-MM-dd HH". The year may
+ * also have four digits.
+ *
+ * The prefix of a line is the period the line belongs to, its finest field
+ * giving the length of the period: the hour for "yyyy-MM-dd HH". Periods
+ * sort as Strings in time order, so the prefix is also the key of the
+ * {@link TimeOrderedLogSeeker}. Lines are tested straight from the bytes
+ * read, without being decoded.
+ */
+public class TimePrefix implements TimeOrderedLogSeeker.TimestampKey {
+    public static final String HOUR_FORMAT = "yyyy-MM-dd HH";
+    private static final Charset LOG_CHARSET = Charset.forName("ISO-8859-1");
+    private static final String FIELDS = "yMdHms";
+    private static final long[] FIELD_MILLIS = { 0, 0, 24L * 60L * 60L * 1000L, 60L * 60L * 1000L, 60L * 1000L,
+            1000L };
+
+    private final String format;
+    private final byte[] literals;
+    private final long periodMillis;
+
+    /**
+     * @param format of the prefix
+     * @throws IllegalArgumentException if the format is not of numeric fields
+     *             from the year down to a day, hour, minute or second
+     */
+    public TimePrefix(final String format) {
+        this.format = format;
+        literals = format.getBytes(LOG_CHARSET);
+        int lastField = -1;
+        int i = 0;
+        while (i < format.length()) {
+            final char c = format.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                final int fieldStart = i;
+                while (i < format.length() && format.charAt(i) == c) {
+                    literals[i++] = 0;
+                }
+                final int width = i - fieldStart;
+                final int field = FIELDS.indexOf(c);
+                if (field != lastField + 1 || (width != 2 && !(c == 'y' && width == 4))) {
+                    throw new IllegalArgumentException("Unsupported time prefix format " + format);
+                }
+                lastField = field;
+            } else if (c == '\'' || c > 0xff) {
+                throw new IllegalArgumentException("Unsupported time prefix format " + format);
+            } else {
+                i++;
+            }
+        }
+        if (lastField < 0 || FIELD_MILLIS[lastField] == 0) {
+            throw new IllegalArgumentException("Time prefix format " + format + " does not end with a day, an hour,"
+                    + " a minute or a second");
+        }
+        periodMillis = FIELD_MILLIS[lastField];
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public int getLength() {
+        return literals.length;
+    }
+
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * Test a line starts with the prefix.
+     *
+     * @param buffer holding the line
+     * @param start of the line
+     * @param length of the line
+     * @return true if the line starts with digits and separators as the format
+     */
+    public boolean matches(final byte[] buffer, final int start, final int length) {
+        if (length < literals.length) {
+            return false;
+        }
+        for (int i = 0; i < literals.length; i++) {
+            final byte b = buffer[start + i];
+            if (literals[i] == 0 ? (b < '0' || b > '9') : b != literals[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getKey(final byte[] buffer, final int start, final int length) {
+        if (!matches(buffer, start, length)) {
+            return null;
+        }
+        return new String(buffer, start, literals.length, LOG_CHARSET);
+    }
+
+    /**
+     * Get the period of a time.
+     *
+     * @param timeMillis time
+     * @return the period, as formatted in the prefix of the lines
+     */
+    public String getPeriod(final long timeMillis) {
+        return new SimpleDateFormat(format).format(new Date(timeMillis));
+    }
+
+    /**
+     * Get the start time of a period.
+     *
+     * @param period as formatted in the prefix of the lines
+     * @return time
+     * @throws ParseException if the period is not in the format
+     */
+    public long getStartMillis(final String period) throws ParseException {
+        return new SimpleDateFormat(format).parse(period).getTime();
+    }
+
+    @Override
+    public String toString() {
+        return format;
+    }
+}
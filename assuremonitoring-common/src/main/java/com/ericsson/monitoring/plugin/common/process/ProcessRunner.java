@@ -0,0 +1,376 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.process;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Runs the external commands of the plugins, such as get_active_interfaces
+ * or the snapshot listing scripts, without letting them block or leak.
+ *
+ * The standard output and error are drained concurrently into bounded
+ * buffers, so a command writing more than expected can neither fill the pipe
+ * nor the heap. A command still running at the deadline is killed, and the
+ * process is always waited for and its streams closed.
+ *
+ * Each command is the leader of its own process group, so the whole group
+ * is killed at the deadline: the commands run through pfexec start su, login
+ * shells and installer JVMs that would otherwise keep the pipes open. The
+ * group of a command run through pfexec is killed through pfexec too.
+ *
+ * The number of runs, timeouts and the time spent are counted for all
+ * runners of the agent.
+ */
+public class ProcessRunner {
+    public static final int DEFAULT_OUTPUT_LIMIT = 1024 * 1024;
+    public static final String PFEXEC = "/usr/bin/pfexec";
+    private static final String KILL = "/usr/bin/kill";
+    // Leads a new process group, writes its id on the standard error and runs the command in it
+    private static final String[] GROUP_LEADER = { "/usr/bin/perl", "-e",
+            "setpgrp(0, 0); print STDERR \"$$\\n\"; exec { $ARGV[0] } @ARGV or die \"Unable to run $ARGV[0]: $!\\n\";"
+    };
+    private static final long DRAIN_JOIN_MILLIS = 1000L;
+    private static final Object STATISTICS_LOCK = new Object();
+    private static long runCount;
+    private static long timeoutCount;
+    private static long totalMillis;
+    private static long maxMillis;
+
+    private final Log log = LogFactory.getLog(ProcessRunner.class);
+    private final long timeoutMillis;
+    private final int outputLimit;
+
+    /**
+     * @param timeoutMillis deadline of a command
+     */
+    public ProcessRunner(final long timeoutMillis) {
+        this(timeoutMillis, DEFAULT_OUTPUT_LIMIT);
+    }
+
+    /**
+     * @param timeoutMillis deadline of a command
+     * @param outputLimit bytes kept of each of the standard output and error
+     */
+    public ProcessRunner(final long timeoutMillis, final int outputLimit) {
+        this.timeoutMillis = timeoutMillis;
+        this.outputLimit = outputLimit;
+    }
+
+    /**
+     * Run a command and wait for it to exit, or kill its process group at
+     * the deadline.
+     *
+     * @param command program and arguments
+     * @return Result of the command
+     * @throws IOException if the command cannot be started, or the thread is interrupted
+     */
+    public Result run(final String... command) throws IOException {
+        final long startMillis = System.currentTimeMillis();
+        final List<String> groupCommand = new ArrayList<String>(Arrays.asList(GROUP_LEADER));
+        groupCommand.addAll(Arrays.asList(command));
+        final Process process = new ProcessBuilder(groupCommand).start();
+        final StreamDrainer output = new StreamDrainer(process.getInputStream(), outputLimit, false);
+        final StreamDrainer error = new StreamDrainer(process.getErrorStream(), outputLimit, true);
+        final ProcessWaiter waiter = new ProcessWaiter(process);
+        boolean timedOut = false;
+
+        try {
+            process.getOutputStream().close();
+            output.start();
+            error.start();
+            waiter.start();
+
+            waiter.join(timeoutMillis);
+            if (waiter.isAlive()) {
+                timedOut = true;
+                log.warn("Killing " + Arrays.toString(command) + " still running after " + timeoutMillis + " ms");
+                killProcessGroup(error.getGroupId(), command);
+                process.destroy();
+                waiter.join(DRAIN_JOIN_MILLIS);
+            }
+            output.join(DRAIN_JOIN_MILLIS);
+            error.join(DRAIN_JOIN_MILLIS);
+        } catch (InterruptedException e) {
+            killProcessGroup(error.getGroupId(), command);
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while running " + Arrays.toString(command));
+        } finally {
+            closeQuietly(process.getInputStream());
+            closeQuietly(process.getErrorStream());
+        }
+
+        final long elapsedMillis = System.currentTimeMillis() - startMillis;
+        final int exitStatus = (timedOut ? -1 : waiter.exitStatus);
+        record(elapsedMillis, timedOut);
+        if (log.isDebugEnabled()) {
+            log.debug(Arrays.toString(command) + " exited with status " + exitStatus + " in " + elapsedMillis + " ms");
+        }
+        return new Result(exitStatus, timedOut, elapsedMillis, output.getContent(), error.getContent());
+    }
+
+    /**
+     * Kill every process of the group led by a command, with the privileges
+     * the command was run with.
+     *
+     * @param groupId process group of the command, 0 if unknown
+     * @param command program and arguments
+     */
+    private void killProcessGroup(final int groupId, final String[] command) {
+        if (groupId <= 0) {
+            log.warn("Unable to kill the processes started by " + Arrays.toString(command)
+                    + ", their process group is unknown");
+            return;
+        }
+        final List<String> kill = new ArrayList<String>();
+        if (PFEXEC.equals(command[0])) {
+            kill.add(PFEXEC);
+        }
+        kill.addAll(Arrays.asList(KILL, "-9", "--", "-" + groupId));
+        try {
+            final Process killer = new ProcessBuilder(kill).redirectErrorStream(true).start();
+            try {
+                killer.getOutputStream().close();
+                final int exitStatus = killer.waitFor();
+                if (exitStatus != 0) {
+                    log.warn(kill + " exited with status " + exitStatus);
+                }
+            } finally {
+                closeQuietly(killer.getInputStream());
+                closeQuietly(killer.getErrorStream());
+            }
+        } catch (IOException e) {
+            log.warn("Unable to run " + kill + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the number of commands run by all runners.
+     *
+     * @return long
+     */
+    public static long getRunCount() {
+        synchronized (STATISTICS_LOCK) {
+            return runCount;
+        }
+    }
+
+    /**
+     * Get the number of commands destroyed at their deadline by all runners.
+     *
+     * @return long
+     */
+    public static long getTimeoutCount() {
+        synchronized (STATISTICS_LOCK) {
+            return timeoutCount;
+        }
+    }
+
+    /**
+     * Get the time spent running commands by all runners.
+     *
+     * @return milliseconds
+     */
+    public static long getTotalMillis() {
+        synchronized (STATISTICS_LOCK) {
+            return totalMillis;
+        }
+    }
+
+    /**
+     * Get the average time a command ran.
+     *
+     * @return milliseconds
+     */
+    public static double getAverageMillis() {
+        synchronized (STATISTICS_LOCK) {
+            return (runCount == 0 ? 0.0 : (double) totalMillis / runCount);
+        }
+    }
+
+    /**
+     * Get the longest time a command ran.
+     *
+     * @return milliseconds
+     */
+    public static long getMaxMillis() {
+        synchronized (STATISTICS_LOCK) {
+            return maxMillis;
+        }
+    }
+
+    private static void record(final long elapsedMillis, final boolean timedOut) {
+        synchronized (STATISTICS_LOCK) {
+            runCount++;
+            if (timedOut) {
+                timeoutCount++;
+            }
+            totalMillis += elapsedMillis;
+            maxMillis = Math.max(maxMillis, elapsedMillis);
+        }
+    }
+
+    private static void closeQuietly(final Closeable stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // Nothing more to read from the process
+        }
+    }
+
+    /**
+     * Outcome of a command.
+     */
+    public static class Result {
+        private final int exitStatus;
+        private final boolean timedOut;
+        private final long elapsedMillis;
+        private final String output;
+        private final String error;
+
+        public Result(final int exitStatus, final boolean timedOut, final long elapsedMillis, final String output,
+                final String error) {
+            this.exitStatus = exitStatus;
+            this.timedOut = timedOut;
+            this.elapsedMillis = elapsedMillis;
+            this.output = output;
+            this.error = error;
+        }
+
+        /**
+         * @return exit status, -1 if the command was destroyed before exiting
+         */
+        public int getExitStatus() {
+            return exitStatus;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * @return standard output, up to the output limit
+         */
+        public String getOutput() {
+            return output;
+        }
+
+        /**
+         * @return standard error, up to the output limit
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return true if the command exited with status 0 before the deadline
+         */
+        public boolean isSuccess() {
+            return !timedOut && exitStatus == 0;
+        }
+    }
+
+    /**
+     * Reads a stream to its end, keeping only its first bytes. The standard
+     * error starts with the line of the process group id, which is not kept.
+     */
+    private static class StreamDrainer extends Thread {
+        private final InputStream stream;
+        private final ByteArrayOutputStream content;
+        private final int limit;
+        private boolean readingGroupId;
+        private int groupId;
+
+        StreamDrainer(final InputStream stream, final int limit, final boolean readingGroupId) {
+            super("ProcessRunner-drainer");
+            setDaemon(true);
+            this.stream = stream;
+            this.limit = limit;
+            this.readingGroupId = readingGroupId;
+            this.content = new ByteArrayOutputStream(Math.min(limit, 4096));
+        }
+
+        @Override
+        public void run() {
+            final byte[] buffer = new byte[4096];
+            try {
+                int count;
+                while ((count = stream.read(buffer)) >= 0) {
+                    synchronized (content) {
+                        int start = 0;
+                        while (readingGroupId && start < count) {
+                            final byte digit = buffer[start++];
+                            if (digit >= '0' && digit <= '9') {
+                                groupId = groupId * 10 + digit - '0';
+                            } else {
+                                readingGroupId = false;
+                            }
+                        }
+                        final int kept = Math.min(count - start, limit - content.size());
+                        if (kept > 0) {
+                            content.write(buffer, start, kept);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // The stream was closed once the process exited or was destroyed
+            }
+        }
+
+        int getGroupId() {
+            synchronized (content) {
+                return (readingGroupId ? 0 : groupId);
+            }
+        }
+
+        String getContent() {
+            synchronized (content) {
+                return content.toString();
+            }
+        }
+    }
+
+    /**
+     * Waits for the process, so the caller can wait with a deadline.
+     */
+    private static class ProcessWaiter extends Thread {
+        private final Process process;
+        private volatile int exitStatus = -1;
+
+        ProcessWaiter(final Process process) {
+            super("ProcessRunner-waiter");
+            setDaemon(true);
+            this.process = process;
+        }
+
+        @Override
+        public void run() {
+            try {
+                exitStatus = process.waitFor();
+            } catch (InterruptedException e) {
+                // Only interrupted if the agent stops
+            }
+        }
+    }
+}
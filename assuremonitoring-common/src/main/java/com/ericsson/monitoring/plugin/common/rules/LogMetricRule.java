@@ -0,0 +1,221 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.rules;
+
+import java.util.*;
+
+import org.hyperic.hq.product.MetricInvalidException;
+
+import com.ericsson.monitoring.plugin.common.log.FileGlob;
+import com.ericsson.monitoring.plugin.common.log.TimePrefix;
+import com.ericsson.monitoring.plugin.common.wfinstr.KeywordAccumulator;
+
+/**
+ * Rule deriving a metric from the counters of the lines of a log, declared
+ * by a "rule.&lt;alias&gt;" option of the plugin configuration, e.g.
+ * "counters=Bytes;aggregation=sum;unit=gb".
+ *
+ * The settings of a rule are:
+ * <ul>
+ * <li>file: glob of the log file, see {@link FileGlob}</li>
+ * <li>time_format: {@link TimePrefix} of the lines, "yyyy-MM-dd HH" by default</li>
+ * <li>keyword: of the lines holding the counters</li>
+ * <li>counters: names of the counters, separated by ",", whose values are added</li>
+ * <li>aggregation: of the values of the lines of the previous period, "sum",
+ * "rate" (sum per second), "max" (largest value of a line) or "last" (value of
+ * the last line)</li>
+ * <li>unit: "kb", "mb" or "gb" to convert a number of bytes, "none" by default</li>
+ * </ul>
+ * The file, the time format and the keyword default to the "file",
+ * "time_format" and "keyword" properties of the metric template.
+ */
+public class LogMetricRule {
+    public static final String OPTION_PREFIX = "rule.";
+    static final String FILE = "file";
+    static final String TIME_FORMAT = "time_format";
+    static final String KEYWORD = "keyword";
+    static final String COUNTERS = "counters";
+    static final String AGGREGATION = "aggregation";
+    static final String UNIT = "unit";
+    private static final String SETTING_SEPARATOR = ";";
+    private static final String COUNTER_SEPARATOR = ",";
+    private static final Map<String, Double> UNIT_DIVISORS = new HashMap<String, Double>();
+
+    static {
+        // As ConvertBytes of MetricUtil.pm
+        UNIT_DIVISORS.put("none", 1.0);
+        UNIT_DIVISORS.put("kb", 1024.0);
+        UNIT_DIVISORS.put("mb", 1048576.0);
+        UNIT_DIVISORS.put("gb", 1073741824.0);
+    }
+
+    /**
+     * Aggregation of the counter values of the lines of a period.
+     */
+    public enum Aggregation {
+        SUM, RATE, MAX, LAST
+    }
+
+    private final String alias;
+    private final FileGlob file;
+    private final TimePrefix timePrefix;
+    private final String keyword;
+    private final List<String> counters;
+    private final Aggregation aggregation;
+    private final double unitDivisor;
+
+    LogMetricRule(final String alias, final FileGlob file, final TimePrefix timePrefix, final String keyword,
+            final List<String> counters, final Aggregation aggregation, final double unitDivisor) {
+        this.alias = alias;
+        this.file = file;
+        this.timePrefix = timePrefix;
+        this.keyword = keyword;
+        this.counters = counters;
+        this.aggregation = aggregation;
+        this.unitDivisor = unitDivisor;
+    }
+
+    /**
+     * Parse the definition of a rule.
+     *
+     * @param alias of the metric
+     * @param definition settings of the rule, "name=value" separated by ";"
+     * @param defaults of the file, time format and keyword settings
+     * @return LogMetricRule
+     * @throws MetricInvalidException if a setting is missing or invalid
+     */
+    public static LogMetricRule parse(final String alias, final String definition, final Properties defaults)
+            throws MetricInvalidException {
+        final Properties settings = new Properties();
+        for (final String name : new String[] { FILE, TIME_FORMAT, KEYWORD }) {
+            if (defaults.getProperty(name) != null) {
+                settings.setProperty(name, defaults.getProperty(name));
+            }
+        }
+        for (final String setting : definition.split(SETTING_SEPARATOR)) {
+            final int separator = setting.indexOf('=');
+            if (separator <= 0) {
+                if (setting.trim().length() > 0) {
+                    throw new MetricInvalidException("Invalid setting '" + setting + "' in rule of " + alias);
+                }
+                continue;
+            }
+            settings.setProperty(setting.substring(0, separator).trim(), setting.substring(separator + 1).trim());
+        }
+
+        final String fileGlob = getSetting(alias, settings, FILE, null);
+        final String keyword = getSetting(alias, settings, KEYWORD, null);
+        final List<String> counters = new ArrayList<String>();
+        for (final String counter : getSetting(alias, settings, COUNTERS, null).split(COUNTER_SEPARATOR)) {
+            if (counter.trim().length() > 0) {
+                counters.add(counter.trim());
+            }
+        }
+        if (counters.isEmpty()) {
+            throw new MetricInvalidException("No counters in rule of " + alias);
+        }
+
+        final TimePrefix timePrefix;
+        final Aggregation aggregation;
+        try {
+            timePrefix = new TimePrefix(getSetting(alias, settings, TIME_FORMAT, TimePrefix.HOUR_FORMAT));
+            aggregation = Aggregation.valueOf(getSetting(alias, settings, AGGREGATION, "sum").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new MetricInvalidException("Invalid rule of " + alias + ": " + e.getMessage(), e);
+        }
+        final Double unitDivisor = UNIT_DIVISORS.get(getSetting(alias, settings, UNIT, "none").toLowerCase());
+        if (unitDivisor == null) {
+            throw new MetricInvalidException("Unknown unit " + settings.getProperty(UNIT) + " in rule of " + alias);
+        }
+
+        return new LogMetricRule(alias, new FileGlob(fileGlob), timePrefix, keyword,
+                Collections.unmodifiableList(counters), aggregation, unitDivisor);
+    }
+
+    private static String getSetting(final String alias, final Properties settings, final String name,
+            final String defaultValue) throws MetricInvalidException {
+        final String value = settings.getProperty(name, defaultValue);
+        if (value == null || value.length() == 0) {
+            throw new MetricInvalidException("No " + name + " in rule of " + alias);
+        }
+        return value;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public FileGlob getFile() {
+        return file;
+    }
+
+    public TimePrefix getTimePrefix() {
+        return timePrefix;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public List<String> getCounters() {
+        return counters;
+    }
+
+    public Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    /**
+     * Calculate the metric from the counters accumulated for the keyword.
+     *
+     * With several counters, each counter is aggregated on its own and the
+     * results are added.
+     *
+     * @param accumulator of the keyword
+     * @param period to calculate the metric for
+     * @return value of the metric, null if no line of the keyword was found in the period
+     */
+    public Double evaluate(final KeywordAccumulator accumulator, final String period) {
+        final Map<String, Long> values;
+        switch (aggregation) {
+        case MAX:
+            values = accumulator.getMaxCounters(period);
+            break;
+        case LAST:
+            values = accumulator.getLastCounters(period);
+            break;
+        default:
+            values = accumulator.getCounters(period);
+        }
+        if (values == null) {
+            return null;
+        }
+
+        double value = 0.0;
+        for (final String counter : counters) {
+            final Long counterValue = values.get(counter);
+            if (counterValue != null) {
+                value += counterValue.doubleValue();
+            }
+        }
+        if (aggregation == Aggregation.RATE) {
+            value /= timePrefix.getPeriodMillis() / 1000.0;
+        }
+        return value / unitDivisor;
+    }
+
+    @Override
+    public String toString() {
+        return alias + ": " + aggregation.name().toLowerCase() + " of " + counters + " of " + keyword + " in "
+                + file;
+    }
+}
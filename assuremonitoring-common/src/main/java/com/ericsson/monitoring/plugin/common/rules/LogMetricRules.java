@@ -0,0 +1,95 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.rules;
+
+import java.io.File;
+import java.util.*;
+
+import org.hyperic.hq.product.MetricInvalidException;
+
+import com.ericsson.monitoring.plugin.common.wfinstr.WfinstrCollector;
+
+/**
+ * The {@link LogMetricRule}s of a resource, compiled into one scan plan per
+ * log file.
+ *
+ * The rules reading the same file with the same time prefix share one
+ * {@link WfinstrCollector}, which is also shared with the rules of the other
+ * plugins reading the file. The collector matches the keywords of all its
+ * rules in one pass over the lines, so adding a rule for another feature of
+ * the file costs no extra read of the file.
+ */
+public class LogMetricRules {
+    private final Map<String, LogMetricRule> rules;
+
+    LogMetricRules(final Map<String, LogMetricRule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Parse the rules of the "rule.&lt;alias&gt;" options of a configuration.
+     *
+     * @param config of the resource
+     * @param defaults of the file, time format and keyword of the rules
+     * @return LogMetricRules, keyed by alias
+     * @throws MetricInvalidException if a rule is invalid
+     */
+    public static LogMetricRules parse(final Properties config, final Properties defaults)
+            throws MetricInvalidException {
+        final Map<String, LogMetricRule> rules = new TreeMap<String, LogMetricRule>();
+        for (final String name : config.stringPropertyNames()) {
+            if (name.startsWith(LogMetricRule.OPTION_PREFIX)) {
+                final String alias = name.substring(LogMetricRule.OPTION_PREFIX.length());
+                rules.put(alias, LogMetricRule.parse(alias, config.getProperty(name), defaults));
+            }
+        }
+        return new LogMetricRules(rules);
+    }
+
+    /**
+     * @param alias of a metric
+     * @return rule of the metric, null if none
+     */
+    public LogMetricRule getRule(final String alias) {
+        return rules.get(alias);
+    }
+
+    public Collection<LogMetricRule> getRules() {
+        return rules.values();
+    }
+
+    /**
+     * Get the scan plans of the rules: the collector of each log file and
+     * time prefix, with the rules it serves. The globs are resolved to the
+     * current log files.
+     *
+     * @return rules keyed by collector, without the rules of a missing file
+     */
+    public Map<WfinstrCollector, List<LogMetricRule>> getScanPlans() {
+        final Map<WfinstrCollector, List<LogMetricRule>> plans =
+                new LinkedHashMap<WfinstrCollector, List<LogMetricRule>>();
+        for (final LogMetricRule rule : rules.values()) {
+            final File logFile = rule.getFile().getLatestFile();
+            if (logFile == null) {
+                continue;
+            }
+            final WfinstrCollector collector = WfinstrCollector.getInstance(logFile, rule.getTimePrefix());
+            List<LogMetricRule> planRules = plans.get(collector);
+            if (planRules == null) {
+                planRules = new ArrayList<LogMetricRule>();
+                plans.put(collector, planRules);
+            }
+            planRules.add(rule);
+        }
+        return plans;
+    }
+}
@@ -0,0 +1,230 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.rules;
+
+import java.io.IOException;
+import java.util.*;
+
+import org.apache.commons.logging.Log;
+import org.hyperic.hq.product.*;
+
+import com.ericsson.monitoring.plugin.common.cache.CollectionCache;
+import com.ericsson.monitoring.plugin.common.log.ReadThrottle;
+import com.ericsson.monitoring.plugin.common.log.TimePrefix;
+import com.ericsson.monitoring.plugin.common.schedule.CollectionPermits;
+import com.ericsson.monitoring.plugin.common.schedule.CollectionScheduler;
+import com.ericsson.monitoring.plugin.common.stats.CollectionStatistics;
+import com.ericsson.monitoring.plugin.common.wfinstr.KeywordAccumulator;
+import com.ericsson.monitoring.plugin.common.wfinstr.WfinstrCollector;
+
+/**
+ * Measurement plugin of the metrics derived from the counters of log lines,
+ * such as the SGEH, LTEES and LTEEFA performance metrics of wfinstr.log,
+ * declared by {@link LogMetricRule}s instead of a script per feature.
+ *
+ * The rules are the "rule.&lt;alias&gt;" options of the plugin configuration,
+ * and the metric template gives the defaults of their file and keyword, e.g.
+ * "sgeh:file=%sgeh_log_filename%,keyword=%sgeh_keyword%:${alias}". All
+ * metrics of the resource are calculated from the previous period of their
+ * time prefix, once for all aliases through the {@link CollectionCache}. The
+ * files are also read ahead every 15 minutes by the
+ * {@link CollectionScheduler}, so the hourly collection only reads the last
+ * few minutes of the logs.
+ *
+ * A collection reads at most a few megabytes. Catching up with the retained
+ * periods after a start reads much more, so it goes on in the background one
+ * budget at a time, and the previous metrics of the resource are reported
+ * until the logs are read to their end.
+ *
+ * The {@link CollectionStatistics} of the plugin, including the scans of the
+ * read ahead, are reported through the "self:type=collection:${alias}"
+ * template.
+ */
+public class LogRulesMeasurementPlugin extends MeasurementPlugin {
+    private static final String AVAILABILITY = "Availability";
+    private static final long READ_AHEAD_INTERVAL_MILLIS = 15L * 60L * 1000L;
+    private static final long MAX_BYTES_PER_COLLECTION = 4L * 1024L * 1024L;
+
+    // Rules parsed from the configuration of each resource, reparsed only when it changes
+    private final Map<String, ParsedRules> rulesByResource = new HashMap<String, ParsedRules>();
+    // Metrics last collected for each resource, reported again while its logs are caught up
+    private final Map<String, Map<String, Double>> previousMetrics = new HashMap<String, Map<String, Double>>();
+
+    private static class ParsedRules {
+        private final Properties config;
+        private final Properties defaults;
+        private final LogMetricRules rules;
+
+        ParsedRules(final Properties config, final Properties defaults, final LogMetricRules rules) {
+            this.config = config;
+            this.defaults = defaults;
+            this.rules = rules;
+        }
+    }
+
+    @Override
+    public MetricValue getValue(final Metric metric) throws PluginException, MetricNotFoundException,
+            MetricUnreachableException {
+        final CollectionStatistics statistics = CollectionStatistics.getInstance(getName());
+        if (CollectionStatistics.DOMAIN.equals(metric.getDomainName())) {
+            return statistics.getValue(metric.getAttributeName());
+        }
+
+        final String alias = metric.getAttributeName();
+        final LogMetricRules rules = getRules(metric);
+        final LogMetricRule rule = rules.getRule(alias);
+        if (rule == null && !AVAILABILITY.equals(alias)) {
+            throw new MetricNotFoundException("No " + LogMetricRule.OPTION_PREFIX + alias + " rule for metric "
+                    + alias);
+        }
+
+        final String objectName = metric.getObjectName();
+        final Map<String, Double> metrics = CollectionCache.getInstance().get(objectName,
+                System.currentTimeMillis(), new CollectionCache.Collector() {
+                    @Override
+                    public Map<String, Double> collect() throws PluginException {
+                        return collectMetrics(objectName, rules, statistics);
+                    }
+                }, statistics);
+
+        final Double value = metrics.get(alias);
+        if (value == null) {
+            throw new MetricUnreachableException("Unable to find the lines of rule " + rule);
+        }
+        return new MetricValue(value);
+    }
+
+    /**
+     * Get the rules of the resource of a metric, parsed once for all its
+     * aliases and collections.
+     */
+    private LogMetricRules getRules(final Metric metric) throws MetricInvalidException {
+        final Properties config = metric.getProperties();
+        final Properties defaults = metric.getObjectProperties();
+        synchronized (rulesByResource) {
+            ParsedRules parsed = rulesByResource.get(metric.getObjectName());
+            if (parsed == null || !parsed.config.equals(config) || !parsed.defaults.equals(defaults)) {
+                final Properties configCopy = new Properties();
+                configCopy.putAll(config);
+                final Properties defaultsCopy = new Properties();
+                defaultsCopy.putAll(defaults);
+                parsed = new ParsedRules(configCopy, defaultsCopy, LogMetricRules.parse(configCopy, defaultsCopy));
+                rulesByResource.put(metric.getObjectName(), parsed);
+            }
+            return parsed.rules;
+        }
+    }
+
+    /**
+     * Collect all metrics of the rules, once for all aliases of the resource.
+     * The resource is available if the lines of at least one rule are found.
+     */
+    private Map<String, Double> collectMetrics(final String objectName, final LogMetricRules rules,
+            final CollectionStatistics statistics) throws MetricUnreachableException {
+        final Log log = getLog();
+        final long now = System.currentTimeMillis();
+        final Map<String, Double> metrics = new HashMap<String, Double>();
+        boolean caughtUp = true;
+        for (final Map.Entry<WfinstrCollector, List<LogMetricRule>> plan : rules.getScanPlans().entrySet()) {
+            final WfinstrCollector collector = plan.getKey();
+            final TimePrefix timePrefix = collector.getTimePrefix();
+            // Subscribed before the collection, so new keywords are caught up with the lines already read
+            final Map<LogMetricRule, KeywordAccumulator> accumulators =
+                    new HashMap<LogMetricRule, KeywordAccumulator>();
+            for (final LogMetricRule rule : plan.getValue()) {
+                accumulators.put(rule, collector.subscribe(rule.getKeyword()));
+            }
+
+            final String resourceKey = "wfinstr:" + collector.getLogFile() + ":" + timePrefix;
+            CollectionScheduler.getInstance().schedule(resourceKey,
+                    Math.min(READ_AHEAD_INTERVAL_MILLIS, timePrefix.getPeriodMillis()),
+                    new CollectionScheduler.Task() {
+                        @Override
+                        public void collect() throws IOException, MetricUnreachableException {
+                            readAhead(collector, statistics);
+                        }
+                    });
+            try {
+                if (!collectWithPermit(collector, statistics, ReadThrottle.forFile(collector.getLogFile()))) {
+                    CollectionScheduler.getInstance().runNow(resourceKey);
+                    caughtUp = false;
+                    continue;
+                }
+            } catch (IOException e) {
+                throw new MetricUnreachableException("Unable to read " + collector.getLogFile() + ": "
+                        + e.getMessage(), e);
+            }
+
+            final String searchPeriod = timePrefix.getPeriod(now - timePrefix.getPeriodMillis());
+            for (final LogMetricRule rule : plan.getValue()) {
+                final Double value = rule.evaluate(accumulators.get(rule), searchPeriod);
+                if (value != null) {
+                    metrics.put(rule.getAlias(), value);
+                } else if (log.isDebugEnabled()) {
+                    log.debug("No " + rule.getKeyword() + " metrics found in " + collector.getLogFile()
+                            + " for time " + searchPeriod);
+                }
+            }
+        }
+
+        if (!caughtUp) {
+            final Map<String, Double> previous;
+            synchronized (previousMetrics) {
+                previous = previousMetrics.get(objectName);
+            }
+            if (previous == null) {
+                throw new MetricUnreachableException("The logs of " + objectName + " are still being read");
+            }
+            log.debug("Reporting the previous metrics of " + objectName + " while its logs are being read");
+            return previous;
+        }
+
+        metrics.put(AVAILABILITY, metrics.isEmpty() ? Metric.AVAIL_DOWN : Metric.AVAIL_UP);
+        synchronized (previousMetrics) {
+            previousMetrics.put(objectName, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Read the log on to its end, one budget at a time, so that the permit
+     * and the collector are free in between for the collections of the agent.
+     */
+    private static void readAhead(final WfinstrCollector collector, final CollectionStatistics statistics)
+            throws IOException, MetricUnreachableException {
+        final ReadThrottle throttle = ReadThrottle.forFile(collector.getLogFile());
+        long bytesRead;
+        do {
+            bytesRead = throttle.getBytesRead();
+        } while (!collectWithPermit(collector, statistics, throttle) && throttle.getBytesRead() > bytesRead);
+    }
+
+    /**
+     * Read at most one budget of the log.
+     *
+     * @return true if the log was read to its end
+     */
+    private static boolean collectWithPermit(final WfinstrCollector collector, final CollectionStatistics statistics,
+            final ReadThrottle throttle) throws IOException, MetricUnreachableException {
+        final CollectionPermits permits = CollectionPermits.getHeavy();
+        permits.acquire();
+        try {
+            synchronized (collector) {
+                final boolean caughtUp = collector.collect(throttle, MAX_BYTES_PER_COLLECTION);
+                statistics.recordScan(collector.getLastScan());
+                return caughtUp;
+            }
+        } finally {
+            permits.release();
+        }
+    }
+}
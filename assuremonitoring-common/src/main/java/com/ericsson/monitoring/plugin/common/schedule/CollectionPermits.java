@@ -0,0 +1,141 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.schedule;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hyperic.hq.product.MetricUnreachableException;
+
+import com.ericsson.monitoring.plugin.common.env.PluginSettings;
+
+/**
+ * Host-wide permits for the collections of all plugins of the agent.
+ *
+ * There are two pools: heavy collections, such as log scans and external
+ * commands, and light ones, such as flag file checks. A collection holds a
+ * permit of its pool while it runs; if none is released within the wait
+ * time, the collection is rejected and the metric reported unreachable.
+ *
+ * The pool sizes are read from COLLECTION_HEAVY_PERMITS and
+ * COLLECTION_LIGHT_PERMITS in global.env.
+ */
+public class CollectionPermits {
+    private static final CollectionPermits HEAVY = new CollectionPermits("heavy", (int) PluginSettings.getLong(
+            "COLLECTION_HEAVY_PERMITS", 2), 60L * 1000L);
+    private static final CollectionPermits LIGHT = new CollectionPermits("light", (int) PluginSettings.getLong(
+            "COLLECTION_LIGHT_PERMITS", 4), 10L * 1000L);
+
+    private final Log log = LogFactory.getLog(CollectionPermits.class);
+    private final String name;
+    private final Semaphore semaphore;
+    private final long maxWaitMillis;
+    private long acquiredCount;
+    private long rejectedCount;
+    private long totalWaitMillis;
+    private long maxWaitedMillis;
+
+    /**
+     * @param name of the pool, for logging
+     * @param permits collections run at once
+     * @param maxWaitMillis wait for a permit before rejecting a collection
+     */
+    public CollectionPermits(final String name, final int permits, final long maxWaitMillis) {
+        this.name = name;
+        this.semaphore = new Semaphore(permits, true);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Get the pool of the log scans and external commands.
+     *
+     * @return CollectionPermits
+     */
+    public static CollectionPermits getHeavy() {
+        return HEAVY;
+    }
+
+    /**
+     * Get the pool of the flag file checks.
+     *
+     * @return CollectionPermits
+     */
+    public static CollectionPermits getLight() {
+        return LIGHT;
+    }
+
+    /**
+     * Wait for a permit, to be released once the collection is over.
+     *
+     * @throws MetricUnreachableException if no permit was released within the wait time
+     */
+    public void acquire() throws MetricUnreachableException {
+        final long startMillis = System.currentTimeMillis();
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MetricUnreachableException("Interrupted while waiting for a " + name + " collection permit");
+        }
+        final long waitMillis = System.currentTimeMillis() - startMillis;
+
+        synchronized (this) {
+            if (acquired) {
+                acquiredCount++;
+                totalWaitMillis += waitMillis;
+                maxWaitedMillis = Math.max(maxWaitedMillis, waitMillis);
+            } else {
+                rejectedCount++;
+            }
+        }
+        if (!acquired) {
+            log.warn("No " + name + " collection permit released within " + maxWaitMillis + " ms");
+            throw new MetricUnreachableException("Too many " + name + " collections running");
+        }
+    }
+
+    /**
+     * Release a permit acquired for a collection.
+     */
+    public void release() {
+        semaphore.release();
+    }
+
+    public synchronized long getAcquiredCount() {
+        return acquiredCount;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Get the average time waited for a permit.
+     *
+     * @return milliseconds
+     */
+    public synchronized double getAverageWait() {
+        return (acquiredCount == 0 ? 0.0 : (double) totalWaitMillis / acquiredCount);
+    }
+
+    /**
+     * Get the longest time waited for a permit.
+     *
+     * @return milliseconds
+     */
+    public synchronized long getMaxWait() {
+        return maxWaitedMillis;
+    }
+}
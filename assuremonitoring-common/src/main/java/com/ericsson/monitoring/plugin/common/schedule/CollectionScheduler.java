@@ -0,0 +1,233 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.schedule;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ericsson.monitoring.plugin.common.env.PluginSettings;
+
+/**
+ * Background collections of the log collectors, spread over their interval.
+ *
+ * The agent asks for all metrics with the same interval at the start of the
+ * interval, so every log would be read at once. Each resource registered
+ * here is instead read ahead once per interval, at an offset given by the
+ * hash of its name, and the collection the agent asks for only reads what
+ * was logged since. At most COLLECTION_BACKGROUND_THREADS of global.env
+ * collections run at once per agent; the others wait, and the time they
+ * waited is recorded.
+ *
+ * Only the background collections are spread; the collections the agent
+ * asks for still run when it asks, but only read what is left.
+ */
+public class CollectionScheduler {
+    private static final CollectionScheduler INSTANCE = new CollectionScheduler(Math.max(1, (int) PluginSettings
+            .getLong("COLLECTION_BACKGROUND_THREADS", 2)));
+
+    private final Log log = LogFactory.getLog(CollectionScheduler.class);
+    private final ScheduledThreadPoolExecutor executor;
+    private final ConcurrentMap<String, ScheduledTask> tasks = new ConcurrentHashMap<String, ScheduledTask>();
+    private final Object statisticsLock = new Object();
+    private long runCount;
+    private long totalQueueDelayMillis;
+    private long lastQueueDelayMillis;
+    private long maxQueueDelayMillis;
+
+    /**
+     * Background collection of a resource.
+     */
+    public interface Task {
+        /**
+         * @throws Exception if the collection fails, it is run again at the next interval
+         */
+        void collect() throws Exception;
+    }
+
+    /**
+     * @param maxConcurrent collections run at once
+     */
+    public CollectionScheduler(final int maxConcurrent) {
+        executor = new ScheduledThreadPoolExecutor(maxConcurrent, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "CollectionScheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Get the scheduler shared by all plugins.
+     *
+     * @return CollectionScheduler
+     */
+    public static CollectionScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Schedule the background collection of a resource, unless it is already
+     * scheduled.
+     *
+     * @param resourceKey unique name of the resource, hashed to its offset
+     * @param intervalMillis interval of the collection
+     * @param task collection of the resource
+     */
+    public void schedule(final String resourceKey, final long intervalMillis, final Task task) {
+        if (tasks.containsKey(resourceKey)) {
+            return;
+        }
+        final long nowMillis = System.currentTimeMillis();
+        final long initialDelayMillis = getInitialDelay(resourceKey, intervalMillis, nowMillis);
+        final ScheduledTask scheduledTask = new ScheduledTask(resourceKey, intervalMillis, nowMillis
+                + initialDelayMillis, task);
+        if (tasks.putIfAbsent(resourceKey, scheduledTask) == null) {
+            log.debug("Collecting " + resourceKey + " every " + intervalMillis + " ms, first in " + initialDelayMillis
+                    + " ms");
+            executor.scheduleAtFixedRate(scheduledTask, initialDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Run the background collection of a scheduled resource once more as soon
+     * as a thread is free, e.g. to go on with a read left unfinished by the
+     * collection the agent asked for. Nothing is run if the collection is
+     * already running then.
+     *
+     * @param resourceKey unique name of the resource
+     */
+    public void runNow(final String resourceKey) {
+        final ScheduledTask scheduledTask = tasks.get(resourceKey);
+        if (scheduledTask == null) {
+            return;
+        }
+        final long requestMillis = System.currentTimeMillis();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                record(Math.max(0, System.currentTimeMillis() - requestMillis));
+                scheduledTask.collect();
+            }
+        });
+    }
+
+    /**
+     * Get the delay until the offset of a resource in its next interval. The
+     * intervals are aligned on the epoch, so the offset of a resource is the
+     * same across agent restarts.
+     *
+     * @param resourceKey unique name of the resource
+     * @param intervalMillis interval of the collection
+     * @param nowMillis current time
+     * @return milliseconds
+     */
+    static long getInitialDelay(final String resourceKey, final long intervalMillis, final long nowMillis) {
+        final long offsetMillis = (resourceKey.hashCode() & Integer.MAX_VALUE) % intervalMillis;
+        return (offsetMillis - nowMillis % intervalMillis + intervalMillis) % intervalMillis;
+    }
+
+    /**
+     * Get the number of background collections run.
+     *
+     * @return long
+     */
+    public long getRunCount() {
+        synchronized (statisticsLock) {
+            return runCount;
+        }
+    }
+
+    /**
+     * Get the time the last background collection waited to start.
+     *
+     * @return milliseconds
+     */
+    public long getLastQueueDelay() {
+        synchronized (statisticsLock) {
+            return lastQueueDelayMillis;
+        }
+    }
+
+    /**
+     * Get the longest time a background collection waited to start.
+     *
+     * @return milliseconds
+     */
+    public long getMaxQueueDelay() {
+        synchronized (statisticsLock) {
+            return maxQueueDelayMillis;
+        }
+    }
+
+    /**
+     * Get the average time the background collections waited to start.
+     *
+     * @return milliseconds
+     */
+    public double getAverageQueueDelay() {
+        synchronized (statisticsLock) {
+            return (runCount == 0 ? 0.0 : (double) totalQueueDelayMillis / runCount);
+        }
+    }
+
+    private void record(final long queueDelayMillis) {
+        synchronized (statisticsLock) {
+            runCount++;
+            totalQueueDelayMillis += queueDelayMillis;
+            lastQueueDelayMillis = queueDelayMillis;
+            maxQueueDelayMillis = Math.max(maxQueueDelayMillis, queueDelayMillis);
+        }
+    }
+
+    private class ScheduledTask implements Runnable {
+        private final String resourceKey;
+        private final long intervalMillis;
+        private final Task task;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private long scheduledMillis;
+
+        ScheduledTask(final String resourceKey, final long intervalMillis, final long firstMillis, final Task task) {
+            this.resourceKey = resourceKey;
+            this.intervalMillis = intervalMillis;
+            this.scheduledMillis = firstMillis;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            final long startMillis = System.currentTimeMillis();
+            record(Math.max(0, startMillis - scheduledMillis));
+            scheduledMillis += intervalMillis;
+            collect();
+        }
+
+        void collect() {
+            // A run asked for by runNow may overlap the scheduled runs
+            if (!running.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                task.collect();
+            } catch (Exception e) {
+                // An exception would cancel the following runs
+                log.warn("Background collection of " + resourceKey + " failed: " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+}
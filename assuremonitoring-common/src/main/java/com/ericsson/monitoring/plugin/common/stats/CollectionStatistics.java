@@ -0,0 +1,317 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.stats;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hyperic.hq.product.MetricNotFoundException;
+import org.hyperic.hq.product.MetricValue;
+
+import com.ericsson.monitoring.plugin.common.log.PluginLogFile;
+import com.ericsson.monitoring.plugin.common.process.ProcessRunner;
+import com.ericsson.monitoring.plugin.common.schedule.CollectionPermits;
+import com.ericsson.monitoring.plugin.common.schedule.CollectionScheduler;
+
+/**
+ * Statistics of the collections of a plugin, reported as its own metrics so
+ * the monitoring overhead can be charted next to the workload.
+ *
+ * The statistics are kept by name, usually the server type of the plugin,
+ * for the life of the agent. They are reported through "self" templates,
+ * e.g. "self:type=collection:${alias}", with the aliases:
+ * <ul>
+ * <li>collection_duration, collection_duration_max: average and longest
+ * milliseconds taken by the collections since the alias was last reported,
+ * so the chart covers every resource of the plugin rather than the one
+ * collected last</li>
+ * <li>bytes_read, lines_scanned, lines_matched, files_opened: totals of the
+ * log scans</li>
+ * <li>cache_hit_ratio: percentage of the metric values answered from the
+ * collection of another alias</li>
+ * <li>queue_delay_last, queue_delay_avg, queue_delay_max, scheduled_runs:
+ * milliseconds the background collections of the {@link CollectionScheduler}
+ * waited to start, and their number; the scheduler is shared by all plugins
+ * of the agent</li>
+ * <li>heavy_permit_wait_avg, heavy_permit_wait_max, heavy_permit_rejections
+ * and the same with light_: milliseconds the collections waited for a
+ * permit of the {@link CollectionPermits} pool, and the collections rejected
+ * for want of one; the pools are also shared by all plugins of the agent</li>
+ * <li>command_runs, command_timeouts, command_duration_avg,
+ * command_duration_max: external commands run by the {@link ProcessRunner}s
+ * of the agent, those killed at their deadline, and their average and
+ * longest milliseconds</li>
+ * </ul>
+ * The statistics of the scheduler, permits and commands are the same for every name,
+ * so only the OMBS Status plugin declares them, in its
+ * "agent-collection-metrics" set.
+ * The collections and scans are also written to the {@link PluginLogFile}
+ * of the plugin, as the scripts wrote their execution time.
+ */
+public class CollectionStatistics {
+    public static final String DOMAIN = "self";
+    public static final String COLLECTION_DURATION = "collection_duration";
+    public static final String COLLECTION_DURATION_MAX = "collection_duration_max";
+    public static final String BYTES_READ = "bytes_read";
+    public static final String LINES_SCANNED = "lines_scanned";
+    public static final String LINES_MATCHED = "lines_matched";
+    public static final String FILES_OPENED = "files_opened";
+    public static final String CACHE_HIT_RATIO = "cache_hit_ratio";
+    public static final String QUEUE_DELAY_LAST = "queue_delay_last";
+    public static final String QUEUE_DELAY_AVG = "queue_delay_avg";
+    public static final String QUEUE_DELAY_MAX = "queue_delay_max";
+    public static final String SCHEDULED_RUNS = "scheduled_runs";
+    public static final String HEAVY_PREFIX = "heavy_";
+    public static final String LIGHT_PREFIX = "light_";
+    public static final String PERMIT_WAIT_AVG = "permit_wait_avg";
+    public static final String PERMIT_WAIT_MAX = "permit_wait_max";
+    public static final String PERMIT_REJECTIONS = "permit_rejections";
+    public static final String COMMAND_RUNS = "command_runs";
+    public static final String COMMAND_TIMEOUTS = "command_timeouts";
+    public static final String COMMAND_DURATION_AVG = "command_duration_avg";
+    public static final String COMMAND_DURATION_MAX = "command_duration_max";
+    private static final Map<String, CollectionStatistics> INSTANCES = new HashMap<String, CollectionStatistics>();
+
+    private final String name;
+    private final PluginLogFile logFile;
+    private final CollectionScheduler scheduler;
+    private final CollectionPermits heavyPermits;
+    private final CollectionPermits lightPermits;
+    private long collectionCount;
+    private long intervalDurationMillis;
+    private long intervalCollectionCount;
+    private double averageDurationMillis;
+    private long intervalMaxDurationMillis = -1;
+    private long maxDurationMillis;
+    private long bytesRead;
+    private long linesScanned;
+    private long linesMatched;
+    private long filesOpened;
+    private long cacheHits;
+    private long cacheMisses;
+
+    /**
+     * Counts of one log scan, filled in while the scan runs and then recorded
+     * at once.
+     */
+    public static class Scan {
+        private long bytesRead;
+        private long linesScanned;
+        private long linesMatched;
+        private long filesOpened;
+
+        public void addBytesRead(final long bytes) {
+            bytesRead += bytes;
+        }
+
+        public void addLine(final boolean matched) {
+            linesScanned++;
+            if (matched) {
+                linesMatched++;
+            }
+        }
+
+        public void addFileOpened() {
+            filesOpened++;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getLinesScanned() {
+            return linesScanned;
+        }
+
+        public long getLinesMatched() {
+            return linesMatched;
+        }
+
+        public long getFilesOpened() {
+            return filesOpened;
+        }
+    }
+
+    /**
+     * @param name of the statistics, for logging
+     */
+    public CollectionStatistics(final String name) {
+        this(name, null);
+    }
+
+    /**
+     * @param name of the statistics, for logging
+     * @param logFile to write the collections to, null not to write them
+     */
+    public CollectionStatistics(final String name, final PluginLogFile logFile) {
+        this(name, logFile, CollectionScheduler.getInstance(), CollectionPermits.getHeavy(), CollectionPermits
+                .getLight());
+    }
+
+    /**
+     * @param name of the statistics, for logging
+     * @param logFile to write the collections to, null not to write them
+     * @param scheduler to report the queue delays of
+     * @param heavyPermits pool to report as heavy_
+     * @param lightPermits pool to report as light_
+     */
+    CollectionStatistics(final String name, final PluginLogFile logFile, final CollectionScheduler scheduler,
+            final CollectionPermits heavyPermits, final CollectionPermits lightPermits) {
+        this.name = name;
+        this.logFile = logFile;
+        this.scheduler = scheduler;
+        this.heavyPermits = heavyPermits;
+        this.lightPermits = lightPermits;
+    }
+
+    /**
+     * Get the statistics shared by all plugins under the given name.
+     *
+     * @param name usually the server type of the plugin
+     * @return CollectionStatistics
+     */
+    public static CollectionStatistics getInstance(final String name) {
+        synchronized (INSTANCES) {
+            CollectionStatistics statistics = INSTANCES.get(name);
+            if (statistics == null) {
+                statistics = new CollectionStatistics(name, PluginLogFile.getInstance(name));
+                INSTANCES.put(name, statistics);
+            }
+            return statistics;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record a collection of the plugin.
+     *
+     * @param durationMillis time the collection took
+     */
+    public synchronized void recordCollection(final long durationMillis) {
+        collectionCount++;
+        intervalDurationMillis += durationMillis;
+        intervalCollectionCount++;
+        intervalMaxDurationMillis = Math.max(intervalMaxDurationMillis, durationMillis);
+        if (logFile != null) {
+            logFile.log("Total execution time is " + durationMillis + " milliseconds.");
+        }
+    }
+
+    /**
+     * Add the counts of a log scan to the totals.
+     *
+     * @param scan counts of the scan, null if nothing was scanned
+     */
+    public synchronized void recordScan(final Scan scan) {
+        if (scan == null) {
+            return;
+        }
+        bytesRead += scan.getBytesRead();
+        linesScanned += scan.getLinesScanned();
+        linesMatched += scan.getLinesMatched();
+        filesOpened += scan.getFilesOpened();
+        if (logFile != null && scan.getFilesOpened() > 0) {
+            logFile.log("Read " + scan.getBytesRead() + " bytes of " + scan.getFilesOpened() + " files, "
+                    + scan.getLinesMatched() + " of " + scan.getLinesScanned() + " lines matched.");
+        }
+    }
+
+    /**
+     * Record a metric value asked for.
+     *
+     * @param hit true if it was answered without collecting
+     */
+    public synchronized void recordCacheLookup(final boolean hit) {
+        if (hit) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+        }
+    }
+
+    public synchronized long getCollectionCount() {
+        return collectionCount;
+    }
+
+    /**
+     * Get the value of a "self" metric alias. The collection durations are
+     * those since the alias was last reported, or the previous value if there
+     * was no collection since.
+     *
+     * @param alias of the metric
+     * @return MetricValue
+     * @throws MetricNotFoundException if the alias is not a statistic
+     */
+    public synchronized MetricValue getValue(final String alias) throws MetricNotFoundException {
+        if (COLLECTION_DURATION.equals(alias)) {
+            if (intervalCollectionCount > 0) {
+                averageDurationMillis = (double) intervalDurationMillis / intervalCollectionCount;
+                intervalDurationMillis = 0;
+                intervalCollectionCount = 0;
+            }
+            return new MetricValue(averageDurationMillis);
+        } else if (COLLECTION_DURATION_MAX.equals(alias)) {
+            if (intervalMaxDurationMillis >= 0) {
+                maxDurationMillis = intervalMaxDurationMillis;
+                intervalMaxDurationMillis = -1;
+            }
+            return new MetricValue(maxDurationMillis);
+        } else if (BYTES_READ.equals(alias)) {
+            return new MetricValue(bytesRead);
+        } else if (LINES_SCANNED.equals(alias)) {
+            return new MetricValue(linesScanned);
+        } else if (LINES_MATCHED.equals(alias)) {
+            return new MetricValue(linesMatched);
+        } else if (FILES_OPENED.equals(alias)) {
+            return new MetricValue(filesOpened);
+        } else if (CACHE_HIT_RATIO.equals(alias)) {
+            final long lookups = cacheHits + cacheMisses;
+            return new MetricValue(lookups == 0 ? 0.0 : 100.0 * cacheHits / lookups);
+        } else if (QUEUE_DELAY_LAST.equals(alias)) {
+            return new MetricValue(scheduler.getLastQueueDelay());
+        } else if (QUEUE_DELAY_AVG.equals(alias)) {
+            return new MetricValue(scheduler.getAverageQueueDelay());
+        } else if (QUEUE_DELAY_MAX.equals(alias)) {
+            return new MetricValue(scheduler.getMaxQueueDelay());
+        } else if (SCHEDULED_RUNS.equals(alias)) {
+            return new MetricValue(scheduler.getRunCount());
+        } else if (COMMAND_RUNS.equals(alias)) {
+            return new MetricValue(ProcessRunner.getRunCount());
+        } else if (COMMAND_TIMEOUTS.equals(alias)) {
+            return new MetricValue(ProcessRunner.getTimeoutCount());
+        } else if (COMMAND_DURATION_AVG.equals(alias)) {
+            return new MetricValue(ProcessRunner.getAverageMillis());
+        } else if (COMMAND_DURATION_MAX.equals(alias)) {
+            return new MetricValue(ProcessRunner.getMaxMillis());
+        } else if (alias.startsWith(HEAVY_PREFIX)) {
+            return getPermitValue(heavyPermits, alias.substring(HEAVY_PREFIX.length()), alias);
+        } else if (alias.startsWith(LIGHT_PREFIX)) {
+            return getPermitValue(lightPermits, alias.substring(LIGHT_PREFIX.length()), alias);
+        }
+        throw new MetricNotFoundException("Unknown collection statistic " + alias + " of " + name);
+    }
+
+    private MetricValue getPermitValue(final CollectionPermits permits, final String statistic, final String alias)
+            throws MetricNotFoundException {
+        if (PERMIT_WAIT_AVG.equals(statistic)) {
+            return new MetricValue(permits.getAverageWait());
+        } else if (PERMIT_WAIT_MAX.equals(statistic)) {
+            return new MetricValue(permits.getMaxWait());
+        } else if (PERMIT_REJECTIONS.equals(statistic)) {
+            return new MetricValue(permits.getRejectedCount());
+        }
+        throw new MetricNotFoundException("Unknown collection statistic " + alias + " of " + name);
+    }
+}
@@ -0,0 +1,86 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.status;
+
+import java.io.File;
+
+import org.hyperic.hq.product.*;
+
+import com.ericsson.monitoring.plugin.common.schedule.CollectionPermits;
+import com.ericsson.monitoring.plugin.common.stats.CollectionStatistics;
+
+/**
+ * Measurement plugin of the statuses raised by an alarm file, replacing
+ * ombs_status.pl and rollingsnapshot_status.pl.
+ *
+ * The metric template defines the alarm file, e.g.
+ * "alarm:file=/eniq/admin/etc/ombs_backup_alarm:${alias}". As with the
+ * scripts, the status is down while the file exists and every other alias is
+ * then unreachable; otherwise every alias is 1.
+ *
+ * The {@link CollectionStatistics} of the plugin are reported through the
+ * "self:type=collection:${alias}" template.
+ */
+public class AlarmFileMeasurementPlugin extends MeasurementPlugin {
+    private static final String DOMAIN = "alarm";
+    private static final String FILE_PROPERTY = "file";
+    private static final String AVAILABILITY = "Availability";
+
+    @Override
+    public MetricValue getValue(final Metric metric) throws PluginException, MetricNotFoundException,
+            MetricUnreachableException {
+        final CollectionStatistics statistics = CollectionStatistics.getInstance(getName());
+        if (CollectionStatistics.DOMAIN.equals(metric.getDomainName())) {
+            return statistics.getValue(metric.getAttributeName());
+        }
+        if (!DOMAIN.equals(metric.getDomainName())) {
+            return super.getValue(metric);
+        }
+
+        final String fileName = metric.getObjectProperty(FILE_PROPERTY);
+        if (fileName == null) {
+            throw new MetricNotFoundException("Metric template " + metric + " does not define " + FILE_PROPERTY);
+        }
+
+        final boolean alarmRaised;
+        final CollectionPermits permits = CollectionPermits.getLight();
+        permits.acquire();
+        final long startMillis = System.currentTimeMillis();
+        try {
+            alarmRaised = isAlarmRaised(new File(fileName));
+        } finally {
+            permits.release();
+            statistics.recordCollection(System.currentTimeMillis() - startMillis);
+        }
+
+        if (alarmRaised) {
+            if (getLog().isDebugEnabled()) {
+                getLog().debug("Alarm file " + fileName + " is present");
+            }
+            if (AVAILABILITY.equals(metric.getAttributeName())) {
+                return new MetricValue(Metric.AVAIL_DOWN);
+            }
+            throw new MetricUnreachableException("Alarm file " + fileName + " is present");
+        }
+        return new MetricValue(Metric.AVAIL_UP);
+    }
+
+    /**
+     * Check whether the alarm is raised.
+     *
+     * @param alarmFile flag file of the alarm
+     * @return true if the file exists
+     */
+    public boolean isAlarmRaised(final File alarmFile) {
+        return alarmFile.isFile();
+    }
+}
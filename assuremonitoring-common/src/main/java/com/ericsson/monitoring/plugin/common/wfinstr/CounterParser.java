@@ -0,0 +1,135 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.wfinstr;
+
+import java.util.Arrays;
+
+/**
+ * Parser of the "name=value" counters of a wfinstr line, straight from the
+ * bytes read.
+ *
+ * It finds the same pairs as the "(\w+)=(\w+)" pattern did, keeping the pairs
+ * of a numeric value, and sums the values of each counter of the line into the
+ * {@link CounterSlots} of the counter. The arrays are reused from one line to
+ * the next, so parsing a line allocates nothing once its counters have slots.
+ */
+class CounterParser {
+    // Longer values could overflow a long
+    private static final int MAX_VALUE_DIGITS = 18;
+
+    private final CounterSlots slots;
+    private long[] values = new long[0];
+    private final int[] parsedSlots = new int[CounterSlots.MAX_SLOTS];
+    private int parsedCount;
+
+    CounterParser(final CounterSlots slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Parse the counters of a line, replacing those of the previous line.
+     *
+     * @param buffer holding the line
+     * @param start of the line
+     * @param end of the line, exclusive
+     * @return number of distinct counters in the line
+     */
+    int parse(final byte[] buffer, final int start, final int end) {
+        for (int i = 0; i < parsedCount; i++) {
+            values[parsedSlots[i]] = 0;
+        }
+        parsedCount = 0;
+
+        int nameStart = -1;
+        int i = start;
+        while (i < end) {
+            final byte b = buffer[i];
+            if (isWordByte(b)) {
+                if (nameStart < 0) {
+                    nameStart = i;
+                }
+                i++;
+                continue;
+            }
+            if (b != '=' || nameStart < 0) {
+                nameStart = -1;
+                i++;
+                continue;
+            }
+
+            final int nameEnd = i;
+            final int valueStart = ++i;
+            boolean digits = true;
+            while (i < end && isWordByte(buffer[i])) {
+                digits &= (buffer[i] >= '0' && buffer[i] <= '9');
+                i++;
+            }
+            if (i > valueStart && digits && i - valueStart <= MAX_VALUE_DIGITS) {
+                add(buffer, nameStart, nameEnd, parseLong(buffer, valueStart, i));
+            }
+            // The value of a pair cannot be the name of the next one
+            nameStart = -1;
+        }
+        return parsedCount;
+    }
+
+    /**
+     * @param index of a counter of the line, below the count returned by {@link #parse}
+     * @return slot of the counter
+     */
+    int getSlot(final int index) {
+        return parsedSlots[index];
+    }
+
+    /**
+     * @param slot of a counter of the line
+     * @return value of the counter, summed over the line
+     */
+    long getValue(final int slot) {
+        return values[slot];
+    }
+
+    private void add(final byte[] buffer, final int nameStart, final int nameEnd, final long value) {
+        final int slot = slots.getSlot(buffer, nameStart, nameEnd);
+        if (slot == CounterSlots.NO_SLOT) {
+            return;
+        }
+        if (slot >= values.length) {
+            values = Arrays.copyOf(values, slots.size());
+        }
+        if (values[slot] == 0 && !isParsed(slot)) {
+            parsedSlots[parsedCount++] = slot;
+        }
+        values[slot] += value;
+    }
+
+    private boolean isParsed(final int slot) {
+        for (int i = 0; i < parsedCount; i++) {
+            if (parsedSlots[i] == slot) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long parseLong(final byte[] buffer, final int start, final int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (buffer[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean isWordByte(final byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+    }
+}
@@ -0,0 +1,116 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.wfinstr;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Slots of the wfinstr counters, so the counters of a line are summed into
+ * arrays of primitive longs rather than maps.
+ *
+ * The counters of the SGEH, LTEES and LTEEFA features have preassigned slots.
+ * Any other counter is assigned the next slot the first time it is found, up
+ * to {@link #MAX_SLOTS}. Counter names are looked up straight from the bytes
+ * of the line, so no String is created for a counter once it has a slot.
+ *
+ * Slots are assigned by the thread holding the lock of the collector; the
+ * names can be read by any thread.
+ */
+class CounterSlots {
+    static final String[] KNOWN_COUNTERS = { "Succ23", "Err23", "Succ4", "Err4", "Files", "Bytes", "Events",
+            "ProcessedCount", "HFA", "CFA" };
+    static final int MAX_SLOTS = 1024;
+    static final int NO_SLOT = -1;
+    private static final Charset COUNTER_CHARSET = Charset.forName("ISO-8859-1");
+    private static final int TABLE_SIZE = 2 * MAX_SLOTS;
+
+    // Open addressing table of slot + 1, 0 for an empty entry
+    private final int[] table = new int[TABLE_SIZE];
+    private final byte[][] keys = new byte[MAX_SLOTS][];
+    private volatile String[] names = new String[0];
+
+    CounterSlots() {
+        for (final String name : KNOWN_COUNTERS) {
+            getSlot(name);
+        }
+    }
+
+    /**
+     * @return number of slots assigned
+     */
+    int size() {
+        return names.length;
+    }
+
+    String getName(final int slot) {
+        return names[slot];
+    }
+
+    /**
+     * Get the slot of a counter, assigning one if it has none.
+     *
+     * @param name of the counter
+     * @return slot, {@link #NO_SLOT} if all slots are assigned
+     */
+    int getSlot(final String name) {
+        final byte[] bytes = name.getBytes(COUNTER_CHARSET);
+        return getSlot(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Get the slot of a counter, assigning one if it has none.
+     *
+     * @param buffer holding the name of the counter
+     * @param start of the name
+     * @param end of the name, exclusive
+     * @return slot, {@link #NO_SLOT} if all slots are assigned
+     */
+    int getSlot(final byte[] buffer, final int start, final int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        int index = (hash ^ (hash >>> 16)) & (TABLE_SIZE - 1);
+        while (table[index] != 0) {
+            final int slot = table[index] - 1;
+            if (equals(keys[slot], buffer, start, end)) {
+                return slot;
+            }
+            index = (index + 1) & (TABLE_SIZE - 1);
+        }
+
+        final int slot = names.length;
+        if (slot == MAX_SLOTS) {
+            return NO_SLOT;
+        }
+        keys[slot] = Arrays.copyOfRange(buffer, start, end);
+        table[index] = slot + 1;
+        final String[] newNames = Arrays.copyOf(names, slot + 1);
+        newNames[slot] = new String(buffer, start, end - start, COUNTER_CHARSET);
+        names = newNames;
+        return slot;
+    }
+
+    private static boolean equals(final byte[] key, final byte[] buffer, final int start, final int end) {
+        if (key.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,198 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.wfinstr;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Per period sums of the wfinstr counters for one feature keyword, hourly
+ * unless the collector reads another time prefix. The largest and the last
+ * value of each counter in a line are kept along with the sum.
+ *
+ * The counters of a period are held in long arrays indexed by the
+ * {@link CounterSlots} of the counters, so adding the counters of a line
+ * allocates nothing once its period is known.
+ */
+public class KeywordAccumulator {
+    static final int SUM = 0;
+    static final int MAX = 1;
+    static final int LAST = 2;
+    private static final int RETAINED_PERIODS = 3;
+
+    private final String keyword;
+    private final CounterSlots slots;
+    private final SortedMap<String, PeriodCounters> periodCounters = new TreeMap<String, PeriodCounters>();
+
+    KeywordAccumulator(final String keyword, final CounterSlots slots) {
+        this.keyword = keyword;
+        this.slots = slots;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * Get the counters summed for the given period.
+     *
+     * @param period as formatted in the time prefix of the lines, e.g. "YYYY-MM-DD HH"
+     * @return copy of the counters, or null if no line matched in that period
+     */
+    public synchronized Map<String, Long> getCounters(final String period) {
+        final PeriodCounters counters = periodCounters.get(period);
+        return (counters == null ? null : counters.toMap(SUM));
+    }
+
+    /**
+     * Get the largest value of the counters in a line of the given period.
+     *
+     * @param period as formatted in the time prefix of the lines
+     * @return copy of the counters, or null if no line matched in that period
+     */
+    public synchronized Map<String, Long> getMaxCounters(final String period) {
+        final PeriodCounters counters = periodCounters.get(period);
+        return (counters == null ? null : counters.toMap(MAX));
+    }
+
+    /**
+     * Get the value of the counters in the last line of the given period
+     * holding them.
+     *
+     * @param period as formatted in the time prefix of the lines
+     * @return copy of the counters, or null if no line matched in that period
+     */
+    public synchronized Map<String, Long> getLastCounters(final String period) {
+        final PeriodCounters counters = periodCounters.get(period);
+        return (counters == null ? null : counters.toMap(LAST));
+    }
+
+    /**
+     * Get the sum, the largest and the last value of the counters of every
+     * retained period.
+     *
+     * @return copy of the counters keyed by period, each an array indexed by
+     *         {@link #SUM}, {@link #MAX} and {@link #LAST}
+     */
+    synchronized SortedMap<String, Map<String, long[]>> getAggregates() {
+        final SortedMap<String, Map<String, long[]>> copy = new TreeMap<String, Map<String, long[]>>();
+        for (final Map.Entry<String, PeriodCounters> period : periodCounters.entrySet()) {
+            copy.put(period.getKey(), period.getValue().toAggregates());
+        }
+        return copy;
+    }
+
+    /**
+     * Restore the aggregates of a counter, as returned by {@link #getAggregates()}.
+     */
+    synchronized void restore(final String period, final String counter, final long[] aggregates) {
+        final int slot = slots.getSlot(counter);
+        if (slot != CounterSlots.NO_SLOT) {
+            getPeriodCounters(period).restore(slot, aggregates);
+        }
+    }
+
+    /**
+     * Add the counters of the line last parsed.
+     *
+     * @param period of the line
+     * @param parser holding the counters of the line
+     * @param counterCount number of counters returned by the parser
+     */
+    synchronized void add(final String period, final CounterParser parser, final int counterCount) {
+        final PeriodCounters counters = getPeriodCounters(period);
+        for (int i = 0; i < counterCount; i++) {
+            final int slot = parser.getSlot(i);
+            counters.add(slot, parser.getValue(slot));
+        }
+    }
+
+    /**
+     * Drop the counters of every period, e.g. to accumulate them again.
+     */
+    synchronized void clear() {
+        periodCounters.clear();
+    }
+
+    synchronized void trim() {
+        while (periodCounters.size() > RETAINED_PERIODS) {
+            periodCounters.remove(periodCounters.firstKey());
+        }
+    }
+
+    private PeriodCounters getPeriodCounters(final String period) {
+        PeriodCounters counters = periodCounters.get(period);
+        if (counters == null) {
+            counters = new PeriodCounters();
+            periodCounters.put(period, counters);
+        }
+        return counters;
+    }
+
+    /**
+     * Aggregates of the counters of one period, with the counters found in the
+     * period told apart from those summing to 0.
+     */
+    private final class PeriodCounters {
+        private long[][] values = new long[3][slots.size()];
+        private boolean[] found = new boolean[slots.size()];
+
+        void add(final int slot, final long value) {
+            ensureCapacity(slot);
+            values[SUM][slot] += value;
+            values[MAX][slot] = (found[slot] ? Math.max(values[MAX][slot], value) : value);
+            values[LAST][slot] = value;
+            found[slot] = true;
+        }
+
+        void restore(final int slot, final long[] aggregates) {
+            ensureCapacity(slot);
+            for (int aggregate = SUM; aggregate <= LAST; aggregate++) {
+                values[aggregate][slot] = aggregates[aggregate];
+            }
+            found[slot] = true;
+        }
+
+        Map<String, Long> toMap(final int aggregate) {
+            final Map<String, Long> counters = new HashMap<String, Long>();
+            for (int slot = 0; slot < found.length; slot++) {
+                if (found[slot]) {
+                    counters.put(slots.getName(slot), values[aggregate][slot]);
+                }
+            }
+            return counters;
+        }
+
+        Map<String, long[]> toAggregates() {
+            final Map<String, long[]> counters = new HashMap<String, long[]>();
+            for (int slot = 0; slot < found.length; slot++) {
+                if (found[slot]) {
+                    counters.put(slots.getName(slot), new long[] { values[SUM][slot], values[MAX][slot],
+                            values[LAST][slot] });
+                }
+            }
+            return counters;
+        }
+
+        private void ensureCapacity(final int slot) {
+            if (slot >= found.length) {
+                for (int aggregate = SUM; aggregate <= LAST; aggregate++) {
+                    values[aggregate] = Arrays.copyOf(values[aggregate], slots.size());
+                }
+                found = Arrays.copyOf(found, slots.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.wfinstr;
+
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Aho-Corasick matcher of the feature keywords of the wfinstr log.
+ *
+ * The keywords are compiled into one automaton, so a line is scanned once
+ * whatever the number of features subscribed, straight from the bytes read,
+ * and a line without any keyword is rejected without a String being created.
+ * The automaton is a full transition table over the ISO-8859-1 bytes of the
+ * keywords, built once per set of keywords.
+ */
+public class KeywordMatcher {
+    private static final Charset KEYWORD_CHARSET = Charset.forName("ISO-8859-1");
+    private static final int ALPHABET_SIZE = 256;
+    private static final int[] NO_KEYWORDS = new int[0];
+
+    private final int keywordCount;
+    private final int[] transitions;
+    private final int[][] outputs;
+
+    /**
+     * @param keywords to match, identified in the results by their index
+     */
+    public KeywordMatcher(final List<String> keywords) {
+        keywordCount = keywords.size();
+
+        // Trie of the keywords, state 0 being the root
+        final List<int[]> trie = new ArrayList<int[]>();
+        final List<int[]> trieOutputs = new ArrayList<int[]>();
+        trie.add(newState());
+        trieOutputs.add(NO_KEYWORDS);
+        for (int keyword = 0; keyword < keywordCount; keyword++) {
+            int state = 0;
+            for (final byte b : keywords.get(keyword).getBytes(KEYWORD_CHARSET)) {
+                final int symbol = b & 0xff;
+                if (trie.get(state)[symbol] < 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(newState());
+                    trieOutputs.add(NO_KEYWORDS);
+                }
+                state = trie.get(state)[symbol];
+            }
+            trieOutputs.set(state, append(trieOutputs.get(state), keyword));
+        }
+
+        // Breadth first, so the failure state of a state is complete before it is used
+        final int stateCount = trie.size();
+        transitions = new int[stateCount * ALPHABET_SIZE];
+        outputs = new int[stateCount][];
+        final int[] failures = new int[stateCount];
+        final int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        outputs[0] = trieOutputs.get(0);
+        for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+            final int next = trie.get(0)[symbol];
+            if (next > 0) {
+                transitions[symbol] = next;
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            final int state = queue[head++];
+            outputs[state] = merge(trieOutputs.get(state), outputs[failures[state]]);
+            for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+                final int next = trie.get(state)[symbol];
+                final int fallback = transitions[failures[state] * ALPHABET_SIZE + symbol];
+                if (next > 0) {
+                    failures[next] = fallback;
+                    transitions[state * ALPHABET_SIZE + symbol] = next;
+                    queue[tail++] = next;
+                } else {
+                    transitions[state * ALPHABET_SIZE + symbol] = fallback;
+                }
+            }
+        }
+    }
+
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+
+    /**
+     * Find the keywords in a line.
+     *
+     * @param buffer holding the line
+     * @param start of the bytes to scan
+     * @param end of the bytes to scan, exclusive
+     * @param found set to true at the index of each keyword in the bytes,
+     *            of at least {@link #getKeywordCount()} elements
+     * @return number of distinct keywords found
+     */
+    public int match(final byte[] buffer, final int start, final int end, final boolean[] found) {
+        Arrays.fill(found, 0, keywordCount, false);
+        int foundCount = 0;
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            state = transitions[state * ALPHABET_SIZE + (buffer[i] & 0xff)];
+            for (final int keyword : outputs[state]) {
+                if (!found[keyword]) {
+                    found[keyword] = true;
+                    foundCount++;
+                }
+            }
+        }
+        return foundCount;
+    }
+
+    private static int[] newState() {
+        final int[] state = new int[ALPHABET_SIZE];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int[] append(final int[] keywords, final int keyword) {
+        final int[] result = Arrays.copyOf(keywords, keywords.length + 1);
+        result[keywords.length] = keyword;
+        return result;
+    }
+
+    private static int[] merge(final int[] keywords, final int[] inherited) {
+        if (inherited.length == 0) {
+            return keywords;
+        }
+        int[] result = keywords;
+        for (final int keyword : inherited) {
+            result = append(result, keyword);
+        }
+        return result;
+    }
+}
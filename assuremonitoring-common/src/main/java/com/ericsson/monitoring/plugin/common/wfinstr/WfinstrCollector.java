@@ -0,0 +1,579 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.wfinstr;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.*;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ericsson.monitoring.plugin.common.checkpoint.Checkpoint;
+import com.ericsson.monitoring.plugin.common.checkpoint.CheckpointStore;
+import com.ericsson.monitoring.plugin.common.log.FileIdentity;
+import com.ericsson.monitoring.plugin.common.log.LogLineReader;
+import com.ericsson.monitoring.plugin.common.log.LogTailer;
+import com.ericsson.monitoring.plugin.common.log.ReadThrottle;
+import com.ericsson.monitoring.plugin.common.log.ReverseLineReader;
+import com.ericsson.monitoring.plugin.common.log.TimeOrderedLogSeeker;
+import com.ericsson.monitoring.plugin.common.log.TimePrefix;
+import com.ericsson.monitoring.plugin.common.stats.CollectionStatistics;
+
+/**
+ * Shared single-pass reader of the mediation gateway wfinstr log.
+ *
+ * One collector exists per log file for the whole agent. The SGEH, LTEES and
+ * LTEEFA measurement plugins subscribe their keyword and the collector reads
+ * each appended line once, routing its counters to every subscribed keyword
+ * found in the line by a {@link KeywordMatcher}. The counters are parsed from
+ * the bytes read by a {@link CounterParser}, so the lines of a keyword are
+ * summed without allocating, but for the first line of each period.
+ *
+ * The counters are accumulated per hour, or per the period of another
+ * {@link TimePrefix} of the lines, with one collector per file and time
+ * prefix.
+ *
+ * The log is followed across its rotations by a {@link LogTailer}, so the
+ * lines written to the log just before it was rotated are read from the
+ * rotated file once, and not missed nor read again with the rotated files.
+ *
+ * The position of the tailer and the counters are checkpointed after each
+ * collection, so that after an agent restart the collector reads on from the
+ * position instead of reading the log and its rotated files again. Otherwise
+ * the log is read from the first line of the retained periods, found by
+ * {@link TimeOrderedLogSeeker}, rather than from its start.
+ *
+ * Catching up with the retained periods may read hundreds of megabytes, so a
+ * collection can be given a byte budget: the catch up and the tailer then go
+ * on from where they stopped at the next collection, and the lock of the
+ * collector is only held for one budget at a time.
+ */
+public class WfinstrCollector {
+    private static final int RETAINED_PERIODS = 3;
+    private static final Charset LOG_CHARSET = Charset.forName("ISO-8859-1");
+    private static final Map<String, WfinstrCollector> COLLECTORS = new HashMap<String, WfinstrCollector>();
+    private static final char AGGREGATE_SEPARATOR = '|';
+    private static final char AGGREGATE_VALUE_SEPARATOR = ',';
+
+    private final Log log = LogFactory.getLog(WfinstrCollector.class);
+    private final File logFile;
+    private final TimePrefix timePrefix;
+    private final CheckpointStore checkpointStore;
+    private final Map<String, KeywordAccumulator> accumulators = new LinkedHashMap<String, KeywordAccumulator>();
+    private final List<KeywordAccumulator> pendingAccumulators = new ArrayList<KeywordAccumulator>();
+    private final List<KeywordAccumulator> catchUpAccumulators = new ArrayList<KeywordAccumulator>();
+    private final LinkedList<CatchUpRead> catchUpReads = new LinkedList<CatchUpRead>();
+    // Identity of the log when the catch up of its lines before the tailer started, null if none is read
+    private FileIdentity catchUpIdentity;
+    private final CounterSlots slots = new CounterSlots();
+    private final CounterParser parser = new CounterParser(slots);
+    private String period;
+    private LogTailer tailer;
+    private long checkpointOffset = -1;
+    private ReadThrottle throttle;
+    private CollectionStatistics.Scan scan;
+
+    WfinstrCollector(final File logFile) {
+        this(logFile, null);
+    }
+
+    /**
+     * @param logFile wfinstr log file
+     * @param checkpointStore to resume from and save to, null not to checkpoint
+     */
+    public WfinstrCollector(final File logFile, final CheckpointStore checkpointStore) {
+        this(logFile, new TimePrefix(TimePrefix.HOUR_FORMAT), checkpointStore);
+    }
+
+    /**
+     * @param logFile log file
+     * @param timePrefix of the lines, the counters being accumulated per period of the prefix
+     * @param checkpointStore to resume from and save to, null not to checkpoint
+     */
+    public WfinstrCollector(final File logFile, final TimePrefix timePrefix, final CheckpointStore checkpointStore) {
+        this.logFile = logFile;
+        this.timePrefix = timePrefix;
+        this.checkpointStore = checkpointStore;
+        this.tailer = new LogTailer(logFile);
+    }
+
+    /**
+     * Get the collector shared by all plugins for the given log file, with
+     * hourly counters.
+     *
+     * @param logFile wfinstr log file
+     * @return WfinstrCollector
+     */
+    public static WfinstrCollector getInstance(final File logFile) {
+        return getInstance(logFile, new TimePrefix(TimePrefix.HOUR_FORMAT));
+    }
+
+    /**
+     * Get the collector shared by all plugins for the given log file and time
+     * prefix.
+     *
+     * @param logFile log file
+     * @param timePrefix of the lines
+     * @return WfinstrCollector
+     */
+    public static WfinstrCollector getInstance(final File logFile, final TimePrefix timePrefix) {
+        final String key = logFile.getAbsolutePath() + AGGREGATE_SEPARATOR + timePrefix.getFormat();
+        synchronized (COLLECTORS) {
+            WfinstrCollector collector = COLLECTORS.get(key);
+            if (collector == null) {
+                collector = new WfinstrCollector(logFile, timePrefix, CheckpointStore.getInstance());
+                COLLECTORS.put(key, collector);
+            }
+            return collector;
+        }
+    }
+
+    public File getLogFile() {
+        return logFile;
+    }
+
+    public TimePrefix getTimePrefix() {
+        return timePrefix;
+    }
+
+    /**
+     * Register a feature keyword. A keyword subscribed after the collector has
+     * started is caught up with the lines already read on the next collection.
+     *
+     * @param keyword of the feature in the log file
+     * @return accumulator holding the counters of the keyword
+     */
+    public synchronized KeywordAccumulator subscribe(final String keyword) {
+        KeywordAccumulator accumulator = accumulators.get(keyword);
+        if (accumulator == null) {
+            accumulator = new KeywordAccumulator(keyword, slots);
+            accumulators.put(keyword, accumulator);
+            pendingAccumulators.add(accumulator);
+        }
+        return accumulator;
+    }
+
+    /**
+     * Parse the lines appended to the log since the previous collection.
+     *
+     * @throws IOException if the log file cannot be read
+     */
+    public void collect() throws IOException {
+        collect(ReadThrottle.forFile(logFile), Long.MAX_VALUE);
+    }
+
+    /**
+     * Parse at most the given bytes of the lines the keywords subscribed since
+     * the previous collection are caught up with, then of the lines appended
+     * to the log.
+     *
+     * @param readThrottle budget of the read, shared by the collections of one long read
+     * @param maxBytes to read, Long.MAX_VALUE to read all
+     * @return true if every keyword is caught up and the log was read to its end, false if more is left to read
+     * @throws IOException if the log file cannot be read
+     */
+    public synchronized boolean collect(final ReadThrottle readThrottle, final long maxBytes) throws IOException {
+        throttle = readThrottle;
+        scan = new CollectionStatistics.Scan();
+        final long startBytes = throttle.getBytesRead();
+        if (!tailer.isPositioned()) {
+            resume();
+        }
+        if (!tailer.isPositioned() || (catchUpAccumulators.isEmpty()
+                && pendingAccumulators.size() == accumulators.size() && !pendingAccumulators.isEmpty())) {
+            // The tailer reads for no keyword yet: it starts at the retained periods of the log, and only the rotated
+            // files before it are caught up with
+            final String firstPeriod = getFirstRetainedPeriod();
+            tailer.seek(seek(logFile, firstPeriod));
+            catchUpAccumulators.addAll(accumulators.values());
+            pendingAccumulators.clear();
+            addRotatedFileReads(firstPeriod);
+        } else if (catchUpIdentity != null && !FileIdentity.of(logFile).isContinuationOf(catchUpIdentity)) {
+            // The lines before the tailer were moved to a rotated file, they are caught up again from there once the
+            // tailer has read the rotation
+            log.info(logFile + " was rotated while catching up " + catchUpAccumulators + ", catching up again");
+            for (final KeywordAccumulator accumulator : catchUpAccumulators) {
+                accumulator.clear();
+            }
+            pendingAccumulators.addAll(catchUpAccumulators);
+            catchUpAccumulators.clear();
+            catchUpReads.clear();
+            catchUpIdentity = null;
+        }
+        catchUp(maxBytes - (throttle.getBytesRead() - startBytes));
+
+        final List<KeywordAccumulator> tailedAccumulators = new ArrayList<KeywordAccumulator>(accumulators.values());
+        tailedAccumulators.removeAll(catchUpAccumulators);
+        tailedAccumulators.removeAll(pendingAccumulators);
+        int filesRead = 0;
+        boolean tailerBehind = false;
+        if (!tailedAccumulators.isEmpty()) {
+            final long tailBytes = maxBytes - (throttle.getBytesRead() - startBytes);
+            if (tailBytes > 0) {
+                filesRead = tailer.read(newLineHandler(tailedAccumulators), throttle, tailBytes);
+                tailerBehind = tailer.isBehind();
+            } else {
+                tailerBehind = true;
+            }
+        }
+        for (int i = 0; i < filesRead; i++) {
+            scan.addFileOpened();
+        }
+
+        // The keywords subscribed since are caught up after the tailer has read on, so the lines of a rotation the
+        // tailer reads are not read again by the catch up
+        if (catchUpAccumulators.isEmpty() && !pendingAccumulators.isEmpty() && !tailerBehind) {
+            catchUpAccumulators.addAll(pendingAccumulators);
+            pendingAccumulators.clear();
+            final String firstPeriod = getFirstRetainedPeriod();
+            addRotatedFileReads(firstPeriod);
+            catchUpReads.add(new CatchUpRead(logFile, Math.min(seek(logFile, firstPeriod), tailer.getOffset())));
+            catchUpIdentity = tailer.getIdentity();
+            catchUp(maxBytes - (throttle.getBytesRead() - startBytes));
+        }
+
+        for (final KeywordAccumulator accumulator : accumulators.values()) {
+            accumulator.trim();
+        }
+        if (filesRead > 1 || tailer.getOffset() != checkpointOffset) {
+            saveCheckpoint();
+        }
+        final long bytesRead = throttle.getBytesRead() - startBytes;
+        scan.addBytesRead(bytesRead);
+        if (log.isDebugEnabled()) {
+            log.debug("Read " + bytesRead + " bytes of " + logFile + ", throttled for "
+                    + throttle.getThrottledMillis() + " ms");
+        }
+        return catchUpAccumulators.isEmpty() && pendingAccumulators.isEmpty() && !tailerBehind;
+    }
+
+    /**
+     * Get the budget of the last collection, with the bytes it read and the
+     * time it was throttled.
+     *
+     * @return ReadThrottle, null before the first collection
+     */
+    public synchronized ReadThrottle getLastReadThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Get the counts of the last collection, with the lines it read and the
+     * lines of a subscribed keyword.
+     *
+     * @return Scan, null before the first collection
+     */
+    public synchronized CollectionStatistics.Scan getLastScan() {
+        return scan;
+    }
+
+    /**
+     * Get the byte offset of the first line not parsed yet.
+     *
+     * @return offset into the log file, -1 before the first collection
+     */
+    public synchronized long getOffset() {
+        return tailer.getOffset();
+    }
+
+    private String getCollectorName() {
+        final String name = "wfinstr" + logFile.getAbsolutePath().replaceAll("[^\\w.\\-]", "_");
+        if (TimePrefix.HOUR_FORMAT.equals(timePrefix.getFormat())) {
+            return name;
+        }
+        return name + "_" + timePrefix.getFormat().replaceAll("[^\\w.\\-]", "_");
+    }
+
+    /**
+     * Restore the position and the counters of the checkpoint, if the lines
+     * after the position can still be read, from the log or from its rotated
+     * file. Subscribed keywords missing from the checkpoint stay pending, to
+     * be caught up.
+     */
+    private void resume() throws IOException {
+        if (checkpointStore == null) {
+            return;
+        }
+        final Checkpoint checkpoint = checkpointStore.load(getCollectorName());
+        if (checkpoint == null || !logFile.getAbsolutePath().equals(checkpoint.getFilePath())) {
+            return;
+        }
+        final LogTailer resumedTailer = new LogTailer(logFile);
+        resumedTailer.setPosition(checkpoint.getIdentity(), checkpoint.getOffset(), checkpoint.getFingerprint());
+        if (!resumedTailer.canFollow()) {
+            return;
+        }
+
+        for (final Map.Entry<String, String> aggregate : checkpoint.getAggregates().entrySet()) {
+            final String name = aggregate.getKey();
+            final int periodStart = name.indexOf(AGGREGATE_SEPARATOR);
+            final int counterStart = name.indexOf(AGGREGATE_SEPARATOR, periodStart + 1);
+            if (periodStart < 0 || counterStart < 0) {
+                continue;
+            }
+
+            final String keyword = name.substring(0, periodStart);
+            KeywordAccumulator accumulator = accumulators.get(keyword);
+            if (accumulator == null) {
+                accumulator = new KeywordAccumulator(keyword, slots);
+                accumulators.put(keyword, accumulator);
+            }
+            pendingAccumulators.remove(accumulator);
+            try {
+                accumulator.restore(name.substring(periodStart + 1, counterStart), name.substring(counterStart + 1),
+                        parseAggregates(aggregate.getValue()));
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring corrupt checkpoint counter " + name);
+            }
+        }
+        tailer = resumedTailer;
+        checkpointOffset = checkpoint.getOffset();
+        log.info("Resuming " + logFile + " from offset " + checkpointOffset);
+    }
+
+    /**
+     * Save the position of the tailer and the counters of the keywords it
+     * reads for. The keywords still to be caught up are left out, so they are
+     * caught up again after a restart.
+     */
+    private void saveCheckpoint() {
+        if (checkpointStore == null) {
+            return;
+        }
+        final Checkpoint checkpoint = new Checkpoint(logFile.getAbsolutePath(), tailer.getIdentity(),
+                tailer.getOffset(), tailer.getFingerprint(), System.currentTimeMillis());
+        for (final KeywordAccumulator accumulator : accumulators.values()) {
+            if (catchUpAccumulators.contains(accumulator) || pendingAccumulators.contains(accumulator)) {
+                continue;
+            }
+            for (final Map.Entry<String, Map<String, long[]>> period : accumulator.getAggregates().entrySet()) {
+                for (final Map.Entry<String, long[]> counter : period.getValue().entrySet()) {
+                    final long[] aggregates = counter.getValue();
+                    checkpoint.getAggregates().put(
+                            accumulator.getKeyword() + AGGREGATE_SEPARATOR + period.getKey() + AGGREGATE_SEPARATOR
+                                    + counter.getKey(),
+                            String.valueOf(aggregates[KeywordAccumulator.SUM]) + AGGREGATE_VALUE_SEPARATOR
+                                    + aggregates[KeywordAccumulator.MAX] + AGGREGATE_VALUE_SEPARATOR
+                                    + aggregates[KeywordAccumulator.LAST]);
+                }
+            }
+        }
+
+        try {
+            checkpointStore.save(getCollectorName(), checkpoint);
+            checkpointOffset = tailer.getOffset();
+        } catch (IOException e) {
+            log.warn("Unable to checkpoint " + logFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse the aggregates of a checkpointed counter, "sum,max,last".
+     */
+    private static long[] parseAggregates(final String value) {
+        final String[] values = value.split(String.valueOf(AGGREGATE_VALUE_SEPARATOR));
+        if (values.length != KeywordAccumulator.LAST + 1) {
+            throw new NumberFormatException("Expected sum,max,last: " + value);
+        }
+        final long[] aggregates = new long[values.length];
+        for (int aggregate = KeywordAccumulator.SUM; aggregate <= KeywordAccumulator.LAST; aggregate++) {
+            aggregates[aggregate] = Long.parseLong(values[aggregate]);
+        }
+        return aggregates;
+    }
+
+    private void addRotatedFileReads(final String firstPeriod) throws IOException {
+        for (final File rotatedFile : getRotatedFiles()) {
+            catchUpReads.add(new CatchUpRead(rotatedFile, seek(rotatedFile, firstPeriod)));
+        }
+    }
+
+    /**
+     * Read at most the given bytes of the lines left to catch up with. The
+     * lines of the log are read up to the tailer, which the keywords caught
+     * up then read on with.
+     */
+    private void catchUp(final long maxBytes) throws IOException {
+        final LogLineReader.LineHandler handler = newLineHandler(catchUpAccumulators);
+        long bytesLeft = maxBytes;
+        while (!catchUpReads.isEmpty() && bytesLeft > 0) {
+            final CatchUpRead read = catchUpReads.getFirst();
+            final long readLimit = (read.file.equals(logFile) ? tailer.getOffset() : Long.MAX_VALUE);
+            if (!read.file.isFile() || read.offset >= readLimit) {
+                catchUpReads.removeFirst();
+                continue;
+            }
+
+            final long limit = (bytesLeft >= readLimit - read.offset ? readLimit : read.offset + bytesLeft);
+            final long startBytes = throttle.getBytesRead();
+            scan.addFileOpened();
+            final long offset = LogLineReader.read(read.file, read.offset, limit, handler, throttle);
+            bytesLeft -= throttle.getBytesRead() - startBytes;
+            if (limit == readLimit || limit >= read.file.length()) {
+                catchUpReads.removeFirst();
+            } else if (offset == read.offset) {
+                // A line longer than the bytes left, read with the next budget
+                break;
+            } else {
+                read.offset = offset;
+            }
+        }
+        if (catchUpReads.isEmpty()) {
+            catchUpAccumulators.clear();
+            catchUpIdentity = null;
+        }
+    }
+
+    /**
+     * Get the first of the periods retained, counting back from the period of
+     * the last line of the log.
+     *
+     * @return period as formatted in the time prefix, null if the log has no timestamped line
+     */
+    private String getFirstRetainedPeriod() throws IOException {
+        if (!logFile.isFile()) {
+            return null;
+        }
+
+        String lastPeriod = null;
+        final ReverseLineReader reader = new ReverseLineReader(logFile);
+        scan.addFileOpened();
+        try {
+            String line;
+            while (lastPeriod == null && (line = reader.readLine()) != null) {
+                final byte[] bytes = line.getBytes(LOG_CHARSET);
+                lastPeriod = timePrefix.getKey(bytes, 0, bytes.length);
+            }
+        } finally {
+            scan.addBytesRead(reader.getBytesRead());
+            reader.close();
+        }
+        if (lastPeriod == null) {
+            return null;
+        }
+
+        try {
+            final long lastPeriodMillis = timePrefix.getStartMillis(lastPeriod);
+            return timePrefix.getPeriod(lastPeriodMillis - (RETAINED_PERIODS - 1) * timePrefix.getPeriodMillis());
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private long seek(final File file, final String firstPeriod) throws IOException {
+        if (firstPeriod == null || !file.isFile()) {
+            return 0;
+        }
+        return TimeOrderedLogSeeker.seek(file, firstPeriod, timePrefix);
+    }
+
+    private List<File> getRotatedFiles() {
+        final List<File> rotatedFiles = new ArrayList<File>();
+        final File[] siblings = logFile.getAbsoluteFile().getParentFile().listFiles();
+        if (siblings == null) {
+            return rotatedFiles;
+        }
+
+        final long oldestModification = System.currentTimeMillis() - RETAINED_PERIODS * timePrefix.getPeriodMillis();
+        final String rotatedPrefix = logFile.getName() + ".";
+        for (final File sibling : siblings) {
+            if (sibling.getName().startsWith(rotatedPrefix) && sibling.isFile() && !LogTailer.isCompressed(sibling)
+                    && sibling.lastModified() >= oldestModification) {
+                rotatedFiles.add(sibling);
+            }
+        }
+
+        // Oldest first, so lines are accumulated in the order they were written
+        Collections.sort(rotatedFiles, new Comparator<File>() {
+            @Override
+            public int compare(final File first, final File second) {
+                final long diff = first.lastModified() - second.lastModified();
+                return (diff < 0 ? -1 : (diff > 0 ? 1 : 0));
+            }
+        });
+        return rotatedFiles;
+    }
+
+    private LogLineReader.LineHandler newLineHandler(final List<KeywordAccumulator> targets) {
+        final List<String> keywords = new ArrayList<String>(targets.size());
+        for (final KeywordAccumulator accumulator : targets) {
+            keywords.add(accumulator.getKeyword());
+        }
+        final KeywordMatcher matcher = new KeywordMatcher(keywords);
+        final boolean[] found = new boolean[targets.size()];
+        return new LogLineReader.LineHandler() {
+            @Override
+            public void handleLine(final byte[] buffer, final int start, final int length) {
+                parseLine(buffer, start, length, targets, matcher, found);
+            }
+        };
+    }
+
+    /**
+     * Route the counters of a line to the accumulators of the keywords found
+     * after its timestamp. A line without any keyword is rejected by the
+     * matcher, and no line is decoded.
+     */
+    private void parseLine(final byte[] buffer, final int start, final int length,
+            final List<KeywordAccumulator> targets, final KeywordMatcher matcher, final boolean[] found) {
+        if (!timePrefix.matches(buffer, start, length)
+                || matcher.match(buffer, start + timePrefix.getLength(), start + length, found) == 0) {
+            scan.addLine(false);
+            return;
+        }
+
+        final int counterCount = parser.parse(buffer, start, start + length);
+        final String linePeriod = getPeriod(buffer, start);
+        for (int i = 0; i < found.length; i++) {
+            if (found[i]) {
+                targets.get(i).add(linePeriod, parser, counterCount);
+            }
+        }
+        scan.addLine(true);
+    }
+
+    /**
+     * Get the period of a line, reusing the String of the previous line of the
+     * same period.
+     */
+    private String getPeriod(final byte[] buffer, final int start) {
+        final int length = timePrefix.getLength();
+        if (period != null) {
+            int i = 0;
+            while (i < length && period.charAt(i) == (char) (buffer[start + i] & 0xff)) {
+                i++;
+            }
+            if (i == length) {
+                return period;
+            }
+        }
+        period = new String(buffer, start, length, LOG_CHARSET);
+        return period;
+    }
+
+    /**
+     * Lines of a file still to be read by the catch up, from the offset to the
+     * end of a rotated file, or to the tailer in the log.
+     */
+    private static final class CatchUpRead {
+        private final File file;
+        private long offset;
+
+        CatchUpRead(final File file, final long offset) {
+            this.file = file;
+            this.offset = offset;
+        }
+    }
+}
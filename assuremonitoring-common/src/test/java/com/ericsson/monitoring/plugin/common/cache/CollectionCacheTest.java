@@ -0,0 +1,87 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hyperic.hq.product.MetricUnreachableException;
+import org.hyperic.hq.product.PluginException;
+import org.junit.Test;
+
+public class CollectionCacheTest {
+
+    private static final String RESOURCE = "ombs:file=/var/log/backup.log";
+
+    /**
+     * Test one collection serves all aliases until the slot is over.
+     *
+     */
+    @Test
+    public void testGetCollectsOncePerSlot() throws PluginException {
+        final CollectionCache cache = new CollectionCache(60000);
+        final CountingCollector collector = new CountingCollector(null);
+
+        assertEquals(Double.valueOf(1.0), cache.get(RESOURCE, 1000, collector).get("Availability"));
+        assertEquals(Double.valueOf(1.0), cache.get(RESOURCE, 2000, collector).get("Availability"));
+        assertEquals(1, collector.count);
+
+        cache.get(RESOURCE, 61000, collector);
+        assertEquals(2, collector.count);
+
+        cache.invalidate(RESOURCE);
+        cache.get(RESOURCE, 62000, collector);
+        assertEquals(3, collector.count);
+    }
+
+    /**
+     * Test a failed collection is not retried within its slot.
+     *
+     */
+    @Test
+    public void testGetCachesFailure() {
+        final CollectionCache cache = new CollectionCache(60000);
+        final CountingCollector collector = new CountingCollector(new MetricUnreachableException("unreachable"));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get(RESOURCE, 1000 + i, collector);
+                fail("Expected MetricUnreachableException");
+            } catch (PluginException e) {
+                assertTrue(e instanceof MetricUnreachableException);
+            }
+        }
+        assertEquals(1, collector.count);
+    }
+
+    private static class CountingCollector implements CollectionCache.Collector {
+        private final PluginException failure;
+        private int count;
+
+        CountingCollector(final PluginException failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public Map<String, Double> collect() throws PluginException {
+            count++;
+            if (failure != null) {
+                throw failure;
+            }
+            final Map<String, Double> values = new HashMap<String, Double>();
+            values.put("Availability", 1.0);
+            return values;
+        }
+    }
+}
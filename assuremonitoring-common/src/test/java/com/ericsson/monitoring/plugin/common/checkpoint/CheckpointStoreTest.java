@@ -0,0 +1,99 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.checkpoint;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.monitoring.plugin.common.log.FileIdentity;
+
+public class CheckpointStoreTest {
+
+    private File checkpointDir;
+
+    @Before
+    public void setUp() throws Exception {
+        checkpointDir = File.createTempFile("checkpoints", "");
+        checkpointDir.delete();
+    }
+
+    @After
+    public void tearDown() {
+        if (checkpointDir.isDirectory()) {
+            for (final File file : checkpointDir.listFiles()) {
+                file.delete();
+            }
+        }
+        checkpointDir.delete();
+    }
+
+    /**
+     * Test a saved checkpoint is loaded back, and replaces the previous one.
+     *
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        final CheckpointStore store = new CheckpointStore(checkpointDir);
+        store.save("wfinstr", new Checkpoint("/eniq/log/wfinstr.log", new FileIdentity(1, 2, 300), 100, 5000));
+
+        final Checkpoint saved = new Checkpoint("/eniq/log/wfinstr.log", new FileIdentity(1, 2, 400), 350, 4242L,
+                6000);
+        saved.getAggregates().put("SGEH|2014-06-06 07|Files", "12");
+        store.save("wfinstr", saved);
+
+        final Checkpoint loaded = store.load("wfinstr");
+        assertEquals("/eniq/log/wfinstr.log", loaded.getFilePath());
+        assertEquals(2, loaded.getIdentity().getInode());
+        assertEquals(400, loaded.getIdentity().getSize());
+        assertEquals(350, loaded.getOffset());
+        assertEquals(4242L, loaded.getFingerprint());
+        assertEquals(6000, loaded.getLastTimestamp());
+        assertEquals("12", loaded.getAggregates().get("SGEH|2014-06-06 07|Files"));
+        assertEquals(1, checkpointDir.listFiles().length);
+    }
+
+    /**
+     * Test a missing or corrupt checkpoint is ignored.
+     *
+     */
+    @Test
+    public void testLoadCorruptCheckpoint() throws IOException {
+        final CheckpointStore store = new CheckpointStore(checkpointDir);
+        assertNull(store.load("engine-log-index"));
+
+        checkpointDir.mkdirs();
+        final Writer writer = new FileWriter(new File(checkpointDir, "engine-log-index.checkpoint"));
+        try {
+            writer.write("offset=12\nfile.size=abc\n");
+        } finally {
+            writer.close();
+        }
+        assertNull(store.load("engine-log-index"));
+    }
+
+    /**
+     * Test a checkpoint is only resumable while the file keeps growing in place.
+     *
+     */
+    @Test
+    public void testIsResumableFrom() {
+        final Checkpoint checkpoint = new Checkpoint("/eniq/log/wfinstr.log", new FileIdentity(1, 2, 300), 320, 0);
+        assertTrue(checkpoint.isResumableFrom(new FileIdentity(1, 2, 320)));
+        assertFalse(checkpoint.isResumableFrom(new FileIdentity(1, 2, 310)));
+        assertFalse(checkpoint.isResumableFrom(new FileIdentity(1, 3, 500)));
+    }
+}
@@ -0,0 +1,46 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.env;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.Test;
+
+public class PluginSettingsTest {
+
+    /**
+     * Test the settings are read from the shell variables, with their default otherwise.
+     *
+     */
+    @Test
+    public void testGetLong() throws IOException {
+        final File envFile = File.createTempFile("global", ".env");
+        try {
+            final Writer writer = new FileWriter(envFile);
+            try {
+                writer.write("PLUGINS_DIR=${PACKAGE_INSTALL_DIR}/plugins\nCOLLECTION_HEAVY_PERMITS=3\n"
+                        + "COLLECTION_LIGHT_PERMITS=0\n");
+            } finally {
+                writer.close();
+            }
+
+            assertEquals(3, PluginSettings.getLong(envFile, "COLLECTION_HEAVY_PERMITS", 2));
+            assertEquals(4, PluginSettings.getLong(envFile, "COLLECTION_LIGHT_PERMITS", 4));
+            assertEquals(2, PluginSettings.getLong(new File(envFile.getPath() + ".missing"),
+                    "COLLECTION_HEAVY_PERMITS", 2));
+        } finally {
+            envFile.delete();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.env;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ServerEnvironmentTest {
+
+    private File configDir;
+    private File serverTypeFile;
+    private File sunOsIniFile;
+    private File sanDetailsFile;
+    private ServerEnvironment environment;
+
+    @Before
+    public void setUp() throws Exception {
+        configDir = File.createTempFile("config", "");
+        configDir.delete();
+        configDir.mkdir();
+        serverTypeFile = new File(configDir, "installed_server_type");
+        sunOsIniFile = new File(configDir, "SunOS.ini");
+        sanDetailsFile = new File(configDir, "san_details");
+        environment = new ServerEnvironment(serverTypeFile, sunOsIniFile, sanDetailsFile);
+    }
+
+    @After
+    public void tearDown() {
+        for (final File file : configDir.listFiles()) {
+            file.delete();
+        }
+        configDir.delete();
+    }
+
+    /**
+     * Test the server type is read again only when the file changes.
+     *
+     */
+    @Test
+    public void testGetServerTypeCachedUntilModified() throws IOException {
+        assertNull(environment.getServerType());
+
+        write(serverTypeFile, "eniq_stats\n");
+        assertEquals("eniq_stats", environment.getServerType());
+
+        write(serverTypeFile, "eniq_events\n");
+        serverTypeFile.setLastModified(serverTypeFile.lastModified() - 10000);
+        assertEquals("eniq_events", environment.getServerType());
+    }
+
+    /**
+     * Test the storage type is taken from SunOS.ini, or from san_details
+     * when there is no SunOS.ini.
+     *
+     */
+    @Test
+    public void testGetStorageType() throws IOException {
+        assertNull(environment.getStorageType());
+
+        write(sanDetailsFile, "SAN_DEVICE=clariion\nSTORAGE_TYPE=zfs\n");
+        assertEquals("zfs", environment.getStorageType());
+
+        write(sunOsIniFile, "[STOR_TYPE]\nSTORAGE_TYPE=raw\n");
+        assertEquals("raw", environment.getStorageType());
+    }
+
+    /**
+     * Test a feature is reported once its install directory is created.
+     *
+     */
+    @Test
+    public void testIsFeatureInstalled() {
+        final File featureDir = new File(configDir, "M_E_SGEH");
+        assertFalse(environment.isFeatureInstalled(featureDir));
+
+        featureDir.mkdir();
+        configDir.setLastModified(configDir.lastModified() + 10000);
+        assertTrue(environment.isFeatureInstalled(featureDir));
+        featureDir.delete();
+    }
+
+    private void write(final File file, final String text) throws IOException {
+        final Writer writer = new FileWriter(file);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
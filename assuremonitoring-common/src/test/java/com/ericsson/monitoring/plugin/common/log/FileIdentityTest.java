@@ -0,0 +1,41 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class FileIdentityTest {
+
+    /**
+     * Test a file grown in place is a continuation of the earlier identity.
+     *
+     */
+    @Test
+    public void testIsContinuationOfGrownFile() {
+        assertTrue(new FileIdentity(1, 100, 2048).isContinuationOf(new FileIdentity(1, 100, 1024)));
+        assertTrue(new FileIdentity(-1, -1, 2048).isContinuationOf(new FileIdentity(-1, -1, 1024)));
+    }
+
+    /**
+     * Test a replaced or truncated file is not a continuation of the earlier identity.
+     *
+     */
+    @Test
+    public void testIsContinuationOfRotatedFile() {
+        assertFalse(new FileIdentity(1, 101, 2048).isContinuationOf(new FileIdentity(1, 100, 1024)));
+        assertFalse(new FileIdentity(2, 100, 2048).isContinuationOf(new FileIdentity(1, 100, 1024)));
+        assertFalse(new FileIdentity(1, 100, 512).isContinuationOf(new FileIdentity(1, 100, 1024)));
+        assertFalse(new FileIdentity(1, 100, 512).isContinuationOf(null));
+    }
+}
@@ -0,0 +1,96 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogLineReaderTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("reader", ".log");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Test complete lines are read and an incomplete last line is left for the next read.
+     *
+     */
+    @Test
+    public void testReadCompleteLines() throws IOException {
+        write("first\r\nsecond\nthird".getBytes("US-ASCII"));
+        final List<String> lines = new ArrayList<String>();
+
+        final long position = LogLineReader.read(file, 0, Long.MAX_VALUE, collect(lines));
+
+        assertEquals(Arrays.asList("first", "second"), lines);
+        assertEquals(file.length() - "third".length(), position);
+    }
+
+    /**
+     * Test a line longer than the maximum length is skipped and the following lines are read.
+     *
+     */
+    @Test
+    public void testSkipOverlongLine() throws IOException {
+        final byte[] overlong = new byte[LogLineReader.MAX_LINE_LENGTH * 2 + 10];
+        Arrays.fill(overlong, (byte) 'x');
+        final byte[] before = "before\n".getBytes("US-ASCII");
+        final byte[] after = "\nafter\n".getBytes("US-ASCII");
+        final byte[] content = new byte[before.length + overlong.length + after.length];
+        System.arraycopy(before, 0, content, 0, before.length);
+        System.arraycopy(overlong, 0, content, before.length, overlong.length);
+        System.arraycopy(after, 0, content, before.length + overlong.length, after.length);
+        write(content);
+        final List<String> lines = new ArrayList<String>();
+
+        final long position = LogLineReader.read(file, 0, Long.MAX_VALUE, collect(lines));
+
+        assertEquals(Arrays.asList("before", "after"), lines);
+        assertEquals(file.length(), position);
+    }
+
+    private void write(final byte[] content) throws IOException {
+        final FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content);
+        } finally {
+            output.close();
+        }
+    }
+
+    private static LogLineReader.LineHandler collect(final List<String> lines) {
+        return new LogLineReader.LineHandler() {
+            @Override
+            public void handleLine(final byte[] buffer, final int start, final int length) {
+                lines.add(new String(buffer, start, length));
+            }
+        };
+    }
+}
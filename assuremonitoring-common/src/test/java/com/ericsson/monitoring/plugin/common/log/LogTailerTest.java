@@ -0,0 +1,177 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogTailerTest {
+
+    private File logDir;
+    private File logFile;
+    private final List<String> lines = new ArrayList<String>();
+    private final LogLineReader.LineHandler handler = new LogLineReader.LineHandler() {
+        @Override
+        public void handleLine(final byte[] buffer, final int start, final int length) {
+            lines.add(new String(buffer, start, length));
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        logDir = File.createTempFile("tailer", "");
+        logDir.delete();
+        logDir.mkdir();
+        logFile = new File(logDir, "wfinstr.log");
+    }
+
+    @After
+    public void tearDown() {
+        for (final File file : logDir.listFiles()) {
+            file.delete();
+        }
+        logDir.delete();
+    }
+
+    /**
+     * Test a read limited in bytes stops after the last complete line within
+     * the limit, and the next read goes on from there.
+     *
+     */
+    @Test
+    public void testReadWithinByteLimit() throws IOException {
+        append(logFile, "line 1\nline 2\nline 3\n");
+        final LogTailer tailer = new LogTailer(logFile);
+        tailer.read(handler, null, 10);
+        assertTrue(tailer.isBehind());
+        assertEquals(Arrays.asList("line 1"), lines);
+
+        tailer.read(handler, null, 100);
+        assertFalse(tailer.isBehind());
+        assertEquals(Arrays.asList("line 1", "line 2", "line 3"), lines);
+        assertEquals(logFile.length(), tailer.getOffset());
+    }
+
+    /**
+     * Test the lines written just before the log was renamed are read from
+     * the rotated file, and each line once.
+     *
+     */
+    @Test
+    public void testReadFinishesRenamedFile() throws IOException {
+        append(logFile, "line 1\n");
+        final LogTailer tailer = new LogTailer(logFile);
+        assertEquals(1, tailer.read(handler, null));
+
+        append(logFile, "line 2\n");
+        final File rotatedFile = new File(logDir, "wfinstr.log.1");
+        assertTrue(logFile.renameTo(rotatedFile));
+        rotatedFile.setLastModified(System.currentTimeMillis() - 60000L);
+        append(logFile, "line 3 of the new log\n");
+        assertTrue(tailer.isRotated());
+        assertEquals(2, tailer.read(handler, null));
+        assertEquals(1, tailer.read(handler, null));
+
+        assertEquals(Arrays.asList("line 1", "line 2", "line 3 of the new log"), lines);
+        assertEquals(logFile.length(), tailer.getOffset());
+    }
+
+    /**
+     * Test a log copied and truncated is told from its copy by the
+     * fingerprint, even once the new log has grown past the offset.
+     *
+     */
+    @Test
+    public void testReadFollowsCopyTruncate() throws IOException {
+        append(logFile, "line 1\n");
+        final LogTailer tailer = new LogTailer(logFile);
+        tailer.read(handler, null);
+
+        append(logFile, "line 2\n");
+        copy(logFile, new File(logDir, "wfinstr.log.1"));
+        new FileOutputStream(logFile).close();
+        append(logFile, "line 3 is longer than the offset\n");
+        tailer.read(handler, null);
+
+        assertEquals(3, lines.size());
+        assertEquals("line 2", lines.get(1));
+        assertEquals("line 3 is longer than the offset", lines.get(2));
+    }
+
+    /**
+     * Test two rotations between reads, the files being read oldest first,
+     * and a position restored when the rotated file is gone.
+     *
+     */
+    @Test
+    public void testReadAfterTwoRotations() throws IOException {
+        append(logFile, "line 1\n");
+        final LogTailer tailer = new LogTailer(logFile);
+        tailer.read(handler, null);
+
+        final long now = System.currentTimeMillis();
+        append(logFile, "line 2\n");
+        final File olderFile = new File(logDir, "wfinstr.log.2");
+        assertTrue(logFile.renameTo(olderFile));
+        olderFile.setLastModified(now - 120000L);
+        append(logFile, "line 3\n");
+        final File newerFile = new File(logDir, "wfinstr.log.1");
+        assertTrue(logFile.renameTo(newerFile));
+        newerFile.setLastModified(now - 60000L);
+        append(new File(logDir, "wfinstr.log.3.gz"), "compressed\n");
+        append(logFile, "line 4\n");
+        assertEquals(3, tailer.read(handler, null));
+        assertEquals(Arrays.asList("line 1", "line 2", "line 3", "line 4"), lines);
+
+        final LogTailer resumed = new LogTailer(logFile);
+        resumed.setPosition(tailer.getIdentity(), tailer.getOffset(), tailer.getFingerprint());
+        assertTrue(resumed.canFollow());
+        resumed.setPosition(new FileIdentity(FileIdentity.UNKNOWN, FileIdentity.UNKNOWN, 100), 100,
+                LogTailer.NO_FINGERPRINT);
+        assertFalse(resumed.canFollow());
+    }
+
+    private static void append(final File file, final String text) throws IOException {
+        final Writer writer = new FileWriter(file, true);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void copy(final File from, final File to) throws IOException {
+        final InputStream input = new FileInputStream(from);
+        try {
+            final OutputStream output = new FileOutputStream(to);
+            try {
+                final byte[] buffer = new byte[4096];
+                int read;
+                while ((read = input.read(buffer)) > 0) {
+                    output.write(buffer, 0, read);
+                }
+            } finally {
+                output.close();
+            }
+        } finally {
+            input.close();
+        }
+    }
+}
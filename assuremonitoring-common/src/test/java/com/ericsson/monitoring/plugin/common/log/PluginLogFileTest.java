@@ -0,0 +1,83 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PluginLogFileTest {
+
+    private File logDir;
+    private File logFile;
+
+    @Before
+    public void setUp() throws Exception {
+        logDir = File.createTempFile("log", "");
+        logDir.delete();
+        logFile = new File(logDir, "plugin.log");
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = logDir.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        logDir.delete();
+    }
+
+    /**
+     * Test the messages are only written once the batch is complete.
+     *
+     */
+    @Test
+    public void testLogWritesInBatches() {
+        final PluginLogFile pluginLog = new PluginLogFile(logFile, 1024 * 1024, 10, 3);
+        pluginLog.log("first");
+        pluginLog.log("second");
+        assertFalse(logFile.exists());
+
+        pluginLog.log("third");
+        final long batchLength = logFile.length();
+        assertTrue(batchLength > 0);
+
+        pluginLog.log("fourth");
+        pluginLog.flush();
+        assertTrue(logFile.length() > batchLength);
+    }
+
+    /**
+     * Test the log is rotated once it is over its size, keeping the given number of files.
+     *
+     */
+    @Test
+    public void testFlushRotatesBySize() {
+        final PluginLogFile pluginLog = new PluginLogFile(logFile, 10, 2, 1);
+        pluginLog.log("first message");
+        assertFalse(new File(logDir, "plugin.log.0").exists());
+
+        pluginLog.log("second message");
+        assertTrue(new File(logDir, "plugin.log.0").exists());
+        pluginLog.log("third message");
+        assertTrue(new File(logDir, "plugin.log.1").exists());
+        pluginLog.log("fourth message");
+        assertFalse(new File(logDir, "plugin.log.2").exists());
+        assertEquals(3, logDir.listFiles().length);
+    }
+}
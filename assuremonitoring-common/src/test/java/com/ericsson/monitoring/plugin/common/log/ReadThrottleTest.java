@@ -0,0 +1,37 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class ReadThrottleTest {
+
+    /**
+     * Test a read beyond the bandwidth is paused until the budget allows it.
+     *
+     */
+    @Test
+    public void testOnReadPausesBeyondBandwidth() throws IOException {
+        final ReadThrottle throttle = new ReadThrottle(1000, 1.0, 0, null);
+
+        throttle.onRead(1000);
+        assertTrue(throttle.getThrottledMillis() < 100);
+
+        throttle.onRead(500);
+        assertEquals(1500, throttle.getBytesRead());
+        assertTrue(throttle.getThrottledMillis() >= 400);
+    }
+}
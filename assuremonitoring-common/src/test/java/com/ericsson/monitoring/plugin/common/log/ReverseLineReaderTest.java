@@ -0,0 +1,117 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReverseLineReaderTest {
+
+    private File logFile;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("backup", ".log");
+    }
+
+    @After
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    /**
+     * Test the lines are returned last first, across block boundaries.
+     *
+     */
+    @Test
+    public void testReadLineFromEnd() throws IOException {
+        write("first line\nsecond line\r\n\nlast line\n");
+
+        final ReverseLineReader reader = new ReverseLineReader(logFile, 0, 4);
+        try {
+            assertEquals("last line", reader.readLine());
+            assertEquals("", reader.readLine());
+            assertEquals("second line", reader.readLine());
+            assertEquals("first line", reader.readLine());
+            assertNull(reader.readLine());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Test a last line without terminator and a line longer than the block size.
+     *
+     */
+    @Test
+    public void testReadLineWithoutTerminator() throws IOException {
+        final StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longLine.append(i % 10);
+        }
+        write(longLine + "\nincomplete");
+
+        final ReverseLineReader reader = new ReverseLineReader(logFile, 0, 16);
+        try {
+            assertEquals("incomplete", reader.readLine());
+            assertEquals(longLine.toString(), reader.readLine());
+            assertNull(reader.readLine());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Test the read stops at the start position.
+     *
+     */
+    @Test
+    public void testReadLineFromStartPosition() throws IOException {
+        write("old line\nnew line\n");
+
+        final ReverseLineReader reader = new ReverseLineReader(logFile, "old line\n".length());
+        try {
+            assertEquals("new line", reader.readLine());
+            assertNull(reader.readLine());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Test an empty file has no lines.
+     *
+     */
+    @Test
+    public void testReadLineEmptyFile() throws IOException {
+        final ReverseLineReader reader = new ReverseLineReader(logFile);
+        try {
+            assertNull(reader.readLine());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void write(final String text) throws IOException {
+        final Writer writer = new FileWriter(logFile);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeOrderedLogSeekerTest {
+
+    private static final TimeOrderedLogSeeker.TimestampKey HOUR_KEY = new TimeOrderedLogSeeker.TimestampKey() {
+        @Override
+        public String getKey(final byte[] buffer, final int start, final int length) {
+            if (length < 13 || buffer[start] != '2') {
+                return null;
+            }
+            return new String(buffer, start, 13);
+        }
+    };
+
+    private File logFile;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("wfinstr", ".log");
+    }
+
+    @After
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    /**
+     * Test the seek finds the first line of every hour of a log larger than a probe.
+     *
+     */
+    @Test
+    public void testSeekFindsFirstLineOfHour() throws IOException {
+        final long[] hourOffsets = new long[10];
+        final StringBuilder text = new StringBuilder();
+        for (int hour = 0; hour < hourOffsets.length; hour++) {
+            hourOffsets[hour] = text.length();
+            for (int line = 0; line < 2000; line++) {
+                text.append(String.format("2014-06-06 %02d:%02d:00 SGEH Files=1\n", hour, line % 60));
+                if (line % 100 == 0) {
+                    text.append("    continuation line without timestamp\n");
+                }
+            }
+        }
+        write(text.toString());
+
+        for (int hour = 0; hour < hourOffsets.length; hour++) {
+            assertEquals(hourOffsets[hour],
+                    TimeOrderedLogSeeker.seek(logFile, String.format("2014-06-06 %02d", hour), HOUR_KEY));
+        }
+        assertEquals(0, TimeOrderedLogSeeker.seek(logFile, "2014-06-05 23", HOUR_KEY));
+        assertEquals(logFile.length(), TimeOrderedLogSeeker.seek(logFile, "2014-06-06 10", HOUR_KEY));
+    }
+
+    /**
+     * Test an incomplete last line is not sought past.
+     *
+     */
+    @Test
+    public void testSeekBeforeIncompleteLine() throws IOException {
+        write("2014-06-06 07:00:00 SGEH Files=1\n2014-06-06 08:00");
+
+        assertEquals(0, TimeOrderedLogSeeker.seek(logFile, "2014-06-06 07", HOUR_KEY));
+        assertEquals(33, TimeOrderedLogSeeker.seek(logFile, "2014-06-06 08", HOUR_KEY));
+    }
+
+    private void write(final String text) throws IOException {
+        final Writer writer = new FileWriter(logFile);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
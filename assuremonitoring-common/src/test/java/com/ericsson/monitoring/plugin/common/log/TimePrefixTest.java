@@ -0,0 +1,71 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.log;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+
+import org.junit.Test;
+
+public class TimePrefixTest {
+
+    /**
+     * Test the prefix of a line is matched from its bytes, as digits and the
+     * separators of the format.
+     *
+     */
+    @Test
+    public void testMatches() {
+        final TimePrefix prefix = new TimePrefix(TimePrefix.HOUR_FORMAT);
+        assertEquals(13, prefix.getLength());
+        assertEquals(60L * 60L * 1000L, prefix.getPeriodMillis());
+
+        final byte[] line = "2014-06-06 07:00:01 SGEH Files=2".getBytes();
+        assertTrue(prefix.matches(line, 0, line.length));
+        assertEquals("2014-06-06 07", prefix.getKey(line, 0, line.length));
+        assertFalse(prefix.matches(line, 1, line.length - 1));
+        assertFalse(prefix.matches(line, 0, 12));
+        assertNull(prefix.getKey("2014-06-06T07:00:01".getBytes(), 0, 19));
+    }
+
+    /**
+     * Test the period of a time and back.
+     *
+     */
+    @Test
+    public void testPeriod() throws ParseException {
+        final TimePrefix prefix = new TimePrefix("yyyy-MM-dd HH:mm");
+        assertEquals(60L * 1000L, prefix.getPeriodMillis());
+
+        final long startMillis = prefix.getStartMillis("2014-06-06 07:05");
+        assertEquals("2014-06-06 07:05", prefix.getPeriod(startMillis + 59L * 1000L));
+        assertEquals("2014-06-06 07:04", prefix.getPeriod(startMillis - prefix.getPeriodMillis()));
+    }
+
+    /**
+     * Test a format whose periods do not sort in time order is rejected.
+     *
+     */
+    @Test
+    public void testUnsupportedFormat() {
+        for (final String format : new String[] { "dd/MM/yyyy HH", "yyyy-MM", "yyyy-MMM-dd", "yyyy-MM-dd mm",
+                "HH:mm", "" }) {
+            try {
+                new TimePrefix(format);
+                fail("Expected IllegalArgumentException for " + format);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains(format));
+            }
+        }
+    }
+}
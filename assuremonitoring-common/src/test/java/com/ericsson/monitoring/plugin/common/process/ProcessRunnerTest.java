@@ -0,0 +1,84 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.process;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class ProcessRunnerTest {
+
+    /**
+     * Test the exit status and both outputs are captured.
+     *
+     */
+    @Test
+    public void testRunCapturesOutputAndExitStatus() throws IOException {
+        final ProcessRunner.Result result = new ProcessRunner(10000).run("/bin/sh", "-c",
+                "echo INTF_DC_E_ERBS DC_E_ERBS; echo failed >&2; exit 3");
+
+        assertEquals(3, result.getExitStatus());
+        assertFalse(result.isTimedOut());
+        assertFalse(result.isSuccess());
+        assertEquals("INTF_DC_E_ERBS DC_E_ERBS\n", result.getOutput());
+        assertEquals("failed\n", result.getError());
+    }
+
+    /**
+     * Test a command still running at the deadline is destroyed.
+     *
+     */
+    @Test
+    public void testRunDestroysCommandAtDeadline() throws IOException {
+        final long timeouts = ProcessRunner.getTimeoutCount();
+        final ProcessRunner.Result result = new ProcessRunner(200).run("/bin/sleep", "30");
+
+        assertTrue(result.isTimedOut());
+        assertEquals(-1, result.getExitStatus());
+        assertTrue(result.getElapsedMillis() < 10000);
+        assertEquals(timeouts + 1, ProcessRunner.getTimeoutCount());
+    }
+
+    /**
+     * Test the processes started by a command are killed with it at the
+     * deadline, so they neither keep running nor keep its pipes open.
+     *
+     */
+    @Test
+    public void testRunKillsProcessGroupAtDeadline() throws Exception {
+        final File marker = File.createTempFile("runner", ".alive");
+        marker.delete();
+        final ProcessRunner.Result result = new ProcessRunner(200).run("/bin/sh", "-c",
+                "(sleep 2; touch " + marker.getPath() + ") & sleep 30");
+
+        assertTrue(result.isTimedOut());
+        assertTrue(result.getElapsedMillis() < 2000);
+        Thread.sleep(3000);
+        assertFalse(marker.exists());
+    }
+
+    /**
+     * Test only the first bytes of a large output are kept, and the command is not blocked.
+     *
+     */
+    @Test
+    public void testRunBoundsOutput() throws IOException {
+        final ProcessRunner.Result result = new ProcessRunner(10000, 100).run("/bin/sh", "-c",
+                "i=0; while [ $i -lt 2000 ]; do echo 0123456789; i=$((i+1)); done");
+
+        assertTrue(result.isSuccess());
+        assertEquals(100, result.getOutput().length());
+    }
+}
@@ -0,0 +1,143 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.rules;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.hyperic.hq.product.MetricInvalidException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.monitoring.plugin.common.wfinstr.KeywordAccumulator;
+import com.ericsson.monitoring.plugin.common.wfinstr.WfinstrCollector;
+
+public class LogMetricRulesTest {
+
+    private static final String SGEH_KEYWORD = "SGEH.WF_SGEH_Processing_NFS";
+    private static final String LTEES_KEYWORD = "EBSL.WF_LTEES_COUNTER";
+
+    private File logDir;
+    private File logFile;
+
+    @Before
+    public void setUp() throws Exception {
+        logDir = File.createTempFile("rules", "");
+        logDir.delete();
+        logDir.mkdir();
+        logFile = new File(logDir, "wfinstr.log");
+    }
+
+    @After
+    public void tearDown() {
+        for (final File file : logDir.listFiles()) {
+            file.delete();
+        }
+        logDir.delete();
+    }
+
+    /**
+     * Test the rules of the configuration take the file and keyword of the
+     * template unless they define their own.
+     *
+     */
+    @Test
+    public void testParseWithDefaults() throws MetricInvalidException {
+        final Properties config = new Properties();
+        config.setProperty("rule.event_rate", "counters=Succ23, Err23;aggregation=rate");
+        config.setProperty("rule.ltees_files", "keyword=" + LTEES_KEYWORD + ";counters=Files;unit=mb");
+        config.setProperty("sgeh_keyword", SGEH_KEYWORD);
+
+        final LogMetricRules rules = LogMetricRules.parse(config, getDefaults());
+
+        assertEquals(2, rules.getRules().size());
+        final LogMetricRule eventRate = rules.getRule("event_rate");
+        assertEquals(SGEH_KEYWORD, eventRate.getKeyword());
+        assertEquals(logFile.getPath(), eventRate.getFile().toString());
+        assertEquals("yyyy-MM-dd HH", eventRate.getTimePrefix().getFormat());
+        assertEquals(2, eventRate.getCounters().size());
+        assertEquals(LogMetricRule.Aggregation.RATE, eventRate.getAggregation());
+        assertEquals(LTEES_KEYWORD, rules.getRule("ltees_files").getKeyword());
+        assertEquals(LogMetricRule.Aggregation.SUM, rules.getRule("ltees_files").getAggregation());
+        assertNull(rules.getRule("sgeh_keyword"));
+    }
+
+    /**
+     * Test an invalid rule is rejected.
+     *
+     */
+    @Test
+    public void testParseInvalidRule() {
+        for (final String definition : new String[] { "aggregation=sum", "counters=Files;aggregation=avg",
+                "counters=Files;unit=tb", "counters=Files;time_format=HH:mm", "counters=Files;keyword=" }) {
+            try {
+                LogMetricRule.parse("files", definition, getDefaults());
+                fail("Expected MetricInvalidException for " + definition);
+            } catch (MetricInvalidException e) {
+                assertTrue(e.getMessage().contains("files"));
+            }
+        }
+    }
+
+    /**
+     * Test the rules of two keywords of the same file share one scan plan, and
+     * the aggregations and unit conversion of their metrics.
+     *
+     */
+    @Test
+    public void testEvaluateSharedScanPlan() throws IOException, MetricInvalidException {
+        final Writer writer = new FileWriter(logFile);
+        try {
+            writer.write("2014-06-06 07:00:01 " + SGEH_KEYWORD + " Succ23=3600 Err23=7200 Bytes=1073741824\n"
+                    + "2014-06-06 07:30:00 " + LTEES_KEYWORD + " Events=10 Files=4\n"
+                    + "2014-06-06 07:59:59 " + SGEH_KEYWORD + " Succ23=3600 Bytes=1073741824\n"
+                    + "2014-06-06 07:59:59 " + LTEES_KEYWORD + " Events=30 Files=2\n");
+        } finally {
+            writer.close();
+        }
+
+        final Properties config = new Properties();
+        config.setProperty("rule.event_rate", "counters=Succ23,Err23;aggregation=rate");
+        config.setProperty("rule.volume", "counters=Bytes;unit=gb");
+        config.setProperty("rule.max_events", "keyword=" + LTEES_KEYWORD + ";counters=Events;aggregation=max");
+        config.setProperty("rule.last_files", "keyword=" + LTEES_KEYWORD + ";counters=Files;aggregation=last");
+        final LogMetricRules rules = LogMetricRules.parse(config, getDefaults());
+
+        final Map<WfinstrCollector, List<LogMetricRule>> plans = rules.getScanPlans();
+        assertEquals(1, plans.size());
+        final WfinstrCollector collector = plans.keySet().iterator().next();
+        assertEquals(4, plans.get(collector).size());
+
+        final KeywordAccumulator sgeh = collector.subscribe(SGEH_KEYWORD);
+        final KeywordAccumulator ltees = collector.subscribe(LTEES_KEYWORD);
+        collector.collect();
+        assertEquals(4, collector.getLastScan().getLinesMatched());
+
+        assertEquals(4.0, rules.getRule("event_rate").evaluate(sgeh, "2014-06-06 07"), 0.0);
+        assertEquals(2.0, rules.getRule("volume").evaluate(sgeh, "2014-06-06 07"), 0.0);
+        assertEquals(30.0, rules.getRule("max_events").evaluate(ltees, "2014-06-06 07"), 0.0);
+        assertEquals(2.0, rules.getRule("last_files").evaluate(ltees, "2014-06-06 07"), 0.0);
+        assertNull(rules.getRule("volume").evaluate(sgeh, "2014-06-06 08"));
+    }
+
+    private Properties getDefaults() {
+        final Properties defaults = new Properties();
+        defaults.setProperty("file", logFile.getPath());
+        defaults.setProperty("keyword", SGEH_KEYWORD);
+        return defaults;
+    }
+}
@@ -0,0 +1,42 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.schedule;
+
+import static org.junit.Assert.*;
+
+import org.hyperic.hq.product.MetricUnreachableException;
+import org.junit.Test;
+
+public class CollectionPermitsTest {
+
+    /**
+     * Test a collection is rejected once all permits are held, and counted.
+     *
+     */
+    @Test
+    public void testAcquireRejectsWhenExhausted() throws MetricUnreachableException {
+        final CollectionPermits permits = new CollectionPermits("heavy", 1, 10);
+        permits.acquire();
+        try {
+            permits.acquire();
+            fail("Expected MetricUnreachableException");
+        } catch (MetricUnreachableException e) {
+            assertEquals(1, permits.getRejectedCount());
+        } finally {
+            permits.release();
+        }
+
+        permits.acquire();
+        permits.release();
+        assertEquals(2, permits.getAcquiredCount());
+    }
+}
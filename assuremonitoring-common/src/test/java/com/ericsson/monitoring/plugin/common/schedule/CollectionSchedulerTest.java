@@ -0,0 +1,98 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.schedule;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class CollectionSchedulerTest {
+
+    private static final long INTERVAL_MILLIS = 900000L;
+
+    /**
+     * Test a resource keeps its offset in every interval.
+     *
+     */
+    @Test
+    public void testGetInitialDelaySameOffsetEachInterval() {
+        final String resource = "wfinstr:/eniq/log/wfinstr.log";
+        final long now = 1400000000000L;
+        final long delay = CollectionScheduler.getInitialDelay(resource, INTERVAL_MILLIS, now);
+
+        assertTrue(delay >= 0 && delay < INTERVAL_MILLIS);
+        assertEquals(delay, CollectionScheduler.getInitialDelay(resource, INTERVAL_MILLIS, now + INTERVAL_MILLIS));
+        assertEquals((delay - 1000 + INTERVAL_MILLIS) % INTERVAL_MILLIS, CollectionScheduler.getInitialDelay(
+                resource, INTERVAL_MILLIS, now + 1000));
+    }
+
+    /**
+     * Test a scheduled resource is collected, and only scheduled once.
+     *
+     */
+    @Test
+    public void testScheduleRunsTask() throws InterruptedException {
+        final CollectionScheduler scheduler = new CollectionScheduler(1);
+        final CountDownLatch collected = new CountDownLatch(2);
+        final CollectionScheduler.Task task = new CollectionScheduler.Task() {
+            @Override
+            public void collect() throws Exception {
+                collected.countDown();
+                throw new Exception("a failure does not cancel the next runs");
+            }
+        };
+
+        scheduler.schedule("backup:/var/log/backup.log", 50, task);
+        scheduler.schedule("backup:/var/log/backup.log", 50, task);
+
+        assertTrue(collected.await(5, TimeUnit.SECONDS));
+        assertTrue(scheduler.getRunCount() >= 2);
+    }
+
+    /**
+     * Test runNow collects a scheduled resource before its offset, but not
+     * while its collection is still running.
+     *
+     */
+    @Test
+    public void testRunNowSkipsRunningTask() throws InterruptedException {
+        final CollectionScheduler scheduler = new CollectionScheduler(2);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+        final CollectionScheduler.Task task = new CollectionScheduler.Task() {
+            @Override
+            public void collect() throws Exception {
+                runs.incrementAndGet();
+                started.countDown();
+                release.await();
+            }
+        };
+        final String resource = "wfinstr:/eniq/log/wfinstr.log";
+
+        // Not scheduled yet, then scheduled with an offset far beyond the test
+        scheduler.runNow(resource);
+        scheduler.schedule(resource, Long.MAX_VALUE / 4, task);
+        scheduler.runNow(resource);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scheduler.runNow(resource);
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals(1, runs.get());
+        assertEquals(2, scheduler.getRunCount());
+    }
+}
@@ -0,0 +1,194 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.stats;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hyperic.hq.product.MetricNotFoundException;
+import org.hyperic.hq.product.MetricUnreachableException;
+import org.hyperic.hq.product.PluginException;
+import org.junit.Test;
+
+import com.ericsson.monitoring.plugin.common.cache.CollectionCache;
+import com.ericsson.monitoring.plugin.common.process.ProcessRunner;
+import com.ericsson.monitoring.plugin.common.schedule.CollectionPermits;
+import com.ericsson.monitoring.plugin.common.schedule.CollectionScheduler;
+
+public class CollectionStatisticsTest {
+
+    /**
+     * Test the scans are summed and the lookups of the cache recorded.
+     *
+     */
+    @Test
+    public void testRecordScanAndCacheLookups() throws PluginException {
+        final CollectionStatistics statistics = new CollectionStatistics("OMBS Backup");
+        final CollectionStatistics.Scan scan = new CollectionStatistics.Scan();
+        scan.addFileOpened();
+        scan.addBytesRead(100);
+        scan.addLine(false);
+        scan.addLine(true);
+        statistics.recordScan(scan);
+        statistics.recordScan(scan);
+
+        assertEquals(200.0, statistics.getValue(CollectionStatistics.BYTES_READ).getValue(), 0.0);
+        assertEquals(4.0, statistics.getValue(CollectionStatistics.LINES_SCANNED).getValue(), 0.0);
+        assertEquals(2.0, statistics.getValue(CollectionStatistics.LINES_MATCHED).getValue(), 0.0);
+        assertEquals(2.0, statistics.getValue(CollectionStatistics.FILES_OPENED).getValue(), 0.0);
+        assertEquals(0.0, statistics.getValue(CollectionStatistics.CACHE_HIT_RATIO).getValue(), 0.0);
+
+        final CollectionCache cache = new CollectionCache(60000);
+        final CollectionCache.Collector collector = new CollectionCache.Collector() {
+            @Override
+            public Map<String, Double> collect() {
+                return Collections.singletonMap("Availability", 1.0);
+            }
+        };
+        for (int i = 0; i < 4; i++) {
+            cache.get("ombs:file=/var/log/backup.log", 1000 + i, collector, statistics);
+        }
+        assertEquals(1, statistics.getCollectionCount());
+        assertEquals(75.0, statistics.getValue(CollectionStatistics.CACHE_HIT_RATIO).getValue(), 0.0);
+    }
+
+    /**
+     * Test the collection durations are averaged over the collections since
+     * the previous report, and kept when there was none.
+     *
+     */
+    @Test
+    public void testCollectionDurationOverInterval() throws PluginException {
+        final CollectionStatistics statistics = new CollectionStatistics("Backlog Analysis");
+        statistics.recordCollection(100);
+        statistics.recordCollection(300);
+        assertEquals(200.0, statistics.getValue(CollectionStatistics.COLLECTION_DURATION).getValue(), 0.0);
+        assertEquals(300.0, statistics.getValue(CollectionStatistics.COLLECTION_DURATION_MAX).getValue(), 0.0);
+
+        statistics.recordCollection(50);
+        assertEquals(50.0, statistics.getValue(CollectionStatistics.COLLECTION_DURATION).getValue(), 0.0);
+        assertEquals(50.0, statistics.getValue(CollectionStatistics.COLLECTION_DURATION).getValue(), 0.0);
+        assertEquals(50.0, statistics.getValue(CollectionStatistics.COLLECTION_DURATION_MAX).getValue(), 0.0);
+    }
+
+    /**
+     * Test the statistics are shared by name and an unknown alias is not found.
+     *
+     */
+    @Test
+    public void testGetInstance() {
+        assertSame(CollectionStatistics.getInstance("EE Mediation-SGEH"),
+                CollectionStatistics.getInstance("EE Mediation-SGEH"));
+        assertNotSame(CollectionStatistics.getInstance("EE Mediation-SGEH"),
+                CollectionStatistics.getInstance("EE Mediation-LTEES"));
+
+        try {
+            CollectionStatistics.getInstance("EE Mediation-SGEH").getValue("Availability");
+            fail("Expected MetricNotFoundException");
+        } catch (MetricNotFoundException e) {
+            assertTrue(e.getMessage().contains("Availability"));
+        }
+    }
+
+    /**
+     * Test the queue delays of the scheduler are reported.
+     *
+     */
+    @Test
+    public void testQueueDelays() throws Exception {
+        final CollectionScheduler scheduler = new CollectionScheduler(1);
+        final CollectionStatistics statistics = new CollectionStatistics("Backlog Analysis", null, scheduler,
+                CollectionPermits.getHeavy(), CollectionPermits.getLight());
+        assertEquals(0.0, statistics.getValue(CollectionStatistics.SCHEDULED_RUNS).getValue(), 0.0);
+        assertEquals(0.0, statistics.getValue(CollectionStatistics.QUEUE_DELAY_AVG).getValue(), 0.0);
+
+        final CountDownLatch collected = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        scheduler.schedule("backlog:/eniq/log/backlog.log", 50, new CollectionScheduler.Task() {
+            @Override
+            public void collect() throws Exception {
+                collected.countDown();
+                // Hold the only thread so no other run is recorded
+                released.await();
+            }
+        });
+        try {
+            assertTrue(collected.await(5, TimeUnit.SECONDS));
+            assertEquals(1.0, statistics.getValue(CollectionStatistics.SCHEDULED_RUNS).getValue(), 0.0);
+            final double delay = scheduler.getLastQueueDelay();
+            assertEquals(delay, statistics.getValue(CollectionStatistics.QUEUE_DELAY_LAST).getValue(), 0.0);
+            assertEquals(delay, statistics.getValue(CollectionStatistics.QUEUE_DELAY_AVG).getValue(), 0.0);
+            assertEquals(delay, statistics.getValue(CollectionStatistics.QUEUE_DELAY_MAX).getValue(), 0.0);
+        } finally {
+            released.countDown();
+        }
+    }
+
+    /**
+     * Test the waits and rejections of each permit pool are reported under
+     * its prefix.
+     *
+     */
+    @Test
+    public void testPermitWaitsAndRejections() throws Exception {
+        final CollectionPermits heavy = new CollectionPermits("heavy", 1, 50);
+        final CollectionPermits light = new CollectionPermits("light", 1, 50);
+        final CollectionStatistics statistics = new CollectionStatistics("OMBS Backup", null,
+                new CollectionScheduler(1), heavy, light);
+
+        heavy.acquire();
+        try {
+            heavy.acquire();
+            fail("Expected MetricUnreachableException");
+        } catch (MetricUnreachableException e) {
+            assertTrue(e.getMessage().contains("heavy"));
+        }
+        heavy.release();
+
+        assertEquals(1.0, statistics.getValue("heavy_" + CollectionStatistics.PERMIT_REJECTIONS).getValue(), 0.0);
+        assertEquals(heavy.getAverageWait(), statistics.getValue("heavy_" + CollectionStatistics.PERMIT_WAIT_AVG)
+                .getValue(), 0.0);
+        assertEquals(heavy.getMaxWait(), statistics.getValue("heavy_" + CollectionStatistics.PERMIT_WAIT_MAX)
+                .getValue(), 0.0);
+        assertEquals(0.0, statistics.getValue("light_" + CollectionStatistics.PERMIT_REJECTIONS).getValue(), 0.0);
+        assertEquals(0.0, statistics.getValue("light_" + CollectionStatistics.PERMIT_WAIT_MAX).getValue(), 0.0);
+
+        try {
+            statistics.getValue("heavy_permits");
+            fail("Expected MetricNotFoundException");
+        } catch (MetricNotFoundException e) {
+            assertTrue(e.getMessage().contains("heavy_permits"));
+        }
+    }
+
+    /**
+     * Test the runs and timeouts of the external commands are reported.
+     *
+     */
+    @Test
+    public void testCommandRunsAndTimeouts() throws Exception {
+        final CollectionStatistics statistics = new CollectionStatistics("Rolling Snapshot");
+        final double runs = statistics.getValue(CollectionStatistics.COMMAND_RUNS).getValue();
+        final double timeouts = statistics.getValue(CollectionStatistics.COMMAND_TIMEOUTS).getValue();
+        new ProcessRunner(200).run("/bin/sleep", "30");
+
+        assertEquals(runs + 1, statistics.getValue(CollectionStatistics.COMMAND_RUNS).getValue(), 0.0);
+        assertEquals(timeouts + 1, statistics.getValue(CollectionStatistics.COMMAND_TIMEOUTS).getValue(), 0.0);
+        assertEquals(ProcessRunner.getAverageMillis(), statistics.getValue(CollectionStatistics.COMMAND_DURATION_AVG)
+                .getValue(), 0.0);
+        assertTrue(statistics.getValue(CollectionStatistics.COMMAND_DURATION_MAX).getValue() >= 200);
+    }
+}
@@ -0,0 +1,80 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.status;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.hyperic.hq.product.Metric;
+import org.hyperic.hq.product.MetricUnreachableException;
+import org.hyperic.hq.product.PluginException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AlarmFileMeasurementPluginTest {
+
+    private File alarmFile;
+    private AlarmFileMeasurementPlugin plugin;
+
+    @Before
+    public void setUp() throws Exception {
+        alarmFile = File.createTempFile("ombs_backup_alarm", "");
+        plugin = new AlarmFileMeasurementPlugin() {
+            @Override
+            public String getName() {
+                // Set by the agent when the plugin is loaded
+                return "OMBS Status";
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        alarmFile.delete();
+    }
+
+    /**
+     * Test every alias is up while the alarm file is absent.
+     *
+     */
+    @Test
+    public void testGetValueAlarmAbsent() throws PluginException {
+        alarmFile.delete();
+
+        assertEquals(Metric.AVAIL_UP, plugin.getValue(getMetric("Availability")).getValue(), 0.0);
+        assertEquals(Metric.AVAIL_UP, plugin.getValue(getMetric("ombs availability")).getValue(), 0.0);
+    }
+
+    /**
+     * Test the availability is down and every other alias unreachable while
+     * the alarm file is present.
+     *
+     */
+    @Test
+    public void testGetValueAlarmPresent() throws PluginException {
+        assertTrue(alarmFile.isFile());
+
+        assertEquals(Metric.AVAIL_DOWN, plugin.getValue(getMetric("Availability")).getValue(), 0.0);
+        try {
+            plugin.getValue(getMetric("ombs availability"));
+            fail("Expected MetricUnreachableException");
+        } catch (MetricUnreachableException e) {
+            assertTrue(e.getMessage().contains(alarmFile.getPath()));
+        }
+    }
+
+    private Metric getMetric(final String alias) {
+        return Metric.parse("alarm:file=" + alarmFile.getPath() + ":" + alias);
+    }
+}
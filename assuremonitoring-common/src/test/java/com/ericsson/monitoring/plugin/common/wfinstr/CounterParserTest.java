@@ -0,0 +1,82 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.wfinstr;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class CounterParserTest {
+
+    private static final Pattern COUNTER_PATTERN = Pattern.compile("(\\w+)=(\\w+)");
+
+    /**
+     * Test the counters parsed are those of the "(\w+)=(\w+)" pattern with a
+     * numeric value, summed per counter.
+     *
+     */
+    @Test
+    public void testParseAsPattern() {
+        final String[] lines = { "2014-06-06 07:00:01 SGEH.WF_SGEH_Processing_NFS Succ23=10 Err23=1 Files=2 Bytes=2048",
+                "Succ23=5 Succ23=7 Err4=0", "node=abc Files=3", "a=1=2 b==3 =4 c=5x d.e=6",
+                "Custom_Counter=42 Files=", "Bytes=12345678901234567890 Files=9", "" };
+        final CounterSlots slots = new CounterSlots();
+        final CounterParser parser = new CounterParser(slots);
+        for (final String line : lines) {
+            assertEquals(line, parseWithPattern(line), parse(parser, slots, line));
+        }
+    }
+
+    /**
+     * Test the known counters have their slots before any line is parsed.
+     *
+     */
+    @Test
+    public void testKnownCounterSlots() {
+        final CounterSlots slots = new CounterSlots();
+        assertEquals(CounterSlots.KNOWN_COUNTERS.length, slots.size());
+        assertEquals(0, slots.getSlot("Succ23"));
+        assertEquals("Bytes", slots.getName(slots.getSlot("Bytes")));
+
+        final byte[] line = "Unknown=1".getBytes();
+        assertEquals(CounterSlots.KNOWN_COUNTERS.length, slots.getSlot(line, 0, "Unknown".length()));
+        assertEquals(CounterSlots.KNOWN_COUNTERS.length + 1, slots.size());
+    }
+
+    private static Map<String, Long> parse(final CounterParser parser, final CounterSlots slots, final String line) {
+        final byte[] bytes = line.getBytes();
+        final int count = parser.parse(bytes, 0, bytes.length);
+        final Map<String, Long> counters = new HashMap<String, Long>();
+        for (int i = 0; i < count; i++) {
+            counters.put(slots.getName(parser.getSlot(i)), parser.getValue(parser.getSlot(i)));
+        }
+        return counters;
+    }
+
+    private static Map<String, Long> parseWithPattern(final String line) {
+        final Map<String, Long> counters = new HashMap<String, Long>();
+        final Matcher matcher = COUNTER_PATTERN.matcher(line);
+        while (matcher.find()) {
+            final String value = matcher.group(2);
+            if (value.matches("\\d{1,18}")) {
+                final Long total = counters.get(matcher.group(1));
+                counters.put(matcher.group(1), (total == null ? 0L : total) + Long.parseLong(value));
+            }
+        }
+        return counters;
+    }
+}
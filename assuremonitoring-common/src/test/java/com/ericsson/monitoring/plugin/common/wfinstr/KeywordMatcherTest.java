@@ -0,0 +1,68 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.wfinstr;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class KeywordMatcherTest {
+
+    private static final String SGEH_KEYWORD = "SGEH.WF_SGEH_Processing_NFS";
+    private static final String LTEES_KEYWORD = "EBSL.WF_LTEES_COUNTER";
+
+    /**
+     * Test the keywords found in a line, overlapping or one within another.
+     *
+     */
+    @Test
+    public void testMatchOverlappingKeywords() {
+        final KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("he", "she", "his", "hers"));
+        final boolean[] found = new boolean[matcher.getKeywordCount()];
+
+        assertEquals(3, match(matcher, "ushers", found));
+        assertTrue(found[0]);
+        assertTrue(found[1]);
+        assertFalse(found[2]);
+        assertTrue(found[3]);
+
+        assertEquals(1, match(matcher, "this", found));
+        assertFalse(found[0]);
+        assertTrue(found[2]);
+    }
+
+    /**
+     * Test a line of another feature, or with the keyword before the scanned
+     * bytes, has no keyword.
+     *
+     */
+    @Test
+    public void testMatchNoKeyword() {
+        final KeywordMatcher matcher = new KeywordMatcher(Arrays.asList(SGEH_KEYWORD, LTEES_KEYWORD));
+        final boolean[] found = new boolean[matcher.getKeywordCount()];
+
+        assertEquals(0, match(matcher, "2014-06-06 07:00:01 EBSL.WF_LTEEFA_COUNTER Events=1", found));
+        assertEquals(0, match(matcher, "2014-06-06 07:00:01 SGEH.WF_SGEH_Processing_NF Files=1", found));
+
+        final byte[] line = (SGEH_KEYWORD + " Files=1").getBytes();
+        assertEquals(0, matcher.match(line, 1, line.length, found));
+        assertEquals(1, matcher.match(line, 0, line.length, found));
+        assertTrue(found[0]);
+    }
+
+    private static int match(final KeywordMatcher matcher, final String line, final boolean[] found) {
+        final byte[] bytes = line.getBytes();
+        return matcher.match(bytes, 0, bytes.length, found);
+    }
+}
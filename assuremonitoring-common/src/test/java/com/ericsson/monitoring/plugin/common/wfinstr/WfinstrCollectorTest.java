@@ -0,0 +1,363 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.common.wfinstr;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.monitoring.plugin.common.checkpoint.CheckpointStore;
+import com.ericsson.monitoring.plugin.common.log.ReadThrottle;
+import com.ericsson.monitoring.plugin.common.log.TimePrefix;
+
+public class WfinstrCollectorTest {
+
+    private static final String KEYWORD = "SGEH.WF_SGEH_Processing_NFS";
+    private static final String LTEES_KEYWORD = "EBSL.WF_LTEES_COUNTER";
+
+    private File logDir;
+    private File logFile;
+
+    @Before
+    public void setUp() throws Exception {
+        logDir = File.createTempFile("wfinstr", "");
+        logDir.delete();
+        logDir.mkdir();
+        logFile = new File(logDir, "wfinstr.log");
+    }
+
+    @After
+    public void tearDown() {
+        for (final File file : logDir.listFiles()) {
+            file.delete();
+        }
+        logDir.delete();
+    }
+
+    /**
+     * Test collect sums the counters of the lines with the keyword into the hour of the line.
+     *
+     */
+    @Test
+    public void testCollectSumsCountersPerHour() throws IOException {
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Succ23=10 Err23=1 Files=2 Bytes=2048\n"
+                + "2014-06-06 07:30:00 " + LTEES_KEYWORD + " Events=99 Files=7\n"
+                + "2014-06-06 07:59:59 " + KEYWORD + " Succ23=5 Succ4=3 Files=1 Bytes=1024\n"
+                + "2014-06-06 08:00:00 " + KEYWORD + " Succ23=100\n");
+
+        final WfinstrCollector collector = new WfinstrCollector(logFile);
+        final KeywordAccumulator accumulator = collector.subscribe(KEYWORD);
+        collector.collect();
+
+        final Map<String, Long> counters = accumulator.getCounters("2014-06-06 07");
+        assertEquals(Long.valueOf(15), counters.get("Succ23"));
+        assertEquals(Long.valueOf(1), counters.get("Err23"));
+        assertEquals(Long.valueOf(3), counters.get("Succ4"));
+        assertEquals(Long.valueOf(3), counters.get("Files"));
+        assertEquals(Long.valueOf(3072), counters.get("Bytes"));
+        assertEquals(Long.valueOf(100), accumulator.getCounters("2014-06-06 08").get("Succ23"));
+        assertNull(accumulator.getCounters("2014-06-06 06"));
+    }
+
+    /**
+     * Test a second collect only parses the lines appended after the first one.
+     *
+     */
+    @Test
+    public void testCollectOnlyParsesAppendedLines() throws IOException {
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Files=2\n");
+        final WfinstrCollector collector = new WfinstrCollector(logFile);
+        final KeywordAccumulator accumulator = collector.subscribe(KEYWORD);
+        collector.collect();
+        assertEquals(logFile.length(), collector.getOffset());
+
+        append(logFile, "2014-06-06 07:10:00 " + KEYWORD + " Files=3\n");
+        collector.collect();
+        collector.collect();
+
+        assertEquals(Long.valueOf(5), accumulator.getCounters("2014-06-06 07").get("Files"));
+    }
+
+    /**
+     * Test an incomplete last line is only parsed once the line is terminated.
+     *
+     */
+    @Test
+    public void testCollectWaitsForCompleteLine() throws IOException {
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Files=2\n2014-06-06 07:00:02 " + KEYWORD + " Fil");
+        final WfinstrCollector collector = new WfinstrCollector(logFile);
+        final KeywordAccumulator accumulator = collector.subscribe(KEYWORD);
+        collector.collect();
+        assertEquals(Long.valueOf(2), accumulator.getCounters("2014-06-06 07").get("Files"));
+
+        append(logFile, "es=4\n");
+        collector.collect();
+        assertEquals(Long.valueOf(6), accumulator.getCounters("2014-06-06 07").get("Files"));
+    }
+
+    /**
+     * Test the collector restarts from the beginning when the log is truncated.
+     *
+     */
+    @Test
+    public void testCollectAfterTruncation() throws IOException {
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Files=2 Bytes=123456789\n");
+        final WfinstrCollector collector = new WfinstrCollector(logFile);
+        final KeywordAccumulator accumulator = collector.subscribe(KEYWORD);
+        collector.collect();
+
+        logFile.delete();
+        append(logFile, "2014-06-06 08:00:01 " + KEYWORD + " Files=1\n");
+        collector.collect();
+
+        assertEquals(Long.valueOf(1), accumulator.getCounters("2014-06-06 08").get("Files"));
+        assertEquals(Long.valueOf(2), accumulator.getCounters("2014-06-06 07").get("Files"));
+    }
+
+    /**
+     * Test the first collect also reads the rotated log files, but not the compressed ones.
+     *
+     */
+    @Test
+    public void testCollectReadsRotatedFiles() throws IOException {
+        append(new File(logDir, "wfinstr.log.1"), "2014-06-06 07:00:01 " + KEYWORD + " Files=2\n");
+        append(new File(logDir, "wfinstr.log.2.gz"), "2014-06-06 07:00:02 " + KEYWORD + " Files=7\n");
+        append(logFile, "2014-06-06 07:50:00 " + KEYWORD + " Files=3\n");
+
+        final WfinstrCollector collector = new WfinstrCollector(logFile);
+        final KeywordAccumulator accumulator = collector.subscribe(KEYWORD);
+        collector.collect();
+
+        assertEquals(Long.valueOf(5), accumulator.getCounters("2014-06-06 07").get("Files"));
+    }
+
+    /**
+     * Test a first collection limited in bytes catches up with the rotated
+     * file and the log over several collections, reading each line once.
+     *
+     */
+    @Test
+    public void testCollectSpreadsCatchUpOverCollections() throws IOException {
+        final StringBuilder rotated = new StringBuilder();
+        final StringBuilder current = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            rotated.append("2014-06-06 07:00:01 " + KEYWORD + " Files=1 Last=" + i + "\n");
+            current.append("2014-06-06 07:30:00 " + KEYWORD + " Files=2 Last=" + (100 + i) + "\n");
+        }
+        append(new File(logDir, "wfinstr.log.1"), rotated.toString());
+        append(logFile, current.toString());
+
+        final WfinstrCollector collector = new WfinstrCollector(logFile);
+        final KeywordAccumulator accumulator = collector.subscribe(KEYWORD);
+        final ReadThrottle throttle = new ReadThrottle(Long.MAX_VALUE / 2, 1.0, Double.MAX_VALUE, null);
+        int collections = 1;
+        while (!collector.collect(throttle, 1024)) {
+            collections++;
+        }
+
+        assertTrue(collections > 10);
+        assertEquals(Long.valueOf(300), accumulator.getCounters("2014-06-06 07").get("Files"));
+        assertEquals(Long.valueOf(199), accumulator.getLastCounters("2014-06-06 07").get("Last"));
+        assertEquals(logFile.length(), collector.getOffset());
+    }
+
+    /**
+     * Test a keyword subscribed late is caught up over several collections
+     * limited in bytes, while the keyword already read goes on with the lines
+     * appended meanwhile.
+     *
+     */
+    @Test
+    public void testCollectSpreadsLateCatchUpOverCollections() throws IOException {
+        final StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            lines.append("2014-06-06 07:00:01 " + KEYWORD + " Files=1\n2014-06-06 07:00:01 " + LTEES_KEYWORD
+                    + " Files=2\n");
+        }
+        append(logFile, lines.toString());
+        final WfinstrCollector collector = new WfinstrCollector(logFile);
+        final KeywordAccumulator sgeh = collector.subscribe(KEYWORD);
+        collector.collect();
+
+        final KeywordAccumulator ltees = collector.subscribe(LTEES_KEYWORD);
+        final ReadThrottle throttle = new ReadThrottle(Long.MAX_VALUE / 2, 1.0, Double.MAX_VALUE, null);
+        assertFalse(collector.collect(throttle, 1024));
+        append(logFile, "2014-06-06 07:10:00 " + KEYWORD + " Files=5\n2014-06-06 07:10:00 " + LTEES_KEYWORD
+                + " Files=7\n");
+        int collections = 2;
+        while (!collector.collect(throttle, 1024)) {
+            collections++;
+        }
+
+        assertTrue(collections > 5);
+        assertEquals(Long.valueOf(105), sgeh.getCounters("2014-06-06 07").get("Files"));
+        assertEquals(Long.valueOf(207), ltees.getCounters("2014-06-06 07").get("Files"));
+    }
+
+    /**
+     * Test every subscribed keyword is routed the counters of its own lines.
+     *
+     */
+    @Test
+    public void testCollectRoutesLinesToEveryKeyword() throws IOException {
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Files=2\n"
+                + "2014-06-06 07:00:02 " + LTEES_KEYWORD + " Files=7 Events=10\n");
+        final WfinstrCollector collector = new WfinstrCollector(logFile);
+        final KeywordAccumulator sgeh = collector.subscribe(KEYWORD);
+        final KeywordAccumulator ltees = collector.subscribe(LTEES_KEYWORD);
+        collector.collect();
+
+        assertSame(sgeh, collector.subscribe(KEYWORD));
+        assertEquals(Long.valueOf(2), sgeh.getCounters("2014-06-06 07").get("Files"));
+        assertNull(sgeh.getCounters("2014-06-06 07").get("Events"));
+        assertEquals(Long.valueOf(7), ltees.getCounters("2014-06-06 07").get("Files"));
+        assertEquals(Long.valueOf(10), ltees.getCounters("2014-06-06 07").get("Events"));
+    }
+
+    /**
+     * Test a keyword subscribed after the first collection is caught up without double counting the others.
+     *
+     */
+    @Test
+    public void testCollectCatchesUpLateSubscriber() throws IOException {
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Files=2\n"
+                + "2014-06-06 07:00:02 " + LTEES_KEYWORD + " Files=7\n");
+        final WfinstrCollector collector = new WfinstrCollector(logFile);
+        final KeywordAccumulator sgeh = collector.subscribe(KEYWORD);
+        collector.collect();
+
+        append(logFile, "2014-06-06 07:10:00 " + LTEES_KEYWORD + " Files=1\n");
+        final KeywordAccumulator ltees = collector.subscribe(LTEES_KEYWORD);
+        collector.collect();
+
+        assertEquals(Long.valueOf(2), sgeh.getCounters("2014-06-06 07").get("Files"));
+        assertEquals(Long.valueOf(8), ltees.getCounters("2014-06-06 07").get("Files"));
+    }
+
+    /**
+     * Test a new collector reads the log again instead of resuming from the
+     * checkpoint when the log was rewritten in place, as the fingerprint of
+     * the bytes before the offset no longer matches.
+     *
+     */
+    @Test
+    public void testCollectRereadsLogRewrittenInPlace() throws IOException {
+        final CheckpointStore checkpointStore = new CheckpointStore(logDir);
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Files=2\n");
+        final WfinstrCollector collector = new WfinstrCollector(logFile, checkpointStore);
+        collector.subscribe(KEYWORD);
+        collector.collect();
+
+        // Rewritten in place, so only a collector reading from the start would see Files=9
+        logFile.delete();
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Files=9\n2014-06-06 07:10:00 " + KEYWORD + " Files=3\n");
+        final WfinstrCollector restarted = new WfinstrCollector(logFile, checkpointStore);
+        final KeywordAccumulator accumulator = restarted.subscribe(KEYWORD);
+        restarted.collect();
+
+        assertEquals(logFile.length(), restarted.getOffset());
+        assertEquals(Long.valueOf(12), accumulator.getCounters("2014-06-06 07").get("Files"));
+        assertEquals(Long.valueOf(9), accumulator.getMaxCounters("2014-06-06 07").get("Files"));
+    }
+
+    /**
+     * Test a new collector resumes from the checkpoint instead of reading
+     * the log again when lines were only appended.
+     *
+     */
+    @Test
+    public void testCollectResumesFromCheckpointAfterAppend() throws IOException {
+        final CheckpointStore checkpointStore = new CheckpointStore(logDir);
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Files=2\n");
+        final WfinstrCollector collector = new WfinstrCollector(logFile, checkpointStore);
+        collector.subscribe(KEYWORD);
+        collector.collect();
+
+        // Only a collector reading from the start would count Files=2 twice
+        append(logFile, "2014-06-06 07:10:00 " + KEYWORD + " Files=3\n");
+        final WfinstrCollector restarted = new WfinstrCollector(logFile, checkpointStore);
+        final KeywordAccumulator accumulator = restarted.subscribe(KEYWORD);
+        restarted.collect();
+
+        assertEquals(logFile.length(), restarted.getOffset());
+        assertEquals(Long.valueOf(5), accumulator.getCounters("2014-06-06 07").get("Files"));
+        assertEquals(Long.valueOf(3), accumulator.getMaxCounters("2014-06-06 07").get("Files"));
+    }
+
+    /**
+     * Test a collector restarted after the log was rotated reads the lines
+     * written before the rotation from the rotated file, each line once, and
+     * catches up a keyword subscribed since.
+     *
+     */
+    @Test
+    public void testCollectResumesAcrossRotation() throws IOException {
+        final CheckpointStore checkpointStore = new CheckpointStore(logDir);
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Files=2\n");
+        final WfinstrCollector collector = new WfinstrCollector(logFile, checkpointStore);
+        collector.subscribe(KEYWORD);
+        collector.collect();
+
+        append(logFile, "2014-06-06 07:30:00 " + KEYWORD + " Files=3\n2014-06-06 07:30:01 " + LTEES_KEYWORD
+                + " Events=4\n");
+        final File rotatedFile = new File(logDir, "wfinstr.log.1");
+        assertTrue(logFile.renameTo(rotatedFile));
+        rotatedFile.setLastModified(System.currentTimeMillis() - 1000L);
+        append(logFile, "2014-06-06 07:50:00 " + KEYWORD + " Files=4\n2014-06-06 07:50:01 " + LTEES_KEYWORD
+                + " Events=5\n");
+        final WfinstrCollector restarted = new WfinstrCollector(logFile, checkpointStore);
+        final KeywordAccumulator accumulator = restarted.subscribe(KEYWORD);
+        final KeywordAccumulator lteesAccumulator = restarted.subscribe(LTEES_KEYWORD);
+        restarted.collect();
+
+        assertEquals(logFile.length(), restarted.getOffset());
+        assertEquals(Long.valueOf(9), accumulator.getCounters("2014-06-06 07").get("Files"));
+        assertEquals(Long.valueOf(9), lteesAccumulator.getCounters("2014-06-06 07").get("Events"));
+    }
+
+    /**
+     * Test the counters are accumulated per minute with a minute time prefix,
+     * with the largest and the last value of a line.
+     *
+     */
+    @Test
+    public void testCollectPerMinute() throws IOException {
+        append(logFile, "2014-06-06 07:00:01 " + KEYWORD + " Files=2\n"
+                + "2014-06-06 07:00:30 " + KEYWORD + " Files=5\n"
+                + "2014-06-06 07:00:59 " + KEYWORD + " Files=1 Files=2\n"
+                + "2014-06-06 07:01:00 " + KEYWORD + " Files=7\n");
+
+        final WfinstrCollector collector = new WfinstrCollector(logFile, new TimePrefix("yyyy-MM-dd HH:mm"), null);
+        final KeywordAccumulator accumulator = collector.subscribe(KEYWORD);
+        collector.collect();
+
+        assertEquals(Long.valueOf(10), accumulator.getCounters("2014-06-06 07:00").get("Files"));
+        assertEquals(Long.valueOf(5), accumulator.getMaxCounters("2014-06-06 07:00").get("Files"));
+        assertEquals(Long.valueOf(3), accumulator.getLastCounters("2014-06-06 07:00").get("Files"));
+        assertEquals(Long.valueOf(7), accumulator.getCounters("2014-06-06 07:01").get("Files"));
+        assertNull(accumulator.getCounters("2014-06-06 07"));
+    }
+
+    private static void append(final File file, final String text) throws IOException {
+        final Writer writer = new FileWriter(file, true);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
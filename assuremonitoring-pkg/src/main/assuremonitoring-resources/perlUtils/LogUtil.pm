@@ -36,11 +36,19 @@ our $logdir = "/opt/assuremonitoring-plugins/log/";
 our $logname = basename($0);
 our $logfile = "$logdir/$logname.log";
 
+# Log rotation and batching, overridden by PLUGIN_LOG_* in global.env
+our $global_env = "/opt/assuremonitoring-plugins/ericsson/etc/global.env";
+our $log_max_bytes = 1048576;
+our $log_max_files = 10;
+our $log_batch_lines = 50;
+our @log_buffer = ();
+
 # Export Variable
 our @EXPORT = qw (
    InitLog
    EndLog
    RotateLogs
+   FlushLog
    LogMsg
    LogInfo
    LogError
@@ -62,13 +70,12 @@ sub InitLog {
       system("mkdir -m 775 $logdir");
    }
 
-   RotateLogs();
+   ReadLogSettings();
 
-   unless (-f $logfile) {
-       open LOGFILE, "+>", $logfile or die $!;
-       print LOGFILE strftime "%F %X :$logname started.\n\n", localtime;
-       close LOGFILE;
-   }
+   # Rotated by size or day, rather than on every run
+   RotateLogs() if (IsRotationDue());
+
+   push @log_buffer, strftime "%F %X :$logname started.\n\n", localtime;
 
 }
 
@@ -79,14 +86,36 @@ sub EndLog {
 
    my $total_exe_time = ($end_ms - $start_ms);
 
-   open LOGFILE, ">>", $logfile or die $!;
-   print LOGFILE "Total execution time is $total_exe_time milliseconds.\n";
-   print LOGFILE strftime "\n%F %X :$logname ends.\n", localtime;
-   close LOGFILE;
+   push @log_buffer, "Total execution time is $total_exe_time milliseconds.\n";
+   push @log_buffer, strftime "\n%F %X :$logname ends.\n", localtime;
+   FlushLog();
+}
+
+sub ReadLogSettings {
+    open(ENV, "<$global_env") || return;
+    while (my $line = <ENV>) {
+        if ($line =~ /^PLUGIN_LOG_MAX_BYTES=(\d+)\s*$/ && $1 > 0) {
+            $log_max_bytes = $1;
+        } elsif ($line =~ /^PLUGIN_LOG_MAX_FILES=(\d+)\s*$/ && $1 > 0) {
+            $log_max_files = $1;
+        } elsif ($line =~ /^PLUGIN_LOG_BATCH_LINES=(\d+)\s*$/ && $1 > 0) {
+            $log_batch_lines = $1;
+        }
+    }
+    close(ENV);
+}
+
+sub IsRotationDue {
+    my @stat = stat($logfile);
+    return 0 unless (@stat);
+
+    # Over the size limit, or last written on a previous day
+    return 1 if ($stat[7] >= $log_max_bytes);
+    return (strftime("%F", localtime($stat[9])) ne strftime("%F", localtime));
 }
 
 sub RotateLogs {
-    my $no_of_logs = 10;
+    my $no_of_logs = $log_max_files;
 
     for(my $y = $no_of_logs - 1; $y >= 1; $y--)
     {
@@ -103,10 +132,18 @@ sub LogMsg {
        print "@msgs"."\n"; 
     }
 
+    # Written in batches, the rest once the script ends
+    push @log_buffer, "@msgs"."\n";
+    FlushLog() if (scalar(@log_buffer) >= $log_batch_lines);
+}
+
+sub FlushLog {
+    return unless (@log_buffer);
+
     open(LOG, ">>$logfile") || die "Cannot open logfile $logfile: $!";
-    print LOG "@msgs"."\n";
+    print LOG @log_buffer;
     close(LOG);
-
+    @log_buffer = ();
 }
 
 sub LogInfo {
@@ -129,4 +166,10 @@ sub LogError {
     LogMsg(@output);
 }
 
+END {
+    # Keep the exit status of the script
+    local $?;
+    eval { FlushLog(); };
+}
+
 1;
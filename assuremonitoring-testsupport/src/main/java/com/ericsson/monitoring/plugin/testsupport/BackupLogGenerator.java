@@ -0,0 +1,55 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.testsupport;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Generator of a backup log in the "dd.mm.yy_HH:MM:SS - message" format of
+ * the OMBS backup and rolling snapshot logs. The first line reports a
+ * successful backup, and then one line every given number of lines.
+ */
+public class BackupLogGenerator extends LogGenerator {
+    public static final String OMBS_SUCCESS_MESSAGE = "ENIQ Server successfully prepared for Backup";
+    public static final String SNAPSHOT_SUCCESS_MESSAGE = "Snapshot successfully created";
+
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("dd.MM.yy_HH:mm:ss");
+    private final String successMessage;
+    private int successInterval = 1000;
+    private long lineCount;
+
+    /**
+     * @param seed of the random lines
+     * @param successMessage logged when a backup completes
+     */
+    public BackupLogGenerator(final long seed, final String successMessage) {
+        super(seed);
+        this.successMessage = successMessage;
+    }
+
+    /**
+     * @param successInterval lines between two successful backups, 0 for none at all
+     */
+    public void setSuccessInterval(final int successInterval) {
+        this.successInterval = successInterval;
+    }
+
+    @Override
+    protected String formatLine(final long timeMillis) {
+        final String time = timeFormat.format(new Date(timeMillis));
+        if (successInterval > 0 && lineCount++ % successInterval == 0) {
+            return time + " - " + successMessage;
+        }
+        return time + " - Checking the status of the backup of file system " + random.nextInt(64);
+    }
+}
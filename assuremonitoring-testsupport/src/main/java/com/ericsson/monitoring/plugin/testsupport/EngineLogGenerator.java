@@ -0,0 +1,110 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.testsupport;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Generator of the ENIQ engine logs: "created N files (M files left)" lines
+ * of the loader of each interface, mixed with other engine lines.
+ *
+ * The engine writes one log per day, engine-yyyy_MM_dd.log, so the rotated
+ * files are the logs of the previous days.
+ */
+public class EngineLogGenerator extends LogGenerator {
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("dd.MM HH:mm:ss");
+    private final StringBuilder line = new StringBuilder(128);
+    private int interfaceCount = 100;
+
+    public EngineLogGenerator(final long seed) {
+        super(seed);
+    }
+
+    /**
+     * @param interfaceCount number of interfaces logging
+     */
+    public void setInterfaceCount(final int interfaceCount) {
+        this.interfaceCount = interfaceCount;
+    }
+
+    /**
+     * Get the name of an interface, as listed by get_active_interfaces.
+     *
+     * @param index of the interface
+     * @return interface name
+     */
+    public static String getInterfaceName(final int index) {
+        return "INTF_DC_E_" + index;
+    }
+
+    /**
+     * Generate the logs of the day of the start time and of the previous
+     * days, the size being split between the days. The lines of each day
+     * start at the time of day of the start time.
+     *
+     * @param logDir engine log directory
+     * @param startMillis timestamp of the first line of the day generated
+     * @return files generated, oldest first
+     * @throws IOException if a file cannot be written
+     */
+    @Override
+    public List<File> generate(final File logDir, final long startMillis) throws IOException {
+        final List<File> files = new ArrayList<File>();
+        final Calendar day = Calendar.getInstance();
+        for (int i = getRotations(); i >= 0; i--) {
+            day.setTimeInMillis(startMillis);
+            day.add(Calendar.DAY_OF_MONTH, -i);
+            final long firstLineMillis = day.getTimeInMillis();
+            day.set(Calendar.HOUR_OF_DAY, 0);
+            day.set(Calendar.MINUTE, 0);
+            day.set(Calendar.SECOND, 0);
+            day.set(Calendar.MILLISECOND, 0);
+            day.add(Calendar.DAY_OF_MONTH, 1);
+
+            final File file = getLogFile(logDir, firstLineMillis);
+            writeLines(file, firstLineMillis, day.getTimeInMillis(), getSizeBytes() / (getRotations() + 1));
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Get the engine log of a day.
+     *
+     * @param logDir engine log directory
+     * @param timeMillis time within the day
+     * @return File
+     */
+    public static File getLogFile(final File logDir, final long timeMillis) {
+        return new File(logDir, "engine-" + new SimpleDateFormat("yyyy_MM_dd").format(new Date(timeMillis)) + ".log");
+    }
+
+    @Override
+    protected String formatLine(final long timeMillis) {
+        line.setLength(0);
+        line.append(timeFormat.format(new Date(timeMillis)));
+        final int intf = random.nextInt(interfaceCount);
+        if (random.nextInt(4) == 0) {
+            line.append(" INFO Loader.").append(getInterfaceName(intf)).append(" created ");
+            line.append(random.nextInt(100)).append(" files (").append(random.nextInt(1000)).append(" files left)");
+        } else {
+            line.append(" INFO Engine.Loader.Adapter Set DC_E_").append(intf).append(" loaded");
+        }
+        return line.toString();
+    }
+}
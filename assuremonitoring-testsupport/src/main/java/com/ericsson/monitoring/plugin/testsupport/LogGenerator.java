@@ -0,0 +1,239 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.testsupport;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of a synthetic log, for benchmarks and load tests of the
+ * collectors.
+ *
+ * The lines are drawn from a random generator seeded by the caller, so the
+ * same seed and settings always give the same files. A log is generated at
+ * once, up to a total size split between the log and its rotated files, or
+ * replayed: appended in real time at a target rate, to test incremental
+ * tailing.
+ */
+public abstract class LogGenerator {
+    private static final long REPLAY_BATCH_MILLIS = 100L;
+
+    protected final Random random;
+    private long sizeBytes = 1024L * 1024L;
+    private int rotations;
+    private long lineIntervalMillis = 1000L;
+    private long replayRotationBytes;
+    private boolean copyTruncate;
+
+    /**
+     * @param seed of the random lines
+     */
+    protected LogGenerator(final long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Format a line of the log.
+     *
+     * @param timeMillis timestamp of the line
+     * @return line without terminator
+     */
+    protected abstract String formatLine(long timeMillis);
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * @param sizeBytes total size of the log and its rotated files
+     */
+    public void setSizeBytes(final long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public int getRotations() {
+        return rotations;
+    }
+
+    /**
+     * @param rotations number of rotated files generated before the log
+     */
+    public void setRotations(final int rotations) {
+        this.rotations = rotations;
+    }
+
+    public long getLineIntervalMillis() {
+        return lineIntervalMillis;
+    }
+
+    /**
+     * @param lineIntervalMillis time between the timestamps of two lines
+     */
+    public void setLineIntervalMillis(final long lineIntervalMillis) {
+        this.lineIntervalMillis = lineIntervalMillis;
+    }
+
+    /**
+     * Rotate the log while it is replayed.
+     *
+     * @param replayRotationBytes size at which the log is rotated, 0 not to rotate
+     * @param copyTruncate true to copy the log and truncate it, false to rename it
+     */
+    public void setReplayRotation(final long replayRotationBytes, final boolean copyTruncate) {
+        this.replayRotationBytes = replayRotationBytes;
+        this.copyTruncate = copyTruncate;
+    }
+
+    /**
+     * Generate the log and its rotated files, named as by logrotate: the
+     * oldest is logFile.N and the most recent rotated one logFile.1. Each
+     * file is last modified at the time of its last line.
+     *
+     * @param logFile to generate
+     * @param startMillis timestamp of the first line of the oldest file
+     * @return files generated, oldest first
+     * @throws IOException if a file cannot be written
+     */
+    public List<File> generate(final File logFile, final long startMillis) throws IOException {
+        final List<File> files = new ArrayList<File>();
+        long timeMillis = startMillis;
+        for (int i = rotations; i >= 0; i--) {
+            final File file = (i == 0 ? logFile : getRotatedFile(logFile, i));
+            timeMillis = writeLines(file, timeMillis, Long.MAX_VALUE, sizeBytes / (rotations + 1));
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Append lines to the log in real time, timestamped with the current
+     * time, rotating the log as set by {@link #setReplayRotation}.
+     *
+     * @param logFile to append to
+     * @param linesPerSecond target rate
+     * @param durationMillis time to replay for
+     * @return number of lines appended
+     * @throws IOException if the log cannot be written
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public long replay(final File logFile, final double linesPerSecond, final long durationMillis)
+            throws IOException, InterruptedException {
+        final long startMillis = System.currentTimeMillis();
+        long written = 0;
+        long nowMillis;
+        while ((nowMillis = System.currentTimeMillis()) - startMillis < durationMillis) {
+            final long due = (long) ((nowMillis - startMillis) * linesPerSecond / 1000.0) - written;
+            if (due > 0) {
+                final Writer writer = openAppend(logFile);
+                try {
+                    for (long i = 0; i < due; i++) {
+                        writer.write(formatLine(nowMillis));
+                        writer.write('\n');
+                    }
+                } finally {
+                    writer.close();
+                }
+                written += due;
+                if (replayRotationBytes > 0 && logFile.length() >= replayRotationBytes) {
+                    rotate(logFile);
+                }
+            }
+            Thread.sleep(REPLAY_BATCH_MILLIS);
+        }
+        return written;
+    }
+
+    /**
+     * Get the name of a rotated file of the log.
+     *
+     * @param logFile the log
+     * @param index 1 for the most recent rotated file
+     * @return File
+     */
+    protected File getRotatedFile(final File logFile, final int index) {
+        return new File(logFile.getPath() + "." + index);
+    }
+
+    /**
+     * Write lines to a file, one line interval apart, until it has the given
+     * size or the timestamps reach the end time.
+     *
+     * @param file to write, replaced if it exists
+     * @param startMillis timestamp of the first line
+     * @param endMillis timestamp not to reach
+     * @param bytes size of the file
+     * @return timestamp of the line following the last one written
+     * @throws IOException if the file cannot be written
+     */
+    protected long writeLines(final File file, final long startMillis, final long endMillis, final long bytes)
+            throws IOException {
+        long timeMillis = startMillis;
+        long written = 0;
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1"),
+                64 * 1024);
+        try {
+            while (written < bytes && timeMillis < endMillis) {
+                final String line = formatLine(timeMillis);
+                writer.write(line);
+                writer.write('\n');
+                written += line.length() + 1;
+                timeMillis += lineIntervalMillis;
+            }
+        } finally {
+            writer.close();
+        }
+        file.setLastModified(Math.max(startMillis, timeMillis - lineIntervalMillis));
+        return timeMillis;
+    }
+
+    private static Writer openAppend(final File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "ISO-8859-1"));
+    }
+
+    /**
+     * Shift the rotated files by one, up to the number of rotations, and
+     * rotate the log to logFile.1.
+     */
+    private void rotate(final File logFile) throws IOException {
+        for (int i = Math.max(rotations, 1); i > 1; i--) {
+            final File previous = getRotatedFile(logFile, i - 1);
+            if (previous.isFile()) {
+                previous.renameTo(getRotatedFile(logFile, i));
+            }
+        }
+
+        final File rotated = getRotatedFile(logFile, 1);
+        if (!copyTruncate) {
+            logFile.renameTo(rotated);
+            return;
+        }
+
+        final InputStream input = new FileInputStream(logFile);
+        try {
+            final OutputStream output = new FileOutputStream(rotated);
+            try {
+                final byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = input.read(buffer)) > 0) {
+                    output.write(buffer, 0, read);
+                }
+            } finally {
+                output.close();
+            }
+        } finally {
+            input.close();
+        }
+        new FileOutputStream(logFile).close();
+    }
+}
@@ -0,0 +1,111 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.testsupport;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line of the generators:
+ *
+ * <pre>
+ * java -jar assuremonitoring-testsupport.jar wfinstr|engine|ombs|snapshot FILE
+ *     [--seed N] [--size BYTES[K|M|G]] [--rotations N] [--interfaces N]
+ *     [--interval MILLIS] [--start yyyy-MM-dd'T'HH:mm:ss]
+ *     [--replay LINES_PER_SECOND --duration SECONDS [--rotate-size BYTES] [--copytruncate]]
+ * </pre>
+ *
+ * FILE is the engine log directory for "engine". Without --replay the log is
+ * generated at once, ending about now unless --start is given.
+ */
+public final class LogGeneratorMain {
+
+    private LogGeneratorMain() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: wfinstr|engine|ombs|snapshot FILE [options], see LogGeneratorMain");
+            System.exit(1);
+        }
+
+        final Map<String, String> options = new HashMap<String, String>();
+        for (int i = 2; i < args.length; i++) {
+            if ("--copytruncate".equals(args[i])) {
+                options.put(args[i], "true");
+            } else if (i + 1 < args.length) {
+                options.put(args[i], args[++i]);
+            }
+        }
+
+        final long seed = Long.parseLong(getOption(options, "--seed", "1"));
+        final LogGenerator generator;
+        if ("wfinstr".equals(args[0])) {
+            generator = new WfinstrLogGenerator(seed);
+        } else if ("engine".equals(args[0])) {
+            final EngineLogGenerator engineGenerator = new EngineLogGenerator(seed);
+            engineGenerator.setInterfaceCount(Integer.parseInt(getOption(options, "--interfaces", "100")));
+            generator = engineGenerator;
+        } else if ("ombs".equals(args[0])) {
+            generator = new BackupLogGenerator(seed, BackupLogGenerator.OMBS_SUCCESS_MESSAGE);
+        } else if ("snapshot".equals(args[0])) {
+            generator = new BackupLogGenerator(seed, BackupLogGenerator.SNAPSHOT_SUCCESS_MESSAGE);
+        } else {
+            throw new IllegalArgumentException("Unknown log type " + args[0]);
+        }
+        generator.setSizeBytes(parseSize(getOption(options, "--size", "1M")));
+        generator.setRotations(Integer.parseInt(getOption(options, "--rotations", "0")));
+        generator.setLineIntervalMillis(Long.parseLong(getOption(options, "--interval", "1000")));
+
+        final File file = new File(args[1]);
+        if (options.containsKey("--replay")) {
+            generator.setReplayRotation(parseSize(getOption(options, "--rotate-size", "0")),
+                    options.containsKey("--copytruncate"));
+            final long lines = generator.replay(file, Double.parseDouble(options.get("--replay")),
+                    Long.parseLong(getOption(options, "--duration", "60")) * 1000L);
+            System.out.println("Appended " + lines + " lines to " + file);
+            return;
+        }
+
+        final long startMillis;
+        if (options.containsKey("--start")) {
+            startMillis = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").parse(options.get("--start"))
+                    .getTime();
+        } else {
+            // Estimated from a line of about 100 bytes, so the log ends about now. The
+            // engine logs of the previous days start at the same time of day.
+            final int days = (generator instanceof EngineLogGenerator ? generator.getRotations() + 1 : 1);
+            final long lineCount = generator.getSizeBytes() / 100 / days;
+            startMillis = System.currentTimeMillis() - lineCount * generator.getLineIntervalMillis();
+        }
+        for (final File generated : generator.generate(file, startMillis)) {
+            System.out.println(generated + " " + generated.length() + " bytes");
+        }
+    }
+
+    private static String getOption(final Map<String, String> options, final String name, final String defaultValue) {
+        final String value = options.get(name);
+        return (value == null ? defaultValue : value);
+    }
+
+    /**
+     * Parse a size in bytes, with an optional K, M or G suffix.
+     */
+    static long parseSize(final String size) {
+        final char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+        final int shift = (unit == 'K' ? 10 : (unit == 'M' ? 20 : (unit == 'G' ? 30 : 0)));
+        final String digits = (shift == 0 ? size : size.substring(0, size.length() - 1));
+        return Long.parseLong(digits) << shift;
+    }
+}
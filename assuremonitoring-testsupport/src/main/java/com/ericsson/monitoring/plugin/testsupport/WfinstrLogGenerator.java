@@ -0,0 +1,57 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.testsupport;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Generator of a mediation gateway wfinstr.log: lines of the workflow
+ * keywords with their Succ23, Err23, Succ4, Err4, Files and Bytes counters,
+ * mixed with lines of other workflows.
+ */
+public class WfinstrLogGenerator extends LogGenerator {
+    public static final String[] DEFAULT_KEYWORDS = { "SGEH.WF_SGEH_Processing_NFS", "LTEES.WF_LTEES_Processing",
+            "LTEEFA.WF_LTEEFA_Processing" };
+    private static final String OTHER_KEYWORD = "EBSL.WF_EBSL_Processing";
+
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final StringBuilder line = new StringBuilder(160);
+    private String[] keywords = DEFAULT_KEYWORDS;
+
+    public WfinstrLogGenerator(final long seed) {
+        super(seed);
+    }
+
+    /**
+     * @param keywords of the features reported in the log
+     */
+    public void setKeywords(final String... keywords) {
+        this.keywords = keywords.clone();
+    }
+
+    @Override
+    protected String formatLine(final long timeMillis) {
+        line.setLength(0);
+        line.append(timeFormat.format(new Date(timeMillis))).append(' ');
+        // One line in four is of a workflow not monitored
+        final int choice = random.nextInt(keywords.length * 4 / 3 + 1);
+        line.append(choice < keywords.length ? keywords[choice] : OTHER_KEYWORD);
+        line.append(" Succ23=").append(random.nextInt(10000));
+        line.append(" Err23=").append(random.nextInt(10));
+        line.append(" Succ4=").append(random.nextInt(10000));
+        line.append(" Err4=").append(random.nextInt(10));
+        line.append(" Files=").append(random.nextInt(20));
+        line.append(" Bytes=").append(random.nextInt(1 << 30));
+        return line.toString();
+    }
+}
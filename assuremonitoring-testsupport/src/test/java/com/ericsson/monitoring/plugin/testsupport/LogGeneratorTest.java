@@ -0,0 +1,130 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.testsupport;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogGeneratorTest {
+
+    private static final long START_MILLIS = 1402045200000L;
+
+    private File logFile;
+    private File otherFile;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("wfinstr", ".log");
+        otherFile = File.createTempFile("wfinstr", ".log");
+    }
+
+    @After
+    public void tearDown() {
+        for (int i = 0; i <= 2; i++) {
+            new File(logFile.getPath() + (i == 0 ? "" : "." + i)).delete();
+        }
+        otherFile.delete();
+    }
+
+    /**
+     * Test the same seed generates the same log.
+     *
+     */
+    @Test
+    public void testGenerateSameSeed() throws IOException {
+        newGenerator(42).generate(logFile, START_MILLIS);
+        newGenerator(42).generate(otherFile, START_MILLIS);
+
+        assertTrue(logFile.length() >= 10000);
+        assertEquals(read(logFile), read(otherFile));
+
+        newGenerator(43).generate(otherFile, START_MILLIS);
+        assertFalse(read(logFile).equals(read(otherFile)));
+    }
+
+    /**
+     * Test the rotated files are generated oldest first, each last modified
+     * before the next one.
+     *
+     */
+    @Test
+    public void testGenerateRotations() throws IOException {
+        final LogGenerator generator = newGenerator(1);
+        generator.setRotations(2);
+
+        final List<File> files = generator.generate(logFile, START_MILLIS);
+
+        assertEquals(3, files.size());
+        assertEquals(new File(logFile.getPath() + ".2"), files.get(0));
+        assertEquals(new File(logFile.getPath() + ".1"), files.get(1));
+        assertEquals(logFile, files.get(2));
+        for (int i = 0; i < files.size(); i++) {
+            assertTrue(files.get(i).length() > 0);
+            if (i > 0) {
+                assertTrue(files.get(i - 1).lastModified() < files.get(i).lastModified());
+            }
+        }
+    }
+
+    /**
+     * Test the backup log reports a success first and then every interval.
+     *
+     */
+    @Test
+    public void testBackupSuccessInterval() throws IOException {
+        final BackupLogGenerator generator = new BackupLogGenerator(1, BackupLogGenerator.OMBS_SUCCESS_MESSAGE);
+        generator.setSuccessInterval(10);
+        generator.setSizeBytes(10000);
+        generator.generate(logFile, START_MILLIS);
+
+        final BufferedReader reader = new BufferedReader(new FileReader(logFile));
+        try {
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                assertEquals(line, lineNumber % 10 == 0, line.contains(BackupLogGenerator.OMBS_SUCCESS_MESSAGE));
+                lineNumber++;
+            }
+            assertTrue(lineNumber > 10);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static LogGenerator newGenerator(final long seed) {
+        final WfinstrLogGenerator generator = new WfinstrLogGenerator(seed);
+        generator.setSizeBytes(10000);
+        generator.setLineIntervalMillis(1000);
+        return generator;
+    }
+
+    private static String read(final File file) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        final Reader reader = new FileReader(file);
+        try {
+            final char[] buffer = new char[4096];
+            int length;
+            while ((length = reader.read(buffer)) > 0) {
+                text.append(buffer, 0, length);
+            }
+        } finally {
+            reader.close();
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,155 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.backlog;
+
+import java.io.IOException;
+
+import org.apache.commons.logging.Log;
+import org.hyperic.hq.product.*;
+
+import com.ericsson.monitoring.plugin.backlog.EngineLogIndex.BacklogMetrics;
+import com.ericsson.monitoring.plugin.common.schedule.CollectionPermits;
+import com.ericsson.monitoring.plugin.common.schedule.CollectionScheduler;
+import com.ericsson.monitoring.plugin.common.stats.CollectionStatistics;
+
+/**
+ * Measurement plugin of the Backlog Analysis server and its Interface services.
+ *
+ * Interface metrics ("backlog:interface=..." templates) are read from the
+ * shared {@link EngineLogIndex} instead of running backlog.pl once per
+ * interface, and the server metrics ("backlog:type=server" template) from the
+ * {@link InterfaceInventory}. Any other template is handled by the
+ * default MeasurementPlugin.
+ *
+ * The engine log is also read ahead every 5 minutes by the
+ * {@link CollectionScheduler}, so the collections of all interfaces at the
+ * top of the quarter only read the last few minutes of the log.
+ *
+ * The engine log index is shared by all interfaces, so the
+ * {@link CollectionStatistics} of the server and its services are kept
+ * together and reported by the server through the
+ * "self:type=collection:${alias}" template.
+ */
+public class BacklogMeasurementPlugin extends MeasurementPlugin {
+    private static final String DOMAIN = "backlog";
+    private static final String INTERFACE_PROPERTY = "interface";
+    private static final String TYPE_PROPERTY = "type";
+    private static final String SERVER_TYPE = "server";
+    private static final String AVAILABILITY = "Availability";
+    private static final long READ_AHEAD_INTERVAL_MILLIS = 5L * 60L * 1000L;
+    private static final String STATISTICS_NAME = "Backlog Analysis";
+
+    @Override
+    public MetricValue getValue(final Metric metric) throws PluginException, MetricNotFoundException,
+            MetricUnreachableException {
+        final CollectionStatistics statistics = CollectionStatistics.getInstance(STATISTICS_NAME);
+        if (CollectionStatistics.DOMAIN.equals(metric.getDomainName())) {
+            return statistics.getValue(metric.getAttributeName());
+        }
+        if (!DOMAIN.equals(metric.getDomainName())) {
+            return super.getValue(metric);
+        }
+
+        if (SERVER_TYPE.equals(metric.getObjectProperty(TYPE_PROPERTY))) {
+            return getServerValue(metric, statistics);
+        }
+
+        final Log log = getLog();
+        final String interfaceName = metric.getObjectProperty(INTERFACE_PROPERTY);
+        final String alias = metric.getAttributeName();
+        if (interfaceName == null) {
+            throw new MetricNotFoundException("Metric template " + metric + " does not define " + INTERFACE_PROPERTY);
+        }
+
+        final long now = System.currentTimeMillis();
+        final EngineLogIndex index = EngineLogIndex.getInstance();
+        CollectionScheduler.getInstance().schedule("backlog:" + EngineLogIndex.ENGINE_LOG_DIR,
+                READ_AHEAD_INTERVAL_MILLIS, new CollectionScheduler.Task() {
+                    @Override
+                    public void collect() throws IOException, MetricUnreachableException {
+                        refreshWithPermit(index, System.currentTimeMillis(), statistics);
+                    }
+                });
+        try {
+            refreshWithPermit(index, now, statistics);
+        } catch (IOException e) {
+            throw new MetricUnreachableException("Unable to read the engine log: " + e.getMessage(), e);
+        }
+
+        final BacklogMetrics metrics = index.getMetrics(interfaceName, now);
+        if (metrics == null) {
+            log.debug("Metrics not available for service resource Interface " + interfaceName);
+            if (AVAILABILITY.equals(alias)) {
+                return new MetricValue(Metric.AVAIL_DOWN);
+            }
+            throw new MetricUnreachableException("Metrics not available for service resource Interface "
+                    + interfaceName);
+        }
+
+        if (AVAILABILITY.equals(alias)) {
+            return new MetricValue(Metric.AVAIL_UP);
+        } else if ("backlog".equals(alias)) {
+            return new MetricValue(metrics.getBacklog());
+        } else if ("fileProcessed".equals(alias)) {
+            return new MetricValue(metrics.getFileProcessed());
+        }
+        throw new MetricNotFoundException("Unknown Interface metric " + alias);
+    }
+
+    private static void refreshWithPermit(final EngineLogIndex index, final long nowMillis,
+            final CollectionStatistics statistics) throws IOException, MetricUnreachableException {
+        // Most collections find the index fresh, they need no permit to read it
+        if (index.isFresh(nowMillis)) {
+            statistics.recordCacheLookup(true);
+            return;
+        }
+        final CollectionPermits permits = CollectionPermits.getHeavy();
+        permits.acquire();
+        try {
+            synchronized (index) {
+                final long startMillis = System.currentTimeMillis();
+                final boolean refreshed = index.refresh(nowMillis);
+                statistics.recordCacheLookup(!refreshed);
+                if (refreshed) {
+                    statistics.recordCollection(System.currentTimeMillis() - startMillis);
+                    statistics.recordScan(index.getLastScan());
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Get a metric of the Backlog Analysis server, as get_server_metrics of
+     * backlog.pl did.
+     */
+    private MetricValue getServerValue(final Metric metric, final CollectionStatistics statistics)
+            throws MetricNotFoundException, MetricUnreachableException {
+        final String alias = metric.getAttributeName();
+        if (AVAILABILITY.equals(alias)) {
+            return new MetricValue(Metric.AVAIL_UP);
+        } else if ("activeInterfaces".equals(alias)) {
+            final CollectionPermits permits = CollectionPermits.getHeavy();
+            permits.acquire();
+            final long startMillis = System.currentTimeMillis();
+            try {
+                return new MetricValue(InterfaceInventory.getInstance().getInterfaces(System.currentTimeMillis())
+                        .size());
+            } finally {
+                permits.release();
+                statistics.recordCollection(System.currentTimeMillis() - startMillis);
+            }
+        }
+        throw new MetricNotFoundException("Unknown Backlog Analysis metric " + alias);
+    }
+}
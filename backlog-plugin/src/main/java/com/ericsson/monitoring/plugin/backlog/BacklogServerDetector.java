@@ -11,23 +11,28 @@
  *----------------------------------------------------------------------------*/
 package com.ericsson.monitoring.plugin.backlog;
 
-import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.util.*;
 
 import org.apache.commons.logging.Log;
 import org.hyperic.hq.product.*;
 import org.hyperic.util.config.ConfigResponse;
 
+import com.ericsson.monitoring.plugin.common.env.ServerEnvironment;
+
 public class BacklogServerDetector extends ServerDetector implements AutoServerDetector {
     private static final String[] VALID_SERVER_TYPES = { "eniq_stats", "stats_coordinator" };
     private final File serverInstallFile = new File("/eniq/installation/config/installed_server_type");
-    private static final String UTILITY_SCRIPT = "/opt/assuremonitoring-plugins/scripts/backlog.pl";
     private static final String SERVICE_TYPE = "Interface";
     private static final String SERVER_INSTALL_PATH = "Backlog Analysis";
     private static final String SERVER_DESCRIPTION = "ENIQ Backlog Analysis";
     private static final String SERVICE_DESCRIPTION = "ENIQ Interface";
+    private static final long FULL_DISCOVERY_INTERVAL_MILLIS = 24L * 60L * 60L * 1000L;
     private final Log log;
+    private ServerEnvironment serverEnvironment = ServerEnvironment.getInstance();
+    private final Set<String> discoveredInterfaces = new TreeSet<String>();
+    private List<ServiceResource> discoveredServices;
+    private long lastFullDiscoveryMillis = -1;
 
     public BacklogServerDetector() {
         this.log = getLog();
@@ -53,6 +58,15 @@ public class BacklogServerDetector extends ServerDetector implements AutoServerD
         return super.createServiceResource(type);
     }
 
+    /**
+     * Set the server environment, by default the one shared by all plugins.
+     *
+     * @param serverEnvironment ServerEnvironment
+     */
+    public void setServerEnvironment(final ServerEnvironment serverEnvironment) {
+        this.serverEnvironment = serverEnvironment;
+    }
+
     /**
      * Get the name of Server Type
      *
@@ -62,25 +76,7 @@ public class BacklogServerDetector extends ServerDetector implements AutoServerD
      * @return String serverType
      */
     public String getServerType(final File sTypeFile) {
-        BufferedReader inputLine = null;
-        String serverType = null;
-        try {
-            inputLine = new BufferedReader(new FileReader(sTypeFile));
-            serverType = inputLine.readLine();
-            inputLine.close();
-        } catch (FileNotFoundException e) {
-            log.error("Unable to find file " + sTypeFile, e);
-        } catch (IOException e) {
-            log.error("Exception processing " + sTypeFile, e);
-        } finally {
-            if (inputLine != null) {
-                try {
-                    inputLine.close();
-                } catch (IOException e) {
-                    log.error(e);
-                }
-            }
-        }
+        final String serverType = serverEnvironment.getServerType(sTypeFile);
 
         log.debug("ServerType from getServerType is " + serverType);
 
@@ -114,7 +110,7 @@ public class BacklogServerDetector extends ServerDetector implements AutoServerD
          * Setting this value here and not defining it as Option in hq-plugin.xml to not make it configurable through UI
          */
 
-        measurementConfig.setValue("script", UTILITY_SCRIPT);
+        measurementConfig.setValue("script", InterfaceInventory.UTILITY_SCRIPT);
         measurementConfig.setValue("timeout", 60);
         return measurementConfig;
     }
@@ -145,85 +141,73 @@ public class BacklogServerDetector extends ServerDetector implements AutoServerD
     }
 
     /**
-     * Execute get_active_interface to retrive active interfaces
+     * Get list of active interfaces in the system.
      *
      * @param none
      * @return List<String>
      */
-    public BufferedReader executeCommand() {
-        final String[] command = { "/usr/bin/pfexec", UTILITY_SCRIPT, "-function", "get_active_interfaces" };
-
-        log.debug("Executing command : /usr/bin/pfexec " + UTILITY_SCRIPT + " -function get_active_interfaces");
-
-        try {
-            final Process process = Runtime.getRuntime().exec(command);
-            final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            return reader;
-        } catch (IOException e) {
-            log.error("Exception executing getActiveInterfaces", e);
-            return null;
-        }
-
+    public List<String> getActiveInterfaces() {
+        return InterfaceInventory.getInstance().getInterfaces(System.currentTimeMillis());
     }
 
     /**
-     * Get list of active interfaces in the system.
+     * Discover an Interface service per active interface.
      *
-     * @param none
-     * @return List<String>
+     * The services of the previous discovery are reported again while the
+     * sorted set of active interfaces is unchanged, so an unchanged inventory
+     * costs no new resources. When the set changes, the services are built
+     * again. Once a day the interfaces are listed again rather than taken
+     * from the {@link InterfaceInventory} cache.
      */
-    public List<String> getActiveInterfaces() {
-        final List<String> interfaces = new ArrayList<String>();
-
-        try {
-            final BufferedReader reader = executeCommand();
-            String line = null;
-
-            if (reader != null) {
-                while (true) {
-                    line = reader.readLine();
-
-                    if (line == null) {
-                        return interfaces;
-                    } else {
-                        final String splits[] = line.split(" ");
-
-                        if (splits.length == 2) {
-                            interfaces.add(splits[0] + "-" + splits[1]);
-                        }
-                    }
-                }
-            }
-        } catch (IOException e) {
-            log.error("Exception executing getActiveInterfaces", e);
-        }
-
-        return interfaces;
-    }
-
     @Override
-    public List<ServiceResource> discoverServices(final ConfigResponse config) throws PluginException {
+    public synchronized List<ServiceResource> discoverServices(final ConfigResponse config) throws PluginException {
 
-        final List<String> interfaces = getActiveInterfaces();
-        final List<ServiceResource> services = new ArrayList<ServiceResource>();
+        final long now = System.currentTimeMillis();
+        if (now - lastFullDiscoveryMillis >= FULL_DISCOVERY_INTERVAL_MILLIS || now < lastFullDiscoveryMillis) {
+            InterfaceInventory.getInstance().invalidate();
+            lastFullDiscoveryMillis = now;
+        }
+        final Set<String> interfaces = new TreeSet<String>(getActiveInterfaces());
+        if (discoveredServices != null && interfaces.equals(discoveredInterfaces)) {
+            log.debug("Active interfaces unchanged, reporting the " + interfaces.size() + " services of "
+                    + SERVICE_TYPE + " discovered before");
+            return (discoveredServices.isEmpty() ? null : discoveredServices);
+        }
 
+        for (final String intf : discoveredInterfaces) {
+            if (!interfaces.contains(intf)) {
+                log.debug("Service of type " + SERVICE_TYPE + " " + intf + " removed from server resource "
+                        + SERVER_INSTALL_PATH);
+            }
+        }
         for (final String intf : interfaces) {
-            final ServiceResource service = createServiceResource(SERVICE_TYPE);
-            service.setName(intf);
-            service.setDescription(SERVICE_DESCRIPTION);
-
-            final ConfigResponse measurementConfig = getMeasurementConfiguration();
-            measurementConfig.setValue("interface_name", intf);
-            service.setMeasurementConfig(measurementConfig);
+            if (!discoveredInterfaces.contains(intf)) {
+                log.debug("Service of type " + SERVICE_TYPE + " " + intf + " added to server resource "
+                        + SERVER_INSTALL_PATH);
+            }
+        }
+        discoveredInterfaces.clear();
+        discoveredInterfaces.addAll(interfaces);
 
-            final ConfigResponse productConfig = new ConfigResponse();
-            service.setProductConfig(productConfig);
+        final List<ServiceResource> services = new ArrayList<ServiceResource>(interfaces.size());
+        for (final String intf : interfaces) {
+            services.add(createInterfaceService(intf));
+        }
+        discoveredServices = services;
+        return (services.isEmpty() ? null : services);
+    }
 
-            log.debug("Service of type " + SERVICE_TYPE + "added to server resource " + SERVER_INSTALL_PATH);
+    private ServiceResource createInterfaceService(final String intf) {
+        final ServiceResource service = createServiceResource(SERVICE_TYPE);
+        service.setName(intf);
+        service.setDescription(SERVICE_DESCRIPTION);
 
-            services.add(service);
-        }
+        final ConfigResponse measurementConfig = getMeasurementConfiguration();
+        measurementConfig.setValue("interface_name", intf);
+        service.setMeasurementConfig(measurementConfig);
 
-        return (services.isEmpty() ? null : services);
+        final ConfigResponse productConfig = new ConfigResponse();
+        service.setProductConfig(productConfig);
+        return service;
     }
 }
@@ -0,0 +1,504 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.backlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ericsson.monitoring.plugin.common.checkpoint.Checkpoint;
+import com.ericsson.monitoring.plugin.common.checkpoint.CheckpointStore;
+import com.ericsson.monitoring.plugin.common.log.FileIdentity;
+import com.ericsson.monitoring.plugin.common.log.LogLineReader;
+import com.ericsson.monitoring.plugin.common.log.ReadThrottle;
+import com.ericsson.monitoring.plugin.common.log.TimeOrderedLogSeeker;
+import com.ericsson.monitoring.plugin.common.stats.CollectionStatistics;
+import com.ericsson.monitoring.plugin.common.wfinstr.KeywordMatcher;
+
+/**
+ * Per-interface table of the "created N files (M files" lines of the engine log.
+ *
+ * The day's engine log is parsed once per refresh for all interfaces, instead
+ * of once per interface, and every Interface service reads its backlog and
+ * processed file count from the table. The records of each interface are kept
+ * in a sliding window with a running count of the files processed, so a
+ * lookup only evicts the records that left the window.
+ *
+ * The window is not reset at midnight: the rest of the previous day's log is
+ * read before moving on to the new day's log, and when the index starts
+ * within 15 minutes of midnight it reads the end of the previous day's log
+ * first.
+ *
+ * The offset and the records of the window are checkpointed after each
+ * refresh, so that after an agent restart the index reads on from the offset.
+ * Otherwise the log is read from the first line of the window, found by
+ * {@link TimeOrderedLogSeeker}.
+ */
+public class EngineLogIndex {
+    public static final File ENGINE_LOG_DIR = new File("/eniq/log/sw_log/engine");
+    private static final long REFRESH_INTERVAL_MILLIS = 60L * 1000L;
+    private static final long WINDOW_MILLIS = 900L * 1000L;
+    private static final Charset LOG_CHARSET = Charset.forName("ISO-8859-1");
+    private static final Pattern CREATED_PATTERN = Pattern
+            .compile("\\d+\\.\\d+\\s+(\\d+)\\:(\\d+)\\:(\\d+).*created\\s+(\\d+)\\sfiles\\s*\\((\\d+)\\s+files");
+    private static final Pattern INTERFACE_PATTERN = Pattern.compile("INTF_[\\w.\\-]+");
+    // Both found in the bytes of a line before it is decoded
+    private static final KeywordMatcher LINE_MATCHER = new KeywordMatcher(Arrays.asList("created", "INTF_"));
+    private static final Pattern TIME_PATTERN = Pattern.compile("^\\d+\\.\\d+\\s+(\\d{2}:\\d{2}:\\d{2})");
+    private static final int TIME_PREFIX_LENGTH = 32;
+    private static final TimeOrderedLogSeeker.TimestampKey TIME_KEY = new TimeOrderedLogSeeker.TimestampKey() {
+        @Override
+        public String getKey(final byte[] buffer, final int start, final int length) {
+            final Matcher time = TIME_PATTERN.matcher(new String(buffer, start, Math.min(length, TIME_PREFIX_LENGTH),
+                    LOG_CHARSET));
+            return (time.find() ? time.group(1) : null);
+        }
+    };
+    private static final String CHECKPOINT_NAME = "engine-log-index";
+    private static final char AGGREGATE_SEPARATOR = '|';
+    private static final EngineLogIndex INSTANCE = new EngineLogIndex(ENGINE_LOG_DIR, CheckpointStore.getInstance());
+
+    private final Log log = LogFactory.getLog(EngineLogIndex.class);
+    private final File logDir;
+    private final CheckpointStore checkpointStore;
+    private final Map<String, RecordWindow> records = new HashMap<String, RecordWindow>();
+    private final Map<String, List<String>> resolvedInterfaces = new HashMap<String, List<String>>();
+    private final boolean[] found = new boolean[LINE_MATCHER.getKeywordCount()];
+    private File logFile;
+    private FileIdentity identity;
+    private long dayStartMillis;
+    private long offset;
+    private long checkpointOffset;
+    private long lastRefreshMillis = -1;
+    private ReadThrottle throttle;
+    private CollectionStatistics.Scan scan;
+
+    public EngineLogIndex(final File logDir) {
+        this(logDir, null);
+    }
+
+    /**
+     * @param logDir engine log directory
+     * @param checkpointStore to resume from and save to, null not to checkpoint
+     */
+    public EngineLogIndex(final File logDir, final CheckpointStore checkpointStore) {
+        this.logDir = logDir;
+        this.checkpointStore = checkpointStore;
+    }
+
+    /**
+     * Get the index shared by all Interface services.
+     *
+     * @return EngineLogIndex
+     */
+    public static EngineLogIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Parse the lines appended to the day's engine log, unless the index was
+     * already refreshed within the refresh interval.
+     *
+     * @param nowMillis current time
+     * @return true if the engine log was read, false if the index was still fresh
+     * @throws IOException if the engine log cannot be read
+     */
+    public synchronized boolean refresh(final long nowMillis) throws IOException {
+        if (isFresh(nowMillis)) {
+            return false;
+        }
+
+        final File dayLogFile = getLogFile(nowMillis);
+        throttle = ReadThrottle.forFile(dayLogFile);
+        scan = new CollectionStatistics.Scan();
+        if (logFile == null) {
+            resume(nowMillis);
+        }
+        if (logFile != null && !dayLogFile.equals(logFile) && logFile.equals(getPreviousLogFile(nowMillis))) {
+            finishPreviousDay(nowMillis);
+        }
+
+        final FileIdentity currentIdentity = FileIdentity.of(dayLogFile);
+        if (!dayLogFile.equals(logFile) || !currentIdentity.isContinuationOf(identity)
+                || currentIdentity.getSize() < offset) {
+            records.clear();
+            startWindow(nowMillis);
+        }
+        identity = currentIdentity;
+        resolvedInterfaces.clear();
+
+        offset = read(logFile, offset);
+        evict(nowMillis);
+        lastRefreshMillis = nowMillis;
+        if (offset != checkpointOffset) {
+            saveCheckpoint(nowMillis);
+        }
+        scan.addBytesRead(throttle.getBytesRead());
+        if (log.isDebugEnabled()) {
+            log.debug("Read " + throttle.getBytesRead() + " bytes of the engine log, throttled for "
+                    + throttle.getThrottledMillis() + " ms");
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the index was refreshed within the refresh interval, so a
+     * refresh would not read the engine log.
+     *
+     * @param nowMillis current time
+     * @return true if the index is still fresh
+     */
+    public synchronized boolean isFresh(final long nowMillis) {
+        return lastRefreshMillis >= 0 && nowMillis - lastRefreshMillis < REFRESH_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Get the budget of the last refresh, with the bytes it read and the time
+     * it was throttled.
+     *
+     * @return ReadThrottle, null before the first refresh
+     */
+    public synchronized ReadThrottle getLastReadThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Get the counts of the last refresh, with the lines it read and the
+     * "created" lines indexed.
+     *
+     * @return Scan, null before the first refresh
+     */
+    public synchronized CollectionStatistics.Scan getLastScan() {
+        return scan;
+    }
+
+    /**
+     * Get the backlog metrics of an interface over the last 15 minutes.
+     *
+     * @param interfaceName as reported by get_active_interfaces
+     * @param nowMillis current time
+     * @return BacklogMetrics, or null if the interface logged nothing within the window
+     */
+    public synchronized BacklogMetrics getMetrics(final String interfaceName, final long nowMillis) {
+        CreatedRecord latest = null;
+        long fileProcessed = 0;
+
+        for (final String token : resolve(interfaceName)) {
+            final RecordWindow window = records.get(token);
+            window.evict(nowMillis);
+            if (window.isEmpty()) {
+                continue;
+            }
+            if (latest == null || window.getLatest().timeMillis > latest.timeMillis) {
+                latest = window.getLatest();
+            }
+            fileProcessed += window.created;
+        }
+
+        return (latest == null ? null : new BacklogMetrics(latest.backlog, fileProcessed));
+    }
+
+    /**
+     * Restore the offset and the records of the checkpoint, if it was taken
+     * of the day's or the previous day's log and the log was not rotated
+     * since.
+     */
+    private void resume(final long nowMillis) {
+        if (checkpointStore == null) {
+            return;
+        }
+        final Checkpoint checkpoint = checkpointStore.load(CHECKPOINT_NAME);
+        if (checkpoint == null) {
+            return;
+        }
+        long checkpointDayStartMillis = getDayStart(nowMillis);
+        File checkpointLogFile = getLogFile(nowMillis);
+        if (!checkpointLogFile.getPath().equals(checkpoint.getFilePath())) {
+            checkpointDayStartMillis = getDayStart(checkpointDayStartMillis - 1);
+            checkpointLogFile = getPreviousLogFile(nowMillis);
+        }
+        if (!checkpointLogFile.getPath().equals(checkpoint.getFilePath())
+                || !checkpoint.isResumableFrom(FileIdentity.of(checkpointLogFile))) {
+            return;
+        }
+
+        // The aggregates are not loaded in the order they were saved
+        final Map<String, List<CreatedRecord>> tokenRecords = new HashMap<String, List<CreatedRecord>>();
+        for (final Map.Entry<String, String> aggregate : checkpoint.getAggregates().entrySet()) {
+            final int separator = aggregate.getKey().indexOf(AGGREGATE_SEPARATOR);
+            final String[] values = aggregate.getValue().split(",");
+            if (separator < 0 || values.length != 3) {
+                continue;
+            }
+            final String token = aggregate.getKey().substring(0, separator);
+            List<CreatedRecord> restored = tokenRecords.get(token);
+            if (restored == null) {
+                restored = new ArrayList<CreatedRecord>();
+                tokenRecords.put(token, restored);
+            }
+            try {
+                restored.add(new CreatedRecord(Long.parseLong(values[0]), Long.parseLong(values[1]), Long
+                        .parseLong(values[2])));
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring corrupt checkpoint record " + aggregate.getKey());
+            }
+        }
+        for (final Map.Entry<String, List<CreatedRecord>> restored : tokenRecords.entrySet()) {
+            Collections.sort(restored.getValue(), CreatedRecord.TIME_ORDER);
+            for (final CreatedRecord record : restored.getValue()) {
+                addRecord(restored.getKey(), record);
+            }
+        }
+        logFile = checkpointLogFile;
+        identity = checkpoint.getIdentity();
+        dayStartMillis = checkpointDayStartMillis;
+        offset = checkpoint.getOffset();
+        checkpointOffset = offset;
+        log.info("Resuming " + logFile + " from offset " + offset);
+    }
+
+    /**
+     * Read the lines appended to the previous day's log since the last
+     * refresh, and move on to the start of the day's log.
+     */
+    private void finishPreviousDay(final long nowMillis) throws IOException {
+        final FileIdentity previousIdentity = FileIdentity.of(logFile);
+        if (previousIdentity.isContinuationOf(identity) && previousIdentity.getSize() >= offset) {
+            read(logFile, offset);
+        }
+        logFile = getLogFile(nowMillis);
+        identity = FileIdentity.of(logFile);
+        dayStartMillis = getDayStart(nowMillis);
+        offset = 0;
+    }
+
+    /**
+     * Read the window from its first line, which is in the previous day's log
+     * during the first 15 minutes of the day.
+     */
+    private void startWindow(final long nowMillis) throws IOException {
+        final long windowStartMillis = nowMillis - WINDOW_MILLIS;
+        logFile = getLogFile(nowMillis);
+        dayStartMillis = getDayStart(nowMillis);
+        if (windowStartMillis >= dayStartMillis) {
+            offset = seek(logFile, windowStartMillis);
+            return;
+        }
+
+        final File previousLogFile = getPreviousLogFile(nowMillis);
+        dayStartMillis = getDayStart(windowStartMillis);
+        read(previousLogFile, seek(previousLogFile, windowStartMillis));
+        dayStartMillis = getDayStart(nowMillis);
+        offset = 0;
+    }
+
+    private void saveCheckpoint(final long nowMillis) {
+        if (checkpointStore == null) {
+            return;
+        }
+        final Checkpoint checkpoint = new Checkpoint(logFile.getPath(), identity, offset, nowMillis);
+        for (final Map.Entry<String, RecordWindow> tokenRecords : records.entrySet()) {
+            int index = 0;
+            for (final CreatedRecord record : tokenRecords.getValue().records) {
+                checkpoint.getAggregates().put(tokenRecords.getKey() + AGGREGATE_SEPARATOR + index++,
+                        record.timeMillis + "," + record.created + "," + record.backlog);
+            }
+        }
+
+        try {
+            checkpointStore.save(CHECKPOINT_NAME, checkpoint);
+            checkpointOffset = offset;
+        } catch (IOException e) {
+            log.warn("Unable to checkpoint the engine log index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Find the first line of a day's log at or after the given time.
+     */
+    private static long seek(final File file, final long timeMillis) throws IOException {
+        if (!file.isFile()) {
+            return 0;
+        }
+        final String time = new SimpleDateFormat("HH:mm:ss").format(new Date(timeMillis));
+        return TimeOrderedLogSeeker.seek(file, time, TIME_KEY);
+    }
+
+    private File getLogFile(final long nowMillis) {
+        return new File(logDir, "engine-" + new SimpleDateFormat("yyyy_MM_dd").format(new Date(nowMillis)) + ".log");
+    }
+
+    private File getPreviousLogFile(final long nowMillis) {
+        return getLogFile(getDayStart(nowMillis) - 1);
+    }
+
+    private static long getDayStart(final long nowMillis) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(nowMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Resolve an interface name to the tokens of the index containing it, the
+     * same way backlog.pl matches the interface name anywhere in a line.
+     */
+    private List<String> resolve(final String interfaceName) {
+        List<String> tokens = resolvedInterfaces.get(interfaceName);
+        if (tokens == null) {
+            tokens = new ArrayList<String>();
+            for (final String token : records.keySet()) {
+                if (token.contains(interfaceName)) {
+                    tokens.add(token);
+                }
+            }
+            resolvedInterfaces.put(interfaceName, tokens);
+        }
+        return tokens;
+    }
+
+    private long read(final File file, final long position) throws IOException {
+        if (!file.isFile()) {
+            return position;
+        }
+
+        scan.addFileOpened();
+        return LogLineReader.read(file, position, Long.MAX_VALUE, new LogLineReader.LineHandler() {
+            @Override
+            public void handleLine(final byte[] buffer, final int start, final int length) {
+                if (LINE_MATCHER.match(buffer, start, start + length, found) < found.length) {
+                    scan.addLine(false);
+                    return;
+                }
+                parseLine(new String(buffer, start, length, LOG_CHARSET));
+            }
+        }, throttle);
+    }
+
+    private void parseLine(final String line) {
+        final Matcher created = CREATED_PATTERN.matcher(line);
+        final boolean matched = created.find();
+        scan.addLine(matched);
+        if (!matched) {
+            return;
+        }
+
+        final long timeMillis = dayStartMillis
+                + ((Long.parseLong(created.group(1)) * 60L + Long.parseLong(created.group(2))) * 60L
+                + Long.parseLong(created.group(3))) * 1000L;
+        final CreatedRecord record = new CreatedRecord(timeMillis, Long.parseLong(created.group(4)),
+                Long.parseLong(created.group(5)));
+
+        final Matcher interfaceName = INTERFACE_PATTERN.matcher(line);
+        while (interfaceName.find()) {
+            addRecord(interfaceName.group(), record);
+        }
+    }
+
+    private void addRecord(final String token, final CreatedRecord record) {
+        RecordWindow window = records.get(token);
+        if (window == null) {
+            window = new RecordWindow();
+            records.put(token, window);
+        }
+        window.add(record);
+    }
+
+    private void evict(final long nowMillis) {
+        final Iterator<RecordWindow> iterator = records.values().iterator();
+        while (iterator.hasNext()) {
+            final RecordWindow window = iterator.next();
+            window.evict(nowMillis);
+            if (window.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Backlog metrics of one interface.
+     */
+    public static class BacklogMetrics {
+        private final long backlog;
+        private final long fileProcessed;
+
+        public BacklogMetrics(final long backlog, final long fileProcessed) {
+            this.backlog = backlog;
+            this.fileProcessed = fileProcessed;
+        }
+
+        public long getBacklog() {
+            return backlog;
+        }
+
+        public long getFileProcessed() {
+            return fileProcessed;
+        }
+    }
+
+    /**
+     * Records of one interface within the window, oldest first, and the sum
+     * of their created files.
+     */
+    private static class RecordWindow {
+        private final LinkedList<CreatedRecord> records = new LinkedList<CreatedRecord>();
+        private long created;
+
+        void add(final CreatedRecord record) {
+            records.add(record);
+            created += record.created;
+        }
+
+        void evict(final long nowMillis) {
+            while (!records.isEmpty() && nowMillis - records.getFirst().timeMillis > WINDOW_MILLIS) {
+                created -= records.removeFirst().created;
+            }
+        }
+
+        boolean isEmpty() {
+            return records.isEmpty();
+        }
+
+        CreatedRecord getLatest() {
+            return records.getLast();
+        }
+    }
+
+    private static class CreatedRecord {
+        private static final Comparator<CreatedRecord> TIME_ORDER = new Comparator<CreatedRecord>() {
+            @Override
+            public int compare(final CreatedRecord record1, final CreatedRecord record2) {
+                return (record1.timeMillis < record2.timeMillis ? -1 : (record1.timeMillis == record2.timeMillis ? 0
+                        : 1));
+            }
+        };
+        private final long timeMillis;
+        private final long created;
+        private final long backlog;
+
+        CreatedRecord(final long timeMillis, final long created, final long backlog) {
+            this.timeMillis = timeMillis;
+            this.created = created;
+            this.backlog = backlog;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.backlog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ericsson.monitoring.plugin.common.process.ProcessRunner;
+
+/**
+ * Active interfaces of the system, shared by the discovery of the Interface
+ * services and the activeInterfaces server metric.
+ *
+ * get_active_interfaces runs a dcuser login shell and the installer, so the
+ * list is kept for a refresh window. Only one caller lists the interfaces
+ * when the window is over, the others wait for and share its result. The
+ * command is destroyed if it does not complete within a minute, and after a
+ * failure it is not run again for a retry interval, so the callers are not
+ * held up by a failing command on every sample.
+ */
+public class InterfaceInventory {
+    static final String UTILITY_SCRIPT = "/opt/assuremonitoring-plugins/scripts/backlog.pl";
+    public static final long DEFAULT_TTL_MILLIS = 10L * 60L * 1000L;
+    public static final long RETRY_INTERVAL_MILLIS = 2L * 60L * 1000L;
+    private static final long COMMAND_TIMEOUT_MILLIS = 60L * 1000L;
+    private static final InterfaceInventory INSTANCE = new InterfaceInventory(DEFAULT_TTL_MILLIS);
+
+    private final Log log = LogFactory.getLog(InterfaceInventory.class);
+    private final ProcessRunner processRunner = new ProcessRunner(COMMAND_TIMEOUT_MILLIS);
+    private final long ttlMillis;
+    private List<String> interfaces;
+    private long refreshMillis = -1;
+    private long failureMillis = -1;
+    private boolean expired;
+
+    /**
+     * @param ttlMillis how long the listed interfaces are kept
+     */
+    public InterfaceInventory(final long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Get the inventory shared by the detector and the measurement plugin.
+     *
+     * @return InterfaceInventory
+     */
+    public static InterfaceInventory getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the active interfaces, named "&lt;interface&gt;-&lt;techpack&gt;",
+     * listing them again if the refresh window is over.
+     *
+     * If they cannot be listed, the previous list is returned, or an empty
+     * list if none was listed yet, until the retry interval is over.
+     *
+     * @param nowMillis current time
+     * @return unmodifiable List<String>
+     */
+    public synchronized List<String> getInterfaces(final long nowMillis) {
+        if (interfaces != null && !expired && nowMillis >= refreshMillis && nowMillis - refreshMillis < ttlMillis) {
+            return interfaces;
+        }
+        if (failureMillis >= 0 && nowMillis >= failureMillis && nowMillis - failureMillis < RETRY_INTERVAL_MILLIS) {
+            return getPreviousInterfaces();
+        }
+
+        try {
+            interfaces = Collections.unmodifiableList(listInterfaces());
+            refreshMillis = nowMillis;
+            failureMillis = -1;
+            expired = false;
+        } catch (IOException e) {
+            log.error("Exception executing getActiveInterfaces, retrying in " + RETRY_INTERVAL_MILLIS / 1000L
+                    + " seconds", e);
+            failureMillis = nowMillis;
+        }
+        return getPreviousInterfaces();
+    }
+
+    /**
+     * Expire the listed interfaces, so the next call lists them again. They
+     * are still returned if they cannot be listed.
+     */
+    public synchronized void invalidate() {
+        expired = true;
+        failureMillis = -1;
+    }
+
+    private List<String> getPreviousInterfaces() {
+        if (interfaces == null) {
+            return Collections.emptyList();
+        }
+        return interfaces;
+    }
+
+    /**
+     * Run get_active_interfaces and parse its "&lt;interface&gt; &lt;techpack&gt;" lines.
+     *
+     * @return List<String>
+     * @throws IOException if the command cannot be run, or fails
+     */
+    protected List<String> listInterfaces() throws IOException {
+        log.debug("Executing command : /usr/bin/pfexec " + UTILITY_SCRIPT + " -function get_active_interfaces");
+
+        final ProcessRunner.Result result = processRunner.run("/usr/bin/pfexec", UTILITY_SCRIPT, "-function",
+                "get_active_interfaces");
+        if (!result.isSuccess()) {
+            throw new IOException("get_active_interfaces failed with status " + result.getExitStatus() + ": "
+                    + result.getError());
+        }
+
+        final List<String> activeInterfaces = new ArrayList<String>();
+        for (final String line : result.getOutput().split("\n")) {
+            final String splits[] = line.split(" ");
+
+            if (splits.length == 2) {
+                activeInterfaces.add(splits[0] + "-" + splits[1]);
+            }
+        }
+        return activeInterfaces;
+    }
+}
@@ -173,4 +173,32 @@ public class BacklogServerDetectorTest {
         final List<ServiceResource> services = backlogServerDetectorMock.discoverServices(platformConfig);
         assertNotNull(services);
     }
+
+    /**
+     * Test the services of the previous discovery are reported again while the interfaces are unchanged,
+     * and built again when they change.
+     *
+     */
+    @Test
+    public void testDiscoverServicesReusesUnchangedServices() throws PluginException {
+        final BacklogServerDetector backlogServerDetectorMock = Mockito.spy(new BacklogServerDetector());
+        final List<String> interfaces = new ArrayList<String>();
+        interfaces.add("INTF_DC_E_ERBS-DC_E_ERBS");
+
+        doReturn(interfaces).when(backlogServerDetectorMock).getActiveInterfaces();
+        doReturn(serviceResourceMock).when(backlogServerDetectorMock).createServiceResource(any(String.class));
+        final ConfigResponse platformConfig = new ConfigResponse();
+        final List<ServiceResource> services = backlogServerDetectorMock.discoverServices(platformConfig);
+        assertEquals(1, services.size());
+        assertSame(services, backlogServerDetectorMock.discoverServices(platformConfig));
+        verify(backlogServerDetectorMock, times(1)).createServiceResource(any(String.class));
+
+        interfaces.add("INTF_DC_E_RBS-DC_E_RBS");
+        assertEquals(2, backlogServerDetectorMock.discoverServices(platformConfig).size());
+        verify(backlogServerDetectorMock, times(3)).createServiceResource(any(String.class));
+
+        interfaces.remove(0);
+        assertEquals(1, backlogServerDetectorMock.discoverServices(platformConfig).size());
+        verify(backlogServerDetectorMock, times(4)).createServiceResource(any(String.class));
+    }
 }
@@ -0,0 +1,194 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.backlog.test;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.monitoring.plugin.backlog.EngineLogIndex;
+import com.ericsson.monitoring.plugin.backlog.EngineLogIndex.BacklogMetrics;
+
+public class EngineLogIndexTest {
+
+    private static final long MINUTE_MILLIS = 60L * 1000L;
+
+    private File logDir;
+    private File logFile;
+    private long now;
+    private long midnight;
+
+    @Before
+    public void setUp() throws Exception {
+        logDir = File.createTempFile("engine", "");
+        logDir.delete();
+        logDir.mkdir();
+
+        final Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, 12);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        now = calendar.getTimeInMillis();
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        midnight = calendar.getTimeInMillis();
+        calendar.setTimeInMillis(now);
+        logFile = new File(logDir, "engine-" + new SimpleDateFormat("yyyy_MM_dd").format(calendar.getTime()) + ".log");
+    }
+
+    @After
+    public void tearDown() {
+        for (final File file : logDir.listFiles()) {
+            file.delete();
+        }
+        logDir.delete();
+    }
+
+    /**
+     * Test the backlog is taken from the latest line and the processed files summed over the window.
+     *
+     */
+    @Test
+    public void testGetMetricsWithinWindow() throws IOException {
+        append("06.06 11:40:00 INFO Loader.INTF_DC_E_ERBS created 9 files (99 files left)\n"
+                + "06.06 11:50:00 INFO Loader.INTF_DC_E_ERBS created 5 files (20 files left)\n"
+                + "06.06 11:55:00 INFO Loader.INTF_DC_E_RBS created 7 files (3 files left)\n"
+                + "06.06 11:58:00 INFO Loader.INTF_DC_E_ERBS created 2 files (12 files left)\n");
+
+        final EngineLogIndex index = new EngineLogIndex(logDir);
+        index.refresh(now);
+
+        final BacklogMetrics metrics = index.getMetrics("INTF_DC_E_ERBS", now);
+        assertEquals(12, metrics.getBacklog());
+        assertEquals(7, metrics.getFileProcessed());
+        assertEquals(3, index.getMetrics("INTF_DC_E_RBS", now).getBacklog());
+        assertNull(index.getMetrics("INTF_DC_E_BSS", now));
+    }
+
+    /**
+     * Test lines appended after a refresh are only read once the refresh interval has passed.
+     *
+     */
+    @Test
+    public void testRefreshReadsAppendedLines() throws IOException {
+        append("06.06 11:50:00 INFO Loader.INTF_DC_E_ERBS created 5 files (20 files left)\n");
+        final EngineLogIndex index = new EngineLogIndex(logDir);
+        assertFalse(index.isFresh(now));
+        assertTrue(index.refresh(now));
+
+        append("06.06 12:00:30 INFO Loader.INTF_DC_E_ERBS created 4 files (8 files left)\n");
+        assertTrue(index.isFresh(now + 30000L));
+        assertFalse(index.refresh(now + 30000L));
+        assertFalse(index.isFresh(now + MINUTE_MILLIS));
+        assertEquals(20, index.getMetrics("INTF_DC_E_ERBS", now).getBacklog());
+
+        assertTrue(index.refresh(now + MINUTE_MILLIS));
+        assertEquals(1, index.getLastScan().getLinesMatched());
+        final BacklogMetrics metrics = index.getMetrics("INTF_DC_E_ERBS", now + MINUTE_MILLIS);
+        assertEquals(8, metrics.getBacklog());
+        assertEquals(9, metrics.getFileProcessed());
+    }
+
+    /**
+     * Test only the lines naming an interface and the files it created are matched.
+     *
+     */
+    @Test
+    public void testRefreshMatchesLoaderLinesOnly() throws IOException {
+        append("06.06 11:50:00 INFO Loader.INTF_DC_E_ERBS created 5 files (20 files left)\n"
+                + "06.06 11:51:00 INFO Loader.INTF_DC_E_ERBS started\n"
+                + "06.06 11:52:00 INFO Aggregator created 3 aggregations\n");
+        final EngineLogIndex index = new EngineLogIndex(logDir);
+        index.refresh(now);
+
+        assertEquals(1, index.getLastScan().getLinesMatched());
+        assertEquals(20, index.getMetrics("INTF_DC_E_ERBS", now).getBacklog());
+    }
+
+    /**
+     * Test an interface without lines in the last 15 minutes has no metrics.
+     *
+     */
+    @Test
+    public void testGetMetricsOutsideWindow() throws IOException {
+        append("06.06 11:40:00 INFO Loader.INTF_DC_E_ERBS created 9 files (99 files left)\n");
+        final EngineLogIndex index = new EngineLogIndex(logDir);
+        index.refresh(now);
+
+        assertNull(index.getMetrics("INTF_DC_E_ERBS", now));
+    }
+
+    /**
+     * Test the window started just after midnight includes the end of the previous day's log.
+     *
+     */
+    @Test
+    public void testRefreshAfterMidnightReadsPreviousDay() throws IOException {
+        append(getLogFile(midnight - 1), "05.06 23:40:00 INFO Loader.INTF_DC_E_ERBS created 9 files (99 files left)\n"
+                + "05.06 23:55:00 INFO Loader.INTF_DC_E_ERBS created 5 files (20 files left)\n");
+        append(getLogFile(midnight), "06.06 00:03:00 INFO Loader.INTF_DC_E_ERBS created 2 files (12 files left)\n");
+
+        final EngineLogIndex index = new EngineLogIndex(logDir);
+        index.refresh(midnight + 5 * MINUTE_MILLIS);
+
+        final BacklogMetrics metrics = index.getMetrics("INTF_DC_E_ERBS", midnight + 5 * MINUTE_MILLIS);
+        assertEquals(12, metrics.getBacklog());
+        assertEquals(7, metrics.getFileProcessed());
+    }
+
+    /**
+     * Test the lines logged before midnight are kept when the day changes.
+     *
+     */
+    @Test
+    public void testRefreshAcrossMidnightKeepsWindow() throws IOException {
+        final File previousLogFile = getLogFile(midnight - 1);
+        append(previousLogFile, "05.06 23:50:00 INFO Loader.INTF_DC_E_ERBS created 5 files (20 files left)\n");
+        final EngineLogIndex index = new EngineLogIndex(logDir);
+        index.refresh(midnight - 5 * MINUTE_MILLIS);
+
+        append(previousLogFile, "05.06 23:58:00 INFO Loader.INTF_DC_E_ERBS created 4 files (8 files left)\n");
+        append(getLogFile(midnight), "06.06 00:01:00 INFO Loader.INTF_DC_E_RBS created 1 files (3 files left)\n");
+        index.refresh(midnight + 2 * MINUTE_MILLIS);
+
+        final BacklogMetrics metrics = index.getMetrics("INTF_DC_E_ERBS", midnight + 2 * MINUTE_MILLIS);
+        assertEquals(8, metrics.getBacklog());
+        assertEquals(9, metrics.getFileProcessed());
+        assertEquals(3, index.getMetrics("INTF_DC_E_RBS", midnight + 2 * MINUTE_MILLIS).getBacklog());
+
+        assertEquals(4, index.getMetrics("INTF_DC_E_ERBS", midnight + 10 * MINUTE_MILLIS).getFileProcessed());
+    }
+
+    private File getLogFile(final long timeMillis) {
+        return new File(logDir, "engine-" + new SimpleDateFormat("yyyy_MM_dd").format(new Date(timeMillis)) + ".log");
+    }
+
+    private void append(final String text) throws IOException {
+        append(logFile, text);
+    }
+
+    private void append(final File file, final String text) throws IOException {
+        final Writer writer = new FileWriter(file, true);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
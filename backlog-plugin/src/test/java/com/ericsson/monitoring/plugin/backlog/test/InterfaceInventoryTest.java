@@ -0,0 +1,102 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.backlog.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ericsson.monitoring.plugin.backlog.InterfaceInventory;
+
+public class InterfaceInventoryTest {
+
+    private static final long TTL_MILLIS = 600000L;
+
+    /**
+     * Test the interfaces are listed once per refresh window, or when invalidated.
+     *
+     */
+    @Test
+    public void testGetInterfacesCachedForTtl() {
+        final CountingInventory inventory = new CountingInventory();
+
+        assertEquals(Arrays.asList("INTF_DC_E_ERBS-DC_E_ERBS"), inventory.getInterfaces(1000));
+        inventory.getInterfaces(1000 + TTL_MILLIS - 1);
+        assertEquals(1, inventory.count);
+
+        inventory.getInterfaces(1000 + TTL_MILLIS);
+        assertEquals(2, inventory.count);
+
+        inventory.invalidate();
+        inventory.getInterfaces(1000 + TTL_MILLIS);
+        assertEquals(3, inventory.count);
+    }
+
+    /**
+     * Test the previous interfaces are kept when they cannot be listed again,
+     * also when invalidated.
+     *
+     */
+    @Test
+    public void testGetInterfacesKeepsPreviousOnFailure() {
+        final CountingInventory inventory = new CountingInventory();
+        inventory.getInterfaces(1000);
+
+        inventory.failing = true;
+        assertEquals(Arrays.asList("INTF_DC_E_ERBS-DC_E_ERBS"), inventory.getInterfaces(1000 + TTL_MILLIS));
+        assertEquals(2, inventory.count);
+
+        inventory.invalidate();
+        assertEquals(Arrays.asList("INTF_DC_E_ERBS-DC_E_ERBS"), inventory.getInterfaces(1000 + TTL_MILLIS));
+        assertEquals(3, inventory.count);
+    }
+
+    /**
+     * Test a failing command is only run again after the retry interval.
+     *
+     */
+    @Test
+    public void testGetInterfacesRetriesAfterFailure() {
+        final CountingInventory inventory = new CountingInventory();
+        inventory.failing = true;
+        assertTrue(inventory.getInterfaces(1000).isEmpty());
+        assertTrue(inventory.getInterfaces(1000 + InterfaceInventory.RETRY_INTERVAL_MILLIS - 1).isEmpty());
+        assertEquals(1, inventory.count);
+
+        inventory.failing = false;
+        assertEquals(Arrays.asList("INTF_DC_E_ERBS-DC_E_ERBS"),
+                inventory.getInterfaces(1000 + InterfaceInventory.RETRY_INTERVAL_MILLIS));
+        assertEquals(2, inventory.count);
+    }
+
+    private static class CountingInventory extends InterfaceInventory {
+        private int count;
+        private boolean failing;
+
+        CountingInventory() {
+            super(TTL_MILLIS);
+        }
+
+        @Override
+        protected List<String> listInterfaces() throws IOException {
+            count++;
+            if (failing) {
+                throw new IOException("get_active_interfaces failed");
+            }
+            return Arrays.asList("INTF_DC_E_ERBS-DC_E_ERBS");
+        }
+    }
+}
@@ -19,14 +19,18 @@ import org.apache.commons.logging.Log;
 import org.hyperic.hq.product.*;
 import org.hyperic.util.config.ConfigResponse;
 
+import com.ericsson.monitoring.plugin.common.env.ServerEnvironment;
+
 public class EELteefaDetector extends ServerDetector implements AutoServerDetector {
     private static final String[] validServerTypes = { "eniq_events", "eniq_coordinator" };
     private final File lteefaFeatureDir = new File("/eniq/mediation_inter/M_E_LTEEFA");
     private final File serverInstallFile = new File("/eniq/installation/config/installed_server_type");
-    private final File lteefaPerfStatScript = new File("/opt/assuremonitoring-plugins/scripts/lteefa_perf_stat.pl");
+    // The metrics are collected from this log, see LogRulesMeasurementPlugin
+    private final File wfinstrLog = new File("/eniq/log/sw_log/mediation_gw/wfinstr/wfinstr.log");
     private final String pluginDescription;
     private final String pluginServerName;
     private final Log log;
+    private ServerEnvironment serverEnvironment = ServerEnvironment.getInstance();
 
     /*
      * (non-Javadoc)
@@ -56,30 +60,22 @@ public class EELteefaDetector extends ServerDetector implements AutoServerDetect
         return this.pluginDescription;
     }
 
+    /**
+     * Set the server environment, by default the one shared by all plugins.
+     *
+     * @param serverEnvironment ServerEnvironment
+     */
+    public void setServerEnvironment(final ServerEnvironment serverEnvironment) {
+        this.serverEnvironment = serverEnvironment;
+    }
+
     /**
      * Get the name of Server Type from File
      * @param complete filename of install_server_type file
      * @return String serverType
      */
     public String getServerType(final File sTypeFile) {
-        BufferedReader inputLine = null;
-        String serverType = null;
-        try {
-            inputLine = new BufferedReader(new FileReader(sTypeFile));
-            serverType = inputLine.readLine();
-            inputLine.close();
-        } catch (FileNotFoundException e) {
-            log.error("Exception when attempting to open " + sTypeFile + " for reading", e);
-        } catch (IOException e) {
-            log.error("Exception processing " + sTypeFile, e);
-        } finally {
-            if (inputLine != null) {
-                try {
-                    inputLine.close();
-                } catch (IOException e) {
-                }
-            }
-        }
+        final String serverType = serverEnvironment.getServerType(sTypeFile);
         if (log.isDebugEnabled()) {
             log.debug(getClass().getSimpleName() + " serverType from getServerType is " + serverType);
         }
@@ -111,16 +107,16 @@ public class EELteefaDetector extends ServerDetector implements AutoServerDetect
      * @return Boolean
      */
     public Boolean islteefaFeatureInstalled(final File featFile) {
-        return featFile.isDirectory();
+        return serverEnvironment.isFeatureInstalled(featFile);
     }
 
     /**
-     * Verify if the script needed for Metric collect is available.
-     * @param complete filename of metric collection script
+     * Verify if the wfinstr log the metrics are collected from is available.
+     * @param complete filename of the wfinstr log
      * @return Boolean
      */
-    public Boolean isMetricScriptPresent(final File metricScript) {
-        return metricScript.exists();
+    public Boolean isWfinstrLogPresent(final File logFile) {
+        return logFile.exists();
     }
 
     @Override
@@ -149,7 +145,7 @@ public class EELteefaDetector extends ServerDetector implements AutoServerDetect
         if (log.isDebugEnabled()) {
             log.debug(getClass().getSimpleName() + "getServerResources called.");
         }
-        if (isMetricScriptPresent(lteefaPerfStatScript) && isValidServerType(getServerType(serverInstallFile))
+        if (isWfinstrLogPresent(wfinstrLog) && isValidServerType(getServerType(serverInstallFile))
                 && islteefaFeatureInstalled(lteefaFeatureDir)) {
 
             if (log.isDebugEnabled()) {
@@ -172,8 +168,8 @@ public class EELteefaDetector extends ServerDetector implements AutoServerDetect
         } else {
             if (log.isDebugEnabled()) {
                 log.debug(getClass().getSimpleName() + " getServerResources  one or more conditions are not valid.");
-                log.debug(getClass().getSimpleName() + " isMetricScriptPresent is " + isMetricScriptPresent(lteefaPerfStatScript) + " for script "
-                        + lteefaPerfStatScript);
+                log.debug(getClass().getSimpleName() + " isWfinstrLogPresent is " + isWfinstrLogPresent(wfinstrLog) + " for log "
+                        + wfinstrLog);
                 log.debug(getClass().getSimpleName() + " islteefaFeatureInstalled is " + islteefaFeatureInstalled(lteefaFeatureDir)
                         + " for directory " + lteefaFeatureDir);
             }
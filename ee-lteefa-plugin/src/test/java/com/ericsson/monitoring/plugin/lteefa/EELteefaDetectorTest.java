@@ -102,24 +102,24 @@ public class EELteefaDetectorTest {
     }
 
     /**
-     * Test isMetricScriptPresent to check it returns true if metric collection script exist.
+     * Test isWfinstrLogPresent to check it returns true if the wfinstr log exists.
      */
     @Test
-    public void testIsMetricScriptPresent() {
-        final File mockScript = Mockito.mock(File.class);
-        doReturn(new Boolean(true)).when(mockScript).exists();
-        final Boolean testResult = EELteefaDetectorUnderTest.isMetricScriptPresent(mockScript);
+    public void testIsWfinstrLogPresent() {
+        final File mockLog = Mockito.mock(File.class);
+        doReturn(new Boolean(true)).when(mockLog).exists();
+        final Boolean testResult = EELteefaDetectorUnderTest.isWfinstrLogPresent(mockLog);
         assertTrue(testResult);
     }
 
     /**
-     * Test isMetricScriptPresent to check it returns false if metric collection script does not exist.
+     * Test isWfinstrLogPresent to check it returns false if the wfinstr log does not exist.
      */
     @Test
-    public void testIsMetricScriptPresentFalse() {
-        final File mockScript = Mockito.mock(File.class);
-        doReturn(new Boolean(false)).when(mockScript).exists();
-        final Boolean testResult = EELteefaDetectorUnderTest.isMetricScriptPresent(mockScript);
+    public void testIsWfinstrLogPresentFalse() {
+        final File mockLog = Mockito.mock(File.class);
+        doReturn(new Boolean(false)).when(mockLog).exists();
+        final Boolean testResult = EELteefaDetectorUnderTest.isWfinstrLogPresent(mockLog);
         assertFalse(testResult);
     }
 
@@ -131,7 +131,7 @@ public class EELteefaDetectorTest {
         final EELteefaDetector eelteefaDetectorMock = Mockito.spy(new EELteefaDetector());
         final String validServerType = "eniq_coordinator";
         doReturn(validServerType).when(eelteefaDetectorMock).getServerType(any(File.class));
-        doReturn(new Boolean(true)).when(eelteefaDetectorMock).isMetricScriptPresent(any(File.class));
+        doReturn(new Boolean(true)).when(eelteefaDetectorMock).isWfinstrLogPresent(any(File.class));
         doReturn(new Boolean(true)).when(eelteefaDetectorMock).isValidServerType(any(String.class));
         doReturn(new Boolean(true)).when(eelteefaDetectorMock).islteefaFeatureInstalled(any(File.class));
 
@@ -155,7 +155,7 @@ public class EELteefaDetectorTest {
         final EELteefaDetector eelteefaDetectorMock = Mockito.spy(new EELteefaDetector());
         final String inValidServerType = "eniq_mz";
         doReturn(inValidServerType).when(eelteefaDetectorMock).getServerType(any(File.class));
-        doReturn(new Boolean(false)).when(eelteefaDetectorMock).isMetricScriptPresent(any(File.class));
+        doReturn(new Boolean(false)).when(eelteefaDetectorMock).isWfinstrLogPresent(any(File.class));
         doReturn(new Boolean(true)).when(eelteefaDetectorMock).isValidServerType(any(String.class));
         doReturn(new Boolean(true)).when(eelteefaDetectorMock).islteefaFeatureInstalled(any(File.class));
         final ConfigResponse platformConfig = new ConfigResponse();
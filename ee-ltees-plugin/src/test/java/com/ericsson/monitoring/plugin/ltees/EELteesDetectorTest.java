@@ -118,26 +118,26 @@ public class EELteesDetectorTest {
     }
 
     /**
-     * Test isMetricScriptPresent to check it returns true if metric collection script exist.
+     * Test isWfinstrLogPresent to check it returns true if the wfinstr log exists.
      *
      */
     @Test
-    public void testIsMetricScriptPresent() {
-        final File mockScript = Mockito.mock(File.class);
-        doReturn(new Boolean(true)).when(mockScript).isFile();
-        final Boolean testResult = EELteesDetectorUnderTest.isMetricScriptPresent(mockScript);
+    public void testIsWfinstrLogPresent() {
+        final File mockLog = Mockito.mock(File.class);
+        doReturn(new Boolean(true)).when(mockLog).isFile();
+        final Boolean testResult = EELteesDetectorUnderTest.isWfinstrLogPresent(mockLog);
         assertTrue(testResult);
     }
 
     /**
-     * Test isMetricScriptPresent to check it returns false if metric collection script does not exist.
+     * Test isWfinstrLogPresent to check it returns false if the wfinstr log does not exist.
      *
      */
     @Test
-    public void testIsMetricScriptPresentFalse() {
-        final File mockScript = Mockito.mock(File.class);
-        doReturn(new Boolean(false)).when(mockScript).isFile();
-        final Boolean testResult = EELteesDetectorUnderTest.isMetricScriptPresent(mockScript);
+    public void testIsWfinstrLogPresentFalse() {
+        final File mockLog = Mockito.mock(File.class);
+        doReturn(new Boolean(false)).when(mockLog).isFile();
+        final Boolean testResult = EELteesDetectorUnderTest.isWfinstrLogPresent(mockLog);
         assertFalse(testResult);
     }
 
@@ -150,7 +150,7 @@ public class EELteesDetectorTest {
         final EELteesDetector eelteesDetectorMock = Mockito.spy(new EELteesDetector());
         final String validServerType = "eniq_coordinator";
         doReturn(validServerType).when(eelteesDetectorMock).getServerType(any(File.class));
-        doReturn(new Boolean(true)).when(eelteesDetectorMock).isMetricScriptPresent(any(File.class));
+        doReturn(new Boolean(true)).when(eelteesDetectorMock).isWfinstrLogPresent(any(File.class));
         doReturn(new Boolean(true)).when(eelteesDetectorMock).isValidServerType(any(String.class));
         doReturn(new Boolean(true)).when(eelteesDetectorMock).islteesFeatureInstalled(any(File.class));
 
@@ -176,7 +176,7 @@ public class EELteesDetectorTest {
         final EELteesDetector eelteesDetectorMock = Mockito.spy(new EELteesDetector());
         final String inValidServerType = "eniq_mz";
         doReturn(inValidServerType).when(eelteesDetectorMock).getServerType(any(File.class));
-        doReturn(new Boolean(false)).when(eelteesDetectorMock).isMetricScriptPresent(any(File.class));
+        doReturn(new Boolean(false)).when(eelteesDetectorMock).isWfinstrLogPresent(any(File.class));
         doReturn(new Boolean(true)).when(eelteesDetectorMock).isValidServerType(any(String.class));
         doReturn(new Boolean(true)).when(eelteesDetectorMock).islteesFeatureInstalled(any(File.class));
         final ConfigResponse platformConfig = new ConfigResponse();
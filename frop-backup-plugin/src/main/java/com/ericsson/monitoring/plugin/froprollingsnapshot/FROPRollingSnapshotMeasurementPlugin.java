@@ -0,0 +1,28 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.froprollingsnapshot;
+
+import java.util.regex.Pattern;
+
+import com.ericsson.monitoring.plugin.common.backup.BackupLogMeasurementPlugin;
+
+/**
+ * Collects the FROP rolling snapshot metrics from the most recent
+ * "End backup." line of the FRH backup log, replacing frop_rollingsnapshot.pl.
+ */
+public class FROPRollingSnapshotMeasurementPlugin extends BackupLogMeasurementPlugin {
+
+    public FROPRollingSnapshotMeasurementPlugin() {
+        super(Pattern.compile("^\\s*\\[(\\d{4}-\\w+-\\d{2} \\d{2}:\\d{2}:\\d{2})\\]"), "yyyy-MMM-dd HH:mm:ss",
+                "End backup.");
+    }
+}
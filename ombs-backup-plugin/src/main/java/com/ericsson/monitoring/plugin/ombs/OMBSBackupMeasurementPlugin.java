@@ -0,0 +1,29 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.ombs;
+
+import java.util.regex.Pattern;
+
+import com.ericsson.monitoring.plugin.common.backup.BackupLogMeasurementPlugin;
+
+/**
+ * Collects the OMBS backup metrics from the most recent "ENIQ Server
+ * successfully prepared for Backup" line of the backup log, replacing
+ * ombs_backup.pl.
+ */
+public class OMBSBackupMeasurementPlugin extends BackupLogMeasurementPlugin {
+
+    public OMBSBackupMeasurementPlugin() {
+        super(Pattern.compile("^\\s*(\\d{2}\\.\\d{2}\\.\\d{2}_\\d{2}:\\d{2}:\\d{2})\\s+-"), "dd.MM.yy_HH:mm:ss",
+                "ENIQ Server successfully prepared for Backup");
+    }
+}
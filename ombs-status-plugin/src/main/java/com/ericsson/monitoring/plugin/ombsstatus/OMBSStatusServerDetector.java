@@ -22,7 +22,8 @@ import org.hyperic.util.config.ConfigResponse;
 public class OMBSStatusServerDetector extends ServerDetector implements AutoServerDetector {
 
     public static final String SERVER_TYPE = "OMBS Status";
-    private final File alarmScript = new File("/opt/assuremonitoring-plugins/scripts/ombs_status.pl");
+    // The alarm file is raised in this directory, see AlarmFileMeasurementPlugin
+    private final File alarmDir = new File("/eniq/admin/etc");
     private final String pluginDescription;
     private final String pluginServerName;
     private final Log log;
@@ -42,8 +43,8 @@ public class OMBSStatusServerDetector extends ServerDetector implements AutoServ
         return this.pluginDescription;
     }
 
-    public Boolean isMetricScriptPresent(final File metricScript) {
-        return metricScript.isFile();
+    public Boolean isAlarmDirPresent(final File dir) {
+        return dir.isDirectory();
     }
 
     @Override
@@ -76,7 +77,7 @@ public class OMBSStatusServerDetector extends ServerDetector implements AutoServ
 
         List<ServerResource> servers = new ArrayList<ServerResource>();
 
-        if (isMetricScriptPresent(alarmScript)) {
+        if (isAlarmDirPresent(alarmDir)) {
 
             String installPath = "/" + SERVER_TYPE;
             ServerResource server = createServerResource(installPath);
@@ -100,7 +101,7 @@ public class OMBSStatusServerDetector extends ServerDetector implements AutoServ
             return servers;
         } else {
             if (log.isDebugEnabled()) {
-                log.debug("This platform does not have alarm metric script file (" + alarmScript + ")");
+                log.debug("This platform does not have the alarm directory (" + alarmDir + ")");
             }
         }
 
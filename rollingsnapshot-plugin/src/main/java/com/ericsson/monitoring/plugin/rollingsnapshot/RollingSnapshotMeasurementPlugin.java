@@ -0,0 +1,93 @@
+/*------------------------------------------------------------------------------
+ *******************************************************************************
+ * COPYRIGHT Ericsson 2014
+ *
+ * The copyright to the computer program(s) herein is the property of
+ * Ericsson Inc. The programs may be used and/or copied only with written
+ * permission from Ericsson Inc. or in accordance with the terms and
+ * conditions stipulated in the agreement/contract under which the
+ * program(s) have been supplied.
+ *******************************************************************************
+ *----------------------------------------------------------------------------*/
+package com.ericsson.monitoring.plugin.rollingsnapshot;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.hyperic.hq.product.Metric;
+import org.hyperic.hq.product.MetricUnreachableException;
+
+import com.ericsson.monitoring.plugin.common.backup.BackupLogMeasurementPlugin;
+import com.ericsson.monitoring.plugin.common.env.ServerEnvironment;
+import com.ericsson.monitoring.plugin.common.process.ProcessRunner;
+
+/**
+ * Collects the rolling snapshot metrics from the most recent "successfully
+ * created" line of the rolling snapshot log, replacing rollingsnapshot.pl.
+ *
+ * As in the script, the snapshot is only available if the ZFS snapshots, and
+ * the NAS and SAN snapshots on coordinator servers and raw storage stats
+ * servers, can be listed.
+ */
+public class RollingSnapshotMeasurementPlugin extends BackupLogMeasurementPlugin {
+    private static final List<String> COORDINATOR_SERVER_TYPES = Arrays.asList("eniq_coordinator", "eniq_events",
+            "stats_coordinator");
+    private static final String PFEXEC = "/usr/bin/pfexec";
+    private static final String BKUP_SW_BIN = "/eniq/bkup_sw/bin/";
+    private static final long COMMAND_TIMEOUT_MILLIS = 60L * 1000L;
+
+    private final ProcessRunner processRunner = new ProcessRunner(COMMAND_TIMEOUT_MILLIS);
+
+    public RollingSnapshotMeasurementPlugin() {
+        super(Pattern.compile("^\\s*(\\d{2}\\.\\d{2}\\.\\d{2}_\\d{2}:\\d{2}:\\d{2})\\s+-"), "dd.MM.yy_HH:mm:ss",
+                "successfully created");
+    }
+
+    @Override
+    protected boolean isBackupAvailable(final Metric metric) throws MetricUnreachableException {
+        final ServerEnvironment environment = ServerEnvironment.getInstance();
+        String serverType = environment.getServerType();
+        if (serverType == null) {
+            getLog().error(ServerEnvironment.SERVER_TYPE_FILE + " is not available");
+            return false;
+        }
+        serverType = serverType.trim();
+
+        boolean checkNasAndSan = COORDINATOR_SERVER_TYPES.contains(serverType);
+        if ("eniq_stats".equals(serverType)) {
+            final String storageType = environment.getStorageType();
+            if (storageType == null) {
+                return false;
+            }
+            checkNasAndSan = "raw".equals(storageType);
+        }
+
+        if (!isSnapshotListed("manage_zfs_snapshots.bsh")) {
+            return false;
+        }
+        return !checkNasAndSan
+                || (isSnapshotListed("manage_san_snapshots.bsh") && isSnapshotListed("manage_nas_snapshots.bsh"));
+    }
+
+    /**
+     * Run "<script> -a list -f ALL" and check its exit status.
+     */
+    private boolean isSnapshotListed(final String script) throws MetricUnreachableException {
+        try {
+            final ProcessRunner.Result result = processRunner.run(PFEXEC, BKUP_SW_BIN + script, "-a", "list", "-f",
+                    "ALL");
+            if (result.isTimedOut()) {
+                throw new MetricUnreachableException(script + " -a list did not complete within "
+                        + COMMAND_TIMEOUT_MILLIS + " ms");
+            }
+            if (result.getExitStatus() != 0 && getLog().isDebugEnabled()) {
+                getLog().debug(script + " -a list exited with status " + result.getExitStatus());
+            }
+            return result.getExitStatus() == 0;
+        } catch (IOException e) {
+            throw new MetricUnreachableException("Unable to run " + script + ": " + e.getMessage(), e);
+        }
+    }
+}